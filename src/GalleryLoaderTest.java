@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import artgallery.GalleryLoader;
+import artgallery.GalleryModel;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+
+// Loading of the bundled galleries, schedules and paths.
+public class GalleryLoaderTest {
+	static final File SAMPLES = new File("src/sampleInputs");
+
+	static File[] galleries() {
+		File[] files = SAMPLES.listFiles((directory, name) -> name.startsWith("AGS"));
+		assertNotNull("No sample directory at " + SAMPLES.getAbsolutePath(), files);
+		assertTrue(files.length > 0);
+		return files;
+	}
+
+	// Sizes given on the first line of a gallery file: vertices and holes.
+	static int[] header(File file) throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			String[] values = br.readLine().replaceAll(" ", "").split(",");
+			return new int[] { Integer.parseInt(values[0]), Integer.parseInt(values[1]) };
+		}
+	}
+
+	@Test
+	public void loadsEveryBundledGallery() throws IOException {
+		for (File file : galleries()) {
+			GalleryModel model = GalleryLoader.loadGallery(file);
+			Polygon gallery = model.getGallery();
+			int[] header = header(file);
+			assertEquals(file.getName(), header[0], gallery.getVertices().size());
+			assertEquals(file.getName(), header[1], gallery.getHoles().size());
+			for (Hole hole : gallery.getHoles()) {
+				assertEquals(file.getName(), hole.getSize(), hole.getVertices().size());
+			}
+			assertTrue(file.getName(), model.getGlobalTime() > 0);
+		}
+	}
+
+	@Test
+	public void loadsEveryBundledSchedule() throws IOException {
+		for (File file : galleries()) {
+			File guards = GalleryLoader.companionFile(file, "GSS");
+			if (guards.length() > 0) {
+				assertFalse(guards.getName(), GalleryLoader.loadGuards(guards).isEmpty());
+			}
+			File thieves = GalleryLoader.companionFile(file, "RPS");
+			if (thieves.length() > 0) {
+				assertFalse(thieves.getName(), GalleryLoader.loadThieves(thieves).isEmpty());
+			}
+		}
+	}
+
+	@Test
+	public void ignoresBlankLinesAfterTheVertices() throws IOException {
+		File file = File.createTempFile("AGS", "");
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println("4, 1, 1, 1");
+			out.println("3");
+			out.println("1, 1, 5, 0");
+			out.println("0, 0, 0, 0");
+			out.println("100, 0, 0, 0");
+			out.println("100, 100, 0, 0");
+			out.println("0, 100, 0, 0");
+			out.println("40, 40, 0");
+			out.println();
+			out.println("60, 40, 0");
+			out.println("50, 60, 0");
+			out.println();
+			out.println();
+		}
+		try {
+			GalleryModel model = GalleryLoader.loadGallery(file);
+			assertEquals(4, model.getGallery().getVertices().size());
+			assertEquals(3, model.getGallery().getHoles().get(0).getVertices().size());
+			assertEquals(5, model.getGlobalTime());
+		} finally {
+			Files.delete(file.toPath());
+		}
+	}
+}
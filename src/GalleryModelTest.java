@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import artgallery.GalleryModel;
+import artgallery.Actors.Guard;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.PolygonOverlay;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+// Structures derived from the gallery follow its modifications.
+public class GalleryModelTest {
+	static Polygon square() {
+		return new Polygon(new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0), new Vertex(100, 0),
+				new Vertex(100, 100), new Vertex(0, 100))), new ArrayList<Hole>());
+	}
+
+	static ArrayList<Hole> hole() {
+		return new ArrayList<Hole>(Arrays.asList(new Hole(new ArrayList<Vertex>(
+				Arrays.asList(new Vertex(40, 30), new Vertex(40, 70), new Vertex(60, 70), new Vertex(60, 30))))));
+	}
+
+	// Guard walking along the bottom of the square, in 10 seconds.
+	static ArrayList<Guard> walkingGuard() {
+		Guard guard = new Guard(new RoutePoint(10, 10, 0, 0), 10, 0);
+		guard.addPointToRoute(new RoutePoint(90, 10, 10, 0));
+		return new ArrayList<Guard>(Arrays.asList(guard));
+	}
+
+	static GalleryModel modelWithHole() {
+		Polygon gallery = square();
+		gallery.setHoles(hole());
+		GalleryModel model = new GalleryModel(gallery, 10);
+		model.setGuards(walkingGuard());
+		return model;
+	}
+
+	@Test
+	public void shortestPathsFollowTheGallery() {
+		GalleryModel model = new GalleryModel(square(), 10);
+		Vertex source = new Vertex(50, 10);
+		Vertex target = new Vertex(50, 90);
+		assertEquals(80, model.getShortestPaths().distance(source, target), 1e-6);
+		model.getGallery().setHoles(hole());
+		assertEquals(modelWithHole().getShortestPaths().distance(source, target),
+				model.getShortestPaths().distance(source, target), 1e-6);
+		assertTrue(model.getShortestPaths().distance(source, target) > 80);
+	}
+
+	@Test
+	public void kineticViewsFollowTheGallery() {
+		GalleryModel model = new GalleryModel(square(), 10);
+		model.setGuards(walkingGuard());
+		double before = PolygonOverlay.area(model.computeGuardsRegions(5));
+		model.getGallery().setHoles(hole());
+		double after = PolygonOverlay.area(model.computeGuardsRegions(5));
+		assertTrue(after < before);
+		assertEquals(PolygonOverlay.area(modelWithHole().computeGuardsRegions(5)), after, 1e-6);
+	}
+
+	@Test
+	public void timelineFollowsTheGallery() throws InterruptedException {
+		GalleryModel model = new GalleryModel(square(), 10);
+		model.setGuards(walkingGuard());
+		model.precomputeTimeline();
+		for (int i = 0; i < 1000 && model.getTimeline() == null; ++i) {
+			Thread.sleep(10);
+		}
+		assertNotNull(model.getTimeline());
+		model.getGallery().setHoles(hole());
+		assertNull(model.getTimeline());
+		assertEquals(PolygonOverlay.area(modelWithHole().computeGuardsRegions(5)),
+				PolygonOverlay.area(model.computeGuardsRegions(5)), 1e-6);
+	}
+}
@@ -0,0 +1,70 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artgallery.GalleryLoader;
+import artgallery.GeometricAlgorithms;
+import artgallery.KineticVisibility;
+import artgallery.SweepVisibilityEngine;
+import artgallery.TriangularExpansionVisibilityEngine;
+import artgallery.VisibilityEngine;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// The kinetic polygon of a moving viewpoint matches the polygon the engine
+// computes at every instant, while repairing most of its events locally.
+public class KineticVisibilityTest {
+	static void assertFollowsTheEngine(Polygon gallery, VisibilityEngine engine, Random random) {
+		int repairs = 0;
+		int rebuilds = 0;
+		int segments = 0;
+		for (int i = 0; i < 10; ++i) {
+			Vertex from = VisibilityEngineTest.pointInside(gallery, random);
+			Vertex to = VisibilityEngineTest.pointInside(gallery, random);
+			if (!GeometricAlgorithms.ringContains(engine.computeVisibilityRegion(from).getVertices(), to)) {
+				continue;
+			}
+			KineticVisibility kinetic = new KineticVisibility(gallery, engine, from, to, 0, 10);
+			for (double time = 0; time <= 10; time += 0.05) {
+				double expected = VisibilityEngineTest.area(engine.computeVisibilityRegion(kinetic.getViewPoint(time)));
+				double actual = VisibilityEngineTest.area(kinetic.getVisibilityRegion(time));
+				assertEquals("at " + time + " from " + from + " to " + to, expected, actual, 1e-6 * expected);
+			}
+			repairs += kinetic.getRepairCount();
+			rebuilds += kinetic.getRebuildCount();
+			++segments;
+		}
+		// Each segment builds its first polygon from scratch.
+		assertTrue(repairs + " repairs, " + rebuilds + " rebuilds", rebuilds - segments <= repairs);
+	}
+
+	@Test
+	public void followsTheEnginesInTheBundledGalleries() throws IOException {
+		Random random = new Random(8);
+		for (File file : GalleryLoaderTest.galleries()) {
+			Polygon gallery = GalleryLoader.loadGallery(file).getGallery();
+			assertFollowsTheEngine(gallery, new TriangularExpansionVisibilityEngine(gallery), random);
+			assertFollowsTheEngine(gallery, new SweepVisibilityEngine(gallery), random);
+		}
+	}
+
+	@Test
+	public void repairsEventsAroundAHole() {
+		Polygon gallery = GalleryModelTest.square();
+		gallery.setHoles(GalleryModelTest.hole());
+		VisibilityEngine engine = new TriangularExpansionVisibilityEngine(gallery);
+		KineticVisibility kinetic = new KineticVisibility(gallery, engine, new Vertex(10, 10), new Vertex(90, 10), 0,
+				10);
+		for (double time = 0; time <= 10; time += 0.01) {
+			double expected = VisibilityEngineTest.area(engine.computeVisibilityRegion(kinetic.getViewPoint(time)));
+			assertEquals("at " + time, expected, VisibilityEngineTest.area(kinetic.getVisibilityRegion(time)),
+					1e-6 * expected);
+		}
+		assertEquals(1, kinetic.getRebuildCount());
+		assertTrue(kinetic.getRepairCount() > 0);
+	}
+}
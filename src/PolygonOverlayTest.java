@@ -0,0 +1,179 @@
+import static org.junit.Assert.*;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artgallery.GalleryLoader;
+import artgallery.TriangularExpansionVisibilityEngine;
+import artgallery.VisibilityEngine;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.PolygonOverlay;
+import artgallery.geometricalElements.Vertex;
+
+// Boolean operations on visibility regions cover the same area as those of
+// java.awt.geom.Area.
+public class PolygonOverlayTest {
+	static Area toArea(List<Polygon> polygons) {
+		Area area = new Area();
+		for (Polygon p : polygons) {
+			Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+			addRing(path, p.getVertices());
+			for (Hole h : p.getHoles()) {
+				addRing(path, h.getVertices());
+			}
+			area.add(new Area(path));
+		}
+		return area;
+	}
+
+	static void addRing(Path2D.Double path, List<Vertex> ring) {
+		path.moveTo(ring.get(0).getX(), ring.get(0).getY());
+		for (Vertex v : ring.subList(1, ring.size())) {
+			path.lineTo(v.getX(), v.getY());
+		}
+		path.closePath();
+	}
+
+	// Shoelace formula over the rings of the area, which wind in opposite
+	// directions around holes.
+	static double area(Area area) {
+		double sum = 0, startX = 0, startY = 0, x = 0, y = 0;
+		double[] coordinates = new double[6];
+		for (PathIterator it = area.getPathIterator(null); !it.isDone(); it.next()) {
+			switch (it.currentSegment(coordinates)) {
+			case PathIterator.SEG_MOVETO:
+				startX = x = coordinates[0];
+				startY = y = coordinates[1];
+				break;
+			case PathIterator.SEG_LINETO:
+				sum += x * coordinates[1] - coordinates[0] * y;
+				x = coordinates[0];
+				y = coordinates[1];
+				break;
+			case PathIterator.SEG_CLOSE:
+				sum += x * startY - startX * y;
+				x = startX;
+				y = startY;
+				break;
+			}
+		}
+		return Math.abs(sum / 2);
+	}
+
+	static Area compute(Area subject, Area clipping, int operation) {
+		Area result = new Area(subject);
+		switch (operation) {
+		case PolygonOverlay.UNION:
+			result.add(clipping);
+			break;
+		case PolygonOverlay.INTERSECTION:
+			result.intersect(clipping);
+			break;
+		case PolygonOverlay.DIFFERENCE:
+			result.subtract(clipping);
+			break;
+		default:
+			result.exclusiveOr(clipping);
+		}
+		return result;
+	}
+
+	static ArrayList<Polygon> regions(Polygon gallery, VisibilityEngine engine, int count, Random random) {
+		ArrayList<Polygon> regions = new ArrayList<Polygon>();
+		while (regions.size() < count) {
+			Polygon region = engine.computeVisibilityRegion(VisibilityEngineTest.pointInside(gallery, random));
+			if (region != null) {
+				regions.add(region);
+			}
+		}
+		return regions;
+	}
+
+	static ArrayList<Polygon> galleries() throws IOException {
+		ArrayList<Polygon> galleries = new ArrayList<Polygon>();
+		for (File file : GalleryLoaderTest.galleries()) {
+			galleries.add(GalleryLoader.loadGallery(file).getGallery());
+		}
+		Polygon square = GalleryModelTest.square();
+		square.setHoles(GalleryModelTest.hole());
+		galleries.add(square);
+		return galleries;
+	}
+
+	static void assertSameArea(String name, double expected, double actual) {
+		assertEquals(name, expected, actual, 1e-6 * Math.max(1, expected));
+	}
+
+	@Test
+	public void operationsMatchTheAwtArea() throws IOException {
+		Random random = new Random(22);
+		for (Polygon gallery : galleries()) {
+			VisibilityEngine engine = new TriangularExpansionVisibilityEngine(gallery);
+			for (int trial = 0; trial < 10; ++trial) {
+				List<Polygon> subject = regions(gallery, engine, 1 + trial % 3, random);
+				List<Polygon> clipping = regions(gallery, engine, 1 + trial % 4, random);
+				for (int operation : new int[] { PolygonOverlay.UNION, PolygonOverlay.INTERSECTION,
+						PolygonOverlay.DIFFERENCE, PolygonOverlay.XOR }) {
+					double expected = area(compute(toArea(subject), toArea(clipping), operation));
+					double actual = PolygonOverlay.area(PolygonOverlay.compute(subject, clipping, operation));
+					assertSameArea("operation " + operation + " in trial " + trial, expected, actual);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void unionMatchesTheAwtArea() throws IOException {
+		Random random = new Random(23);
+		for (Polygon gallery : galleries()) {
+			VisibilityEngine engine = new TriangularExpansionVisibilityEngine(gallery);
+			for (int count = 1; count <= 8; ++count) {
+				List<Polygon> regions = regions(gallery, engine, count, random);
+				assertSameArea(count + " regions", area(toArea(regions)),
+						PolygonOverlay.area(PolygonOverlay.union(regions)));
+			}
+		}
+	}
+
+	static Polygon polygon(double... coordinates) {
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+		for (int i = 0; i < coordinates.length; i += 2) {
+			vertices.add(new Vertex(coordinates[i], coordinates[i + 1]));
+		}
+		return new Polygon(vertices);
+	}
+
+	// The crossing of the last two edges is rounded onto the end point of the
+	// first, which turns the vertical edge starting at (100, -75) below the
+	// other one starting there.
+	@Test
+	public void edgesTurnedByACrossingAreSortedAgain() {
+		List<Polygon> polygons = Arrays.asList(polygon(100, -75, 100.00000000000003, -71.19230930365238, -100, -75),
+				polygon(100, -75, 100, -59.470382572644645, -100, -75), polygon(100, -75, 100, -25, 50, -75));
+		assertSameArea("union", area(toArea(polygons)), PolygonOverlay.area(PolygonOverlay.union(polygons)));
+	}
+
+	// The gallery outside of the regions keeps the holes of the gallery.
+	@Test
+	public void differenceWithTheGalleryKeepsItsHoles() throws IOException {
+		Random random = new Random(24);
+		for (Polygon gallery : galleries()) {
+			VisibilityEngine engine = new TriangularExpansionVisibilityEngine(gallery);
+			List<Polygon> regions = regions(gallery, engine, 3, random);
+			List<Polygon> galleryOnly = Arrays.asList(gallery);
+			double expected = area(compute(toArea(galleryOnly), toArea(regions), PolygonOverlay.DIFFERENCE));
+			assertSameArea("uncovered", expected, PolygonOverlay
+					.area(PolygonOverlay.compute(galleryOnly, regions, PolygonOverlay.DIFFERENCE)));
+		}
+	}
+}
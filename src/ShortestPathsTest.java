@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artgallery.GalleryLoader;
+import artgallery.GeometricAlgorithms;
+import artgallery.ShortestPaths;
+import artgallery.dataStructures.VisibilityGraph;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// Shortest paths match the distances over the full visibility graph.
+public class ShortestPathsTest {
+	static double distance(Vertex a, Vertex b) {
+		return Math.hypot(b.getX() - a.getX(), b.getY() - a.getY());
+	}
+
+	// Dijkstra over every vertex of the visibility graph, extended with both
+	// points.
+	static double visibilityGraphDistance(Polygon gallery, Vertex source, Vertex target) {
+		GeometricAlgorithms GA = new GeometricAlgorithms();
+		VisibilityGraph graph = gallery.getVisibilityGraph();
+		Polygon view = GA.computeVisibilityRegion(source, gallery);
+		Vertex sourceVertex = gallery.getMatchingVertex(source);
+		Vertex targetVertex = gallery.getMatchingVertex(target);
+		if (view != null && GeometricAlgorithms.ringContains(view.getVertices(), target)
+				|| sourceVertex != null && targetVertex != null && graph.areVisible(sourceVertex, targetVertex)) {
+			return distance(source, target);
+		}
+		ArrayList<Vertex> vertices = graph.getVertices();
+		IdentityHashMap<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>();
+		for (int i = 0; i < vertices.size(); ++i) {
+			indices.put(vertices.get(i), i);
+		}
+		double[] dist = new double[vertices.size()];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+		for (Vertex w : GA.visibleVertices(source, gallery)) {
+			int i = indices.get(w);
+			dist[i] = distance(source, w);
+			queue.add(new double[] { dist[i], i });
+		}
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int i = (int) entry[1];
+			if (entry[0] > dist[i]) {
+				continue;
+			}
+			for (Vertex w : graph.getNeighbors(vertices.get(i))) {
+				int j = indices.get(w);
+				if (dist[i] + distance(vertices.get(i), w) < dist[j]) {
+					dist[j] = dist[i] + distance(vertices.get(i), w);
+					queue.add(new double[] { dist[j], j });
+				}
+			}
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for (Vertex w : GA.visibleVertices(target, gallery)) {
+			best = Math.min(best, dist[indices.get(w)] + distance(w, target));
+		}
+		return best;
+	}
+
+	static ArrayList<Polygon> galleries() throws IOException {
+		ArrayList<Polygon> galleries = new ArrayList<Polygon>();
+		for (File file : GalleryLoaderTest.galleries()) {
+			galleries.add(GalleryLoader.loadGallery(file).getGallery());
+		}
+		Polygon square = GalleryModelTest.square();
+		square.setHoles(GalleryModelTest.hole());
+		galleries.add(square);
+		return galleries;
+	}
+
+	@Test
+	public void matchesTheVisibilityGraphDistance() throws IOException {
+		Random random = new Random(3);
+		for (Polygon gallery : galleries()) {
+			ShortestPaths paths = new ShortestPaths(gallery);
+			for (int i = 0; i < 40; ++i) {
+				Vertex source = VisibilityEngineTest.pointInside(gallery, random);
+				Vertex target = VisibilityEngineTest.pointInside(gallery, random);
+				double expected = visibilityGraphDistance(gallery, source, target);
+				assertEquals(source + " to " + target, expected, paths.distance(source, target), 1e-6 * expected);
+			}
+		}
+	}
+
+	@Test
+	public void batchesMatchSingleQueries() throws IOException {
+		Random random = new Random(4);
+		for (Polygon gallery : galleries()) {
+			ShortestPaths paths = new ShortestPaths(gallery);
+			Vertex source = VisibilityEngineTest.pointInside(gallery, random);
+			ArrayList<Vertex> targets = new ArrayList<Vertex>();
+			for (int i = 0; i < 20; ++i) {
+				targets.add(VisibilityEngineTest.pointInside(gallery, random));
+			}
+			targets.add(new Vertex(-1e6, -1e6));
+			ArrayList<ArrayList<Vertex>> batch = paths.shortestPaths(source, targets);
+			assertNull(batch.get(targets.size() - 1));
+			for (int i = 0; i + 1 < targets.size(); ++i) {
+				ArrayList<Vertex> path = batch.get(i);
+				assertSame(source, path.get(0));
+				assertSame(targets.get(i), path.get(path.size() - 1));
+				assertEquals(paths.distance(source, targets.get(i)), ShortestPaths.length(path), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void pathsStartAndEndAtVertices() throws IOException {
+		for (Polygon gallery : galleries()) {
+			ShortestPaths paths = new ShortestPaths(gallery);
+			Vertex source = gallery.getVertices().get(0);
+			for (Vertex target : gallery.getVerticesAndHoles()) {
+				double expected = visibilityGraphDistance(gallery, source, target);
+				assertEquals(source + " to " + target, expected, paths.distance(source, target), 1e-6 * expected);
+			}
+		}
+	}
+}
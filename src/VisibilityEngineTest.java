@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import artgallery.GalleryLoader;
+import artgallery.GeometricAlgorithms;
+import artgallery.SweepVisibilityEngine;
+import artgallery.TriangularExpansionVisibilityEngine;
+import artgallery.VisibilityEngine;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// Both visibility engines compute the same regions in the bundled galleries.
+public class VisibilityEngineTest {
+	static double area(Polygon region) {
+		return region == null ? 0 : Math.abs(GeometricAlgorithms.signedArea(region.getVertices()));
+	}
+
+	// Random point inside the gallery, within its bounding box.
+	static Vertex pointInside(Polygon gallery, Random random) {
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (Vertex v : gallery.getVertices()) {
+			minX = Math.min(minX, v.getX());
+			minY = Math.min(minY, v.getY());
+			maxX = Math.max(maxX, v.getX());
+			maxY = Math.max(maxY, v.getY());
+		}
+		while (true) {
+			Vertex v = new Vertex(minX + random.nextDouble() * (maxX - minX),
+					minY + random.nextDouble() * (maxY - minY));
+			if (gallery.containsPoint(v)) {
+				return v;
+			}
+		}
+	}
+
+	static void assertSameRegion(String name, VisibilityEngine expected, VisibilityEngine actual, Vertex v) {
+		double a = area(expected.computeVisibilityRegion(v));
+		double b = area(actual.computeVisibilityRegion(v));
+		assertEquals(name + " at " + v, a, b, 1e-6 * Math.max(1, a));
+	}
+
+	@Test
+	public void enginesAgreeInsideTheGalleries() throws IOException {
+		Random random = new Random(5);
+		for (File file : GalleryLoaderTest.galleries()) {
+			Polygon gallery = GalleryLoader.loadGallery(file).getGallery();
+			VisibilityEngine sweep = new SweepVisibilityEngine(gallery);
+			VisibilityEngine expansion = new TriangularExpansionVisibilityEngine(gallery);
+			for (int i = 0; i < 200; ++i) {
+				assertSameRegion(file.getName(), sweep, expansion, pointInside(gallery, random));
+			}
+		}
+	}
+
+	// A new engine has no previous triangle to walk from, so each of its
+	// first queries goes through the trapezoidal map of the gallery.
+	@Test
+	public void firstQueryLocatesThroughTheTrapezoidalMap() throws IOException {
+		Random random = new Random(6);
+		for (File file : GalleryLoaderTest.galleries()) {
+			Polygon gallery = GalleryLoader.loadGallery(file).getGallery();
+			VisibilityEngine sweep = new SweepVisibilityEngine(gallery);
+			for (int i = 0; i < 50; ++i) {
+				Vertex v = pointInside(gallery, random);
+				assertSameRegion(file.getName(), sweep, new TriangularExpansionVisibilityEngine(gallery), v);
+			}
+			for (Vertex v : gallery.getVertices()) {
+				assertNotNull(file.getName() + " at " + v,
+						new TriangularExpansionVisibilityEngine(gallery).computeVisibilityRegion(v));
+			}
+		}
+	}
+
+	@Test
+	public void pointsOutsideHaveNoRegion() {
+		Polygon gallery = GalleryModelTest.square();
+		gallery.setHoles(GalleryModelTest.hole());
+		VisibilityEngine expansion = new TriangularExpansionVisibilityEngine(gallery);
+		assertNotNull(expansion.computeVisibilityRegion(new Vertex(10, 10)));
+		assertNull(expansion.computeVisibilityRegion(new Vertex(50, 50)));
+		assertNull(expansion.computeVisibilityRegion(new Vertex(150, 50)));
+	}
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import artgallery.geometricalElements.Edge;
 import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
 
 public abstract class Actor {
 	private int x;
@@ -16,4 +17,44 @@ public abstract class Actor {
 	private int routeLength;
 	boolean loopPath = false;
 
+	public abstract ArrayList<RoutePoint> getRoutePoints();
+
+	// Index of the route point the actor last passed at the given time, in
+	// seconds: -1 before the route starts and the last index after it ends.
+	public int getRouteIndexAt(double time) {
+		ArrayList<RoutePoint> route = getRoutePoints();
+		int low = -1;
+		int high = route.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) / 2;
+			if (route.get(middle).getTimeStamp() <= time) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	// Position at the given time in seconds, moving in a straight line and at
+	// constant speed between consecutive route points. The actor waits at its
+	// first point before the route starts and stays at its last one after it
+	// ends. Returns null when the route is empty.
+	public Vertex getPositionAt(double time) {
+		ArrayList<RoutePoint> route = getRoutePoints();
+		if (route.isEmpty()) {
+			return null;
+		}
+		int i = getRouteIndexAt(time);
+		if (i < 0) {
+			return route.get(0).toVertex();
+		}
+		if (i == route.size() - 1) {
+			return route.get(i).toVertex();
+		}
+		RoutePoint r1 = route.get(i);
+		RoutePoint r2 = route.get(i + 1);
+		double t = (time - r1.getTimeStamp()) / (r2.getTimeStamp() - r1.getTimeStamp());
+		return new Vertex(r1.getX() + t * (r2.getX() - r1.getX()), r1.getY() + t * (r2.getY() - r1.getY()));
+	}
 }
@@ -6,11 +6,9 @@ import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -27,13 +25,6 @@ import javax.swing.JTextField;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.border.TitledBorder;
 
-import artgallery.Actors.Guard;
-import artgallery.Actors.Thief;
-import artgallery.geometricalElements.Hole;
-import artgallery.geometricalElements.Polygon;
-import artgallery.geometricalElements.RoutePoint;
-import artgallery.geometricalElements.Vertex;
-
 public class ApplicationGUI implements Runnable {
 
 	private JFrame frame;
@@ -58,6 +49,7 @@ public class ApplicationGUI implements Runnable {
 	private Thread animator;
 	private boolean running = false;
 	private int seconder = 0;
+	private EventScheduler scheduler;
 
 	/**
 	 * Launch the application.
@@ -333,174 +325,43 @@ public class ApplicationGUI implements Runnable {
 	}
 
 	private void loadInput() {
+		scheduler = null;
 		String directory = System.getProperty("user.dir") + "/bin/sampleInputs/";
 		JFileChooser fileChooser = new JFileChooser(directory);
-		BufferedReader br = null;
-		String line = "";
-		String separator = ",";
-		int lastHole = 0;
-		int lastIndex = 0;
-		
-		//Array to add up objects while reading and later initialize the gallery.
-		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
-		ArrayList<Hole> holes = new ArrayList<Hole>();
-		ArrayList<Guard> guards = new ArrayList<Guard>();
-		ArrayList<Thief> thieves = new ArrayList<Thief>();
 
 		// Load Gallery Structure File
 		if (fileChooser.showOpenDialog(fileChooser) == JFileChooser.APPROVE_OPTION) {
-			String fileName = fileChooser.getSelectedFile().getName();
-			char fileNumber = fileName.charAt(fileName.length() - 1);
+			File galleryFile = new File(directory, fileChooser.getSelectedFile().getName());
 			try {
-				txtAreaStatus.append("Attempting to load gallery file [" + directory + fileName + "]\n");
-				br = new BufferedReader(new FileReader(directory + fileName));
-				int count = 1;
-				int n, h, e, a;
-				int g, v, t, d;
-				n = h = e = a = g = v = t = d = 0;
-
-				while ((line = br.readLine()) != null) {
-					String[] values = line.replaceAll(" ", "").split(separator);
-					if (count == 1) {						
-						if (values.length != 4) {
-							throw new IllegalArgumentException();
-						}
-						n = Integer.parseInt(values[0]);
-						h = Integer.parseInt(values[1]);
-						e = Integer.parseInt(values[2]);
-						a = Integer.parseInt(values[3]);
-						if (n < 3 || h < 0 || e < 1 || a < 1) {
-							throw new IllegalArgumentException();
-						}
-					} else if (count == 2) {
-						if (h > 0) {
-							for (int i = 0; i < values.length; ++i) {
-								Hole tempHole = new Hole();
-								tempHole.setSize(Integer.parseInt(values[i]));
-								holes.add(tempHole);
-							}
-						}
-					} else if (count == 3) {
-						g = Integer.parseInt(values[0]);
-						v = Integer.parseInt(values[1]);
-						t = Integer.parseInt(values[2]);
-						d = Integer.parseInt(values[3]);
-						if (g < 1 || v < 1 || t < 1 || d < 0) {
-							throw new IllegalArgumentException();
-						}
-					} else if (count > 3 && count <= 3 + n) {
-						Vertex tempVertex = new Vertex(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
-								""+(count - 3), Integer.parseInt(values[2]), Integer.parseInt(values[3]));
-						vertices.add(tempVertex);
-					} else {
-						Hole hole = holes.get(lastHole);
-						if (count > 3 + n + lastIndex + hole.getSize()) {
-							lastIndex += hole.getSize();
-							lastHole++;
-							hole = holes.get(lastHole);
-						}
-						Vertex tempVertex = new Vertex(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
-								""+(count - 3), Integer.parseInt(values[2]), 0);
-						hole.addVertex(tempVertex);
-						
-					}
-					count++;
-				}
+				txtAreaStatus.append("Attempting to load gallery file [" + galleryFile + "]\n");
+				this.gallery = GalleryLoader.loadGallery(galleryFile);
 				txtAreaStatus.append("File succesfully loaded!\n");
-				Polygon galleryPolygon = new Polygon(vertices, holes);
-				this.gallery = new GalleryModel(galleryPolygon, t);
-
 			} catch (FileNotFoundException e) {
 				txtAreaStatus.append("No gallery structure file could be found with that name :(\n");
 			} catch (IOException e) {
 				e.printStackTrace();
 			} catch (IllegalArgumentException e) {
 				System.out.println("Incorrect input file format");
-			} finally {
-				if (br != null) {
-					try {
-						br.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
 			}
 
 			// Load Guard Schedule File
 			try {
 				txtAreaStatus.append("Attempting to load guard schedule specification file...\n");
-				br = new BufferedReader(new FileReader(directory + "GSS" + fileNumber));
-				int count = 1;
-				int g = 0;
-				int currentGuard = -1;
-				int routeLength = 0;
-				int lastDef = 0;
-
-				while ((line = br.readLine()) != null) {
-					String[] values = line.replaceAll(" ", "").split(separator);
-					if (count == 1) {
-						if (values.length != 1) {
-							throw new IllegalArgumentException();
-						}
-						g = Integer.parseInt(values[0]);
-						for (int i = 0; i < g; ++i) {
-							Guard tempGuard = new Guard();
-							guards.add(tempGuard);
-						}
-					} else if (count == 2 || count > lastDef + guards.get(currentGuard).getRouteLength() + 1) {
-						if (values.length != 1) {
-							throw new IllegalArgumentException();
-						}
-						currentGuard++;
-						lastDef = count;
-						routeLength = Integer.parseInt(values[0]);
-						guards.get(currentGuard).setRouteLength(routeLength);
-					} else {
-						RoutePoint tempPoint = new RoutePoint(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
-								Integer.parseInt(values[2]), Integer.parseInt(values[3]));
-						guards.get(currentGuard).addPointToRoute(tempPoint);
-					}
-					count++;
-				}
-				gallery.setGuards(guards);
+				gallery.setGuards(GalleryLoader.loadGuards(GalleryLoader.companionFile(galleryFile, "GSS")));
 				txtAreaStatus.append("Guard schedule succesfully loaded!\n");
+				gallery.precomputeTimeline();
 			} catch (FileNotFoundException e) {
 				txtAreaStatus.append("No guard schedule file could be found with that name :(\n");
 			} catch (IOException e) {
 				e.printStackTrace();
 			} catch (IllegalArgumentException e) {
 				System.out.println("Incorrect input file format");
-			} finally {
-				if (br != null) {
-					try {
-						br.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
 			}
 
 			// Load Thief Path File
 			try {
 				txtAreaStatus.append("Attempting to load thief path specification file...\n");
-				br = new BufferedReader(new FileReader(directory + "RPS" + fileNumber));
-				int count = 1;
-
-				while ((line = br.readLine()) != null) {
-					String[] values = line.replaceAll(" ", "").split(separator);
-					if (count == 1) {
-						if (values.length != 1) {
-							throw new IllegalArgumentException();
-						}
-						thieves.add(new Thief());
-					} else {
-						RoutePoint tempPoint = new RoutePoint(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
-								Integer.parseInt(values[2]), 1);
-						thieves.get(0).addPointToRoute(tempPoint);
-					}
-					count++;
-				}
-				gallery.setThieves(thieves);
+				gallery.setThieves(GalleryLoader.loadThieves(GalleryLoader.companionFile(galleryFile, "RPS")));
 				txtAreaStatus.append("Filthy thieves succesfully loaded!\n");
 			} catch (FileNotFoundException e) {
 				txtAreaStatus.append("No robber path file could be found with that name :(\n");
@@ -508,14 +369,6 @@ public class ApplicationGUI implements Runnable {
 				e.printStackTrace();
 			} catch (IllegalArgumentException e) {
 				System.out.println("Incorrect input fileNumber format");
-			} finally {
-				if (br != null) {
-					try {
-						br.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
 			}
 		}
 		
@@ -588,6 +441,7 @@ public class ApplicationGUI implements Runnable {
 				btnExecuteSimulation.setText("Execute");
 				toggleAnimation();
 				seconder = 0;
+				scheduler = null;
 			}
 		}
 	}
@@ -596,14 +450,21 @@ public class ApplicationGUI implements Runnable {
 		return running;
 	}
 
+	// Moves the simulation to the current tick. Only the events since the last
+	// tick are processed; the positions of the actors are interpolated by the
+	// view when drawing them.
 	private void advanceActors() {
-		for (Guard guard : gallery.getGuards()) {
-			guard.advanceWithInterpolation(seconder);
-		}
-
-		for (Thief thief : gallery.getThieves()) {
-			thief.advanceWithInterpolation(seconder);
+		double time = seconder / 100.0;
+		if (scheduler == null) {
+			scheduler = new EventScheduler(gallery, gallery.detectThieves());
 		}
+		scheduler.advanceTo(time, event -> {
+			if (event.getType() == SimulationEvent.DETECTION) {
+				txtAreaStatus.append("Thief " + event.getDetection().getThief() + " seen by guard "
+						+ event.getDetection().getGuard() + String.format(" at %.2f s\n", event.getTime()));
+			}
+		});
+		gallery.setCurrentTime(time);
 	}
 
 	private class LoadInputFile implements ActionListener {
@@ -0,0 +1,202 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// Visibility engine remembering the polygons it computed, for the guards that
+// stand still at their route points and get the same query on every frame.
+// Queries are keyed by their coordinates snapped to Vertex.SNAP. The wrapped
+// engine is built from the gallery by the given factory, and built again with
+// the cache emptied whenever the version of the gallery changes, so results
+// for an outdated gallery are never returned. The least recently used results are evicted once their estimated
+// size exceeds the memory budget. The returned polygons are shared between
+// callers and must not be modified.
+public class CachedVisibilityEngine implements VisibilityEngine {
+	// Rough footprint of a vertex of a cached polygon, with its edge and
+	// neighbor lists, and of a triangle of its fan.
+	private static final long BYTES_PER_VERTEX = 256;
+	private static final long BYTES_PER_TRIANGLE = 512;
+
+	private Function<Polygon, VisibilityEngine> factory;
+	private VisibilityEngine engine;
+	// Version of the gallery the engine and the entries were computed for.
+	private int version;
+	private Polygon gallery;
+	private long memoryBudget;
+	private long memoryUsage;
+	private long hits;
+	private long misses;
+	// Access-ordered, so that iteration starts at the least recently used.
+	private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	public CachedVisibilityEngine(Function<Polygon, VisibilityEngine> factory, Polygon gallery, long memoryBudget) {
+		this.factory = factory;
+		this.gallery = gallery;
+		this.memoryBudget = memoryBudget;
+	}
+
+	@Override
+	public Polygon computeVisibilityRegion(Vertex viewPoint) {
+		return lookup(viewPoint).region;
+	}
+
+	@Override
+	public ArrayList<Polygon> computeVisibilityPolygon(Vertex viewPoint) {
+		Entry entry = lookup(viewPoint);
+		synchronized (this) {
+			if (entry.fan != null) {
+				return entry.fan;
+			}
+		}
+		ArrayList<Polygon> fan = GeometricAlgorithms.visibilityFan(viewPoint, entry.region);
+		synchronized (this) {
+			if (entry.fan == null) {
+				entry.fan = fan;
+				// Only count it if the entry was not evicted in the meantime.
+				if (entries.get(entry.key) == entry) {
+					memoryUsage += fan.size() * BYTES_PER_TRIANGLE;
+					evict();
+				}
+			}
+			return entry.fan;
+		}
+	}
+
+	// Chains are not cached: a moving viewpoint asks for one at each of its
+	// events, never twice at the same place.
+	@Override
+	public ArrayList<Vertex> computeVisibilityChain(Vertex viewPoint, Vertex right, Vertex left) {
+		return engine(gallery.getVersion()).computeVisibilityChain(viewPoint, right, left);
+	}
+
+	// Engine for the given version of the gallery, built again with the cache
+	// emptied when the gallery changed.
+	private synchronized VisibilityEngine engine(int version) {
+		if (this.engine == null || this.version != version) {
+			this.engine = factory.apply(gallery);
+			this.version = version;
+			entries.clear();
+			memoryUsage = 0;
+		}
+		return this.engine;
+	}
+
+	// Entry of the viewpoint, computed outside of the lock on a miss so that
+	// parallel queries do not wait for each other.
+	private Entry lookup(Vertex viewPoint) {
+		Key key = new Key(viewPoint, gallery.getVersion());
+		VisibilityEngine engine;
+		synchronized (this) {
+			engine = engine(key.version);
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return entry;
+			}
+			misses++;
+		}
+		Entry entry = new Entry(key, engine.computeVisibilityRegion(viewPoint));
+		synchronized (this) {
+			// The gallery changed while computing.
+			if (version != key.version) {
+				return entry;
+			}
+			Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				memoryUsage -= previous.size();
+			}
+			memoryUsage += entry.size();
+			evict();
+		}
+		return entry;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while (memoryUsage > memoryBudget && iterator.hasNext()) {
+			memoryUsage -= iterator.next().getValue().size();
+			iterator.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		memoryUsage = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	// Estimated memory taken by the cached polygons, in bytes.
+	public synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	public synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		evict();
+	}
+
+	// Snapped viewpoint and gallery version.
+	private static class Key {
+		private long x;
+		private long y;
+		private int version;
+
+		private Key(Vertex viewPoint, int version) {
+			this.x = Vertex.snap(viewPoint.getX());
+			this.y = Vertex.snap(viewPoint.getY());
+			this.version = version;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return x == other.x && y == other.y && version == other.version;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Long.hashCode(x) + Long.hashCode(y)) + version;
+		}
+	}
+
+	private static class Entry {
+		private Key key;
+		private Polygon region;
+		private ArrayList<Polygon> fan;
+
+		private Entry(Key key, Polygon region) {
+			this.key = key;
+			this.region = region;
+		}
+
+		private long size() {
+			long vertices = region == null ? 0 : region.getVertices().size();
+			long triangles = fan == null ? 0 : fan.size();
+			return vertices * BYTES_PER_VERTEX + triangles * BYTES_PER_TRIANGLE;
+		}
+	}
+}
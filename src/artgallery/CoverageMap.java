@@ -0,0 +1,80 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.PolygonOverlay;
+
+/*
+ * Depth of coverage of the gallery by a set of visibility polygons: the
+ * regions of the gallery seen by exactly 0, 1, 2, ... guards, with their
+ * areas. The visibility polygons, together as one operand, and the gallery
+ * are overlaid in a single PolygonOverlay. Visibility polygons are simple, so
+ * each adds 1 to the depth of the first operand inside it and that depth is
+ * the number of guards seeing a point, while the edges only carry two depths
+ * whatever the number of guards. Areas are computed for all depths at once
+ * from the edges; the regions of a depth are only built when asked for.
+ */
+public class CoverageMap {
+	private PolygonOverlay overlay;
+	private int guardCount;
+	private double[] areas;
+	private ArrayList<ArrayList<Polygon>> regions = new ArrayList<ArrayList<Polygon>>();
+
+	// Coverage of the gallery by the visibility polygons, one per guard.
+	public CoverageMap(Polygon gallery, List<Polygon> visibilityRegions) {
+		this.guardCount = visibilityRegions.size();
+		this.overlay = new PolygonOverlay(Arrays.asList(visibilityRegions, Collections.singletonList(gallery)));
+		this.areas = overlay.getAreas(CoverageMap::depth, guardCount + 1);
+		for (int d = 0; d <= guardCount; ++d) {
+			regions.add(null);
+		}
+	}
+
+	// Number of visibility polygons over a point of the gallery, given the
+	// depths of the operands, or -1 outside the gallery.
+	private static int depth(int[] depths) {
+		return depths[1] > 0 ? depths[0] : -1;
+	}
+
+	// Highest possible depth, the number of guards.
+	public int getMaxDepth() {
+		return guardCount;
+	}
+
+	// Polygons covering the part of the gallery seen by exactly the given
+	// number of guards.
+	public ArrayList<Polygon> getRegion(int depth) {
+		if (depth < 0 || depth > guardCount) {
+			return new ArrayList<Polygon>();
+		}
+		if (regions.get(depth) == null) {
+			regions.set(depth, overlay.getRegion(depths -> depth(depths) == depth));
+		}
+		return regions.get(depth);
+	}
+
+	// Area of the part of the gallery seen by exactly the given number of
+	// guards.
+	public double getArea(int depth) {
+		return depth < 0 || depth > guardCount ? 0 : areas[depth];
+	}
+
+	// Area of the part of the gallery seen by at least the given number of
+	// guards.
+	public double getAreaAtLeast(int depth) {
+		double area = 0;
+		for (int d = Math.max(depth, 0); d <= guardCount; ++d) {
+			area += areas[d];
+		}
+		return area;
+	}
+
+	// Area of the gallery, over all depths.
+	public double getTotalArea() {
+		return getAreaAtLeast(0);
+	}
+}
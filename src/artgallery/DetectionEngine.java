@@ -0,0 +1,215 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import artgallery.Actors.Actor;
+import artgallery.Actors.Guard;
+import artgallery.Actors.Thief;
+import artgallery.geometricalElements.CompactGallery;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Exact detection of thieves by guards moving along their routes. Both routes
+ * are split at every time stamp of either one, so that on each piece both
+ * actors move in a straight line at constant speed, and on each piece the
+ * times at which the thief can enter or leave the view of the guard are
+ * solved for:
+ * - A standing guard sees a fixed visibility polygon, which the thief crosses
+ *   where its path meets the edges of the polygon.
+ * - For a walking guard the line of sight only gets blocked or freed when it
+ *   sweeps over a vertex of the gallery, that is at the roots of the
+ *   quadratic orientation of the guard, the thief and the vertex.
+ * Between two consecutive candidate times the visibility does not change, so
+ * one test at their midpoint decides the whole sub-interval.
+ */
+public class DetectionEngine {
+	private VisibilityEngine engine;
+	// Walking guards are handled on the arrays of the gallery, going through
+	// all of its vertices for every piece of the routes.
+	private CompactGallery gallery;
+	// Visibility polygons of the positions where guards stand still.
+	private HashMap<Vertex, Polygon> regions = new HashMap<Vertex, Polygon>();
+
+	public DetectionEngine(Polygon gallery, VisibilityEngine engine) {
+		this.engine = engine;
+		this.gallery = gallery.getCompactGallery();
+	}
+
+	// Returns the intervals during which each thief is seen by each guard,
+	// sorted by start time.
+	public ArrayList<DetectionEvent> detect(List<Guard> guards, List<Thief> thieves) {
+		ArrayList<DetectionEvent> events = new ArrayList<DetectionEvent>();
+		for (int g = 0; g < guards.size(); ++g) {
+			for (int t = 0; t < thieves.size(); ++t) {
+				events.addAll(detect(guards.get(g), g, thieves.get(t), t));
+			}
+		}
+		Collections.sort(events);
+		return events;
+	}
+
+	// Returns the intervals during which the thief is seen by the guard, from
+	// the first to the last time stamp of the route of the thief. Guards keep
+	// watching at all times.
+	public ArrayList<DetectionEvent> detect(Guard guard, int guardIndex, Thief thief, int thiefIndex) {
+		ArrayList<DetectionEvent> events = new ArrayList<DetectionEvent>();
+		ArrayList<RoutePoint> route = thief.getRoutePoints();
+		if (route.isEmpty() || guard.getRoutePoints().isEmpty()) {
+			return events;
+		}
+		double routeStart = route.get(0).getTimeStamp();
+		double routeEnd = route.get(route.size() - 1).getTimeStamp();
+		if (routeStart == routeEnd) {
+			if (sees(guard.getPositionAt(routeStart), thief.getPositionAt(routeStart))) {
+				events.add(new DetectionEvent(guardIndex, thiefIndex, routeStart, routeEnd));
+			}
+			return events;
+		}
+
+		TreeSet<Double> breakpoints = new TreeSet<Double>();
+		breakpoints.add(routeStart);
+		breakpoints.add(routeEnd);
+		addTimeStamps(breakpoints, guard, routeStart, routeEnd);
+		addTimeStamps(breakpoints, thief, routeStart, routeEnd);
+
+		double open = Double.NaN;
+		Double a = breakpoints.first();
+		for (Double b = breakpoints.higher(a); b != null; a = b, b = breakpoints.higher(b)) {
+			double[] times = candidateTimes(guard, thief, a, b);
+			for (int i = 0; i + 1 < times.length; ++i) {
+				double middle = (times[i] + times[i + 1]) / 2;
+				boolean seen = sees(guard.getPositionAt(middle), thief.getPositionAt(middle));
+				if (seen && Double.isNaN(open)) {
+					open = times[i];
+				} else if (!seen && !Double.isNaN(open)) {
+					events.add(new DetectionEvent(guardIndex, thiefIndex, open, times[i]));
+					open = Double.NaN;
+				}
+			}
+		}
+		if (!Double.isNaN(open)) {
+			events.add(new DetectionEvent(guardIndex, thiefIndex, open, routeEnd));
+		}
+		return events;
+	}
+
+	private static void addTimeStamps(TreeSet<Double> breakpoints, Actor actor, double from, double to) {
+		for (RoutePoint r : actor.getRoutePoints()) {
+			if (from < r.getTimeStamp() && r.getTimeStamp() < to) {
+				breakpoints.add((double) r.getTimeStamp());
+			}
+		}
+	}
+
+	// Sorted times within [a, b], both included, at which the visibility
+	// between the guard and the thief may change.
+	private double[] candidateTimes(Guard guard, Thief thief, double a, double b) {
+		Vertex g0 = guard.getPositionAt(a);
+		Vertex g1 = guard.getPositionAt(b);
+		Vertex p0 = thief.getPositionAt(a);
+		Vertex p1 = thief.getPositionAt(b);
+		double[] times = new double[8];
+		int count = 0;
+		times[count++] = a;
+		times[count++] = b;
+
+		if (g0.getX() == g1.getX() && g0.getY() == g1.getY()) {
+			// Crossings of the path of the thief with the lines supporting the
+			// edges of the visibility polygon, when the edge reaches the path.
+			Polygon region = standingRegion(g0);
+			ArrayList<Vertex> boundary = region == null ? new ArrayList<Vertex>() : region.getVertices();
+			for (int i = 0; i < boundary.size(); ++i) {
+				Vertex r1 = boundary.get(i);
+				Vertex r2 = boundary.get((i + 1) % boundary.size());
+				if (GeometricKernel.orientation(p0, p1, r1) * GeometricKernel.orientation(p0, p1, r2) > 0) {
+					continue;
+				}
+				double px = p1.getX() - p0.getX(), py = p1.getY() - p0.getY();
+				double rx = r2.getX() - r1.getX(), ry = r2.getY() - r1.getY();
+				double denominator = px * ry - py * rx;
+				if (denominator != 0) {
+					double s = ((r1.getX() - p0.getX()) * ry - (r1.getY() - p0.getY()) * rx) / denominator;
+					times = add(times, count++, a + s * (b - a), a, b);
+				}
+			}
+		} else {
+			// Roots of orientation(g(s), p(s), v) = c0 + c1 s + c2 s^2 over s
+			// in [0, 1], for every vertex v of the gallery.
+			double dx = p0.getX() - g0.getX(), dy = p0.getY() - g0.getY();
+			double ddx = (p1.getX() - g1.getX()) - dx, ddy = (p1.getY() - g1.getY()) - dy;
+			double gx = g1.getX() - g0.getX(), gy = g1.getY() - g0.getY();
+			for (int v = 0; v < gallery.getVertexCount(); ++v) {
+				double ex = gallery.getX(v) - g0.getX(), ey = gallery.getY(v) - g0.getY();
+				double c0 = dx * ey - dy * ex;
+				double c1 = ddx * ey - ddy * ex - (dx * gy - dy * gx);
+				double c2 = -(ddx * gy - ddy * gx);
+				for (double s : roots(c0, c1, c2)) {
+					times = add(times, count++, a + s * (b - a), a, b);
+				}
+			}
+		}
+		times = Arrays.copyOf(times, count);
+		Arrays.sort(times);
+		return times;
+	}
+
+	// Stores the time at the given position, clamped to [a, b], growing the
+	// array when needed.
+	private static double[] add(double[] times, int position, double time, double a, double b) {
+		if (position == times.length) {
+			times = Arrays.copyOf(times, 2 * times.length);
+		}
+		times[position] = Math.max(a, Math.min(b, time));
+		return times;
+	}
+
+	// Real roots of c0 + c1 s + c2 s^2 in [0, 1].
+	private static double[] roots(double c0, double c1, double c2) {
+		if (c2 == 0) {
+			if (c1 == 0) {
+				return new double[0];
+			}
+			double s = -c0 / c1;
+			return 0 <= s && s <= 1 ? new double[] { s } : new double[0];
+		}
+		double discriminant = c1 * c1 - 4 * c2 * c0;
+		if (discriminant < 0) {
+			return new double[0];
+		}
+		// Numerically stable form, avoiding the cancellation of -c1 + sqrt.
+		double q = -(c1 + Math.copySign(Math.sqrt(discriminant), c1)) / 2;
+		double[] candidates = q == 0 ? new double[] { 0 } : new double[] { q / c2, c0 / q };
+		int count = 0;
+		for (double s : candidates) {
+			if (0 <= s && s <= 1) {
+				candidates[count++] = s;
+			}
+		}
+		return Arrays.copyOf(candidates, count);
+	}
+
+	// Whether the thief is in sight of the guard: in the visibility polygon
+	// of a standing guard, or with the line of sight staying in the gallery,
+	// touching its boundary included.
+	private boolean sees(Vertex guard, Vertex thief) {
+		if (regions.containsKey(guard)) {
+			Polygon region = regions.get(guard);
+			return region != null && GeometricAlgorithms.ringContains(region.getVertices(), thief);
+		}
+		return gallery.segmentInside(guard.getX(), guard.getY(), thief.getX(), thief.getY());
+	}
+
+	private Polygon standingRegion(Vertex position) {
+		if (!regions.containsKey(position)) {
+			regions.put(position, engine.computeVisibilityRegion(position));
+		}
+		return regions.get(position);
+	}
+}
@@ -0,0 +1,54 @@
+package artgallery;
+
+// Time interval, in seconds, during which a thief stays in sight of a guard.
+// Guards and thieves are referred to by their index in the gallery model.
+public class DetectionEvent implements Comparable<DetectionEvent> {
+	private int guard;
+	private int thief;
+	private double start;
+	private double end;
+
+	public DetectionEvent(int guard, int thief, double start, double end) {
+		this.guard = guard;
+		this.thief = thief;
+		this.start = start;
+		this.end = end;
+	}
+
+	public int getGuard() {
+		return guard;
+	}
+
+	public int getThief() {
+		return thief;
+	}
+
+	// Time at which the thief is first seen.
+	public double getStart() {
+		return start;
+	}
+
+	// Time at which the thief leaves the view of the guard, or the end of its
+	// route if it never does.
+	public double getEnd() {
+		return end;
+	}
+
+	public double getDuration() {
+		return end - start;
+	}
+
+	// Orders the events by start time, then by guard and thief.
+	@Override
+	public int compareTo(DetectionEvent other) {
+		if (start != other.start) {
+			return Double.compare(start, other.start);
+		}
+		return guard != other.guard ? Integer.compare(guard, other.guard) : Integer.compare(thief, other.thief);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("guard %d sees thief %d from %.3f to %.3f", guard, thief, start, end);
+	}
+}
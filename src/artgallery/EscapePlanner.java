@@ -0,0 +1,187 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import artgallery.Actors.Guard;
+import artgallery.Actors.Thief;
+import artgallery.dataStructures.VisibilityGraph;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Escape routes for a thief against the guard schedules. The thief moves
+ * between the vertices of the gallery along the edges of its visibility
+ * graph, at a given speed, and may wait at a vertex for a second at a time.
+ * A* searches the graph expanded over time, with states (vertex, second),
+ * from the art pieces at time zero to any exit. A move or a wait is allowed
+ * when the detection engine finds no guard seeing the thief during it. The
+ * heuristic is the time the thief needs to reach the nearest exit along the
+ * shortest path in the gallery, ignoring the guards, which never
+ * overestimates. The visibility graph and these distances only depend on the
+ * gallery, and are computed once per planner.
+ */
+public class EscapePlanner {
+	private List<Guard> guards;
+	private double speed;
+	private int horizon;
+	private DetectionEngine detection;
+	private VisibilityGraph graph;
+	private ArrayList<Vertex> vertices;
+	private IdentityHashMap<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>();
+	// Seconds needed to go from each vertex to the nearest exit.
+	private int[] heuristic;
+
+	// The thief covers speed units per second and has to be out before the
+	// horizon, in seconds.
+	public EscapePlanner(Polygon gallery, VisibilityEngine engine, List<Guard> guards, double speed, int horizon) {
+		this.guards = guards;
+		this.speed = speed;
+		this.horizon = horizon;
+		this.detection = new DetectionEngine(gallery, engine);
+		this.graph = gallery.getVisibilityGraph();
+		this.vertices = graph.getVertices();
+		for (int i = 0; i < vertices.size(); ++i) {
+			indices.put(vertices.get(i), i);
+		}
+		this.heuristic = exitTimes();
+	}
+
+	// State of the search: the thief stands at a vertex at a given second.
+	private static class Node {
+		private int vertex;
+		private int time;
+		private int estimate;
+		private Node parent;
+
+		private Node(int vertex, int time, int estimate, Node parent) {
+			this.vertex = vertex;
+			this.time = time;
+			this.estimate = estimate;
+			this.parent = parent;
+		}
+	}
+
+	// Returns the earliest unseen route from an art piece to an exit, starting
+	// at time zero, or null if there is none before the horizon. Consecutive
+	// waits at a vertex are merged into one stop.
+	public ArrayList<RoutePoint> plan() {
+		// Lowest estimate first, then latest time, which is closest to an exit.
+		PriorityQueue<Node> open = new PriorityQueue<Node>((a, b) -> a.estimate != b.estimate
+				? Integer.compare(a.estimate, b.estimate) : Integer.compare(b.time, a.time));
+		HashSet<Long> closed = new HashSet<Long>();
+		for (int i = 0; i < vertices.size(); ++i) {
+			if (vertices.get(i).isArt() && heuristic[i] <= horizon) {
+				open.add(new Node(i, 0, heuristic[i], null));
+			}
+		}
+
+		while (!open.isEmpty()) {
+			Node node = open.poll();
+			if (!closed.add((long) node.time * vertices.size() + node.vertex)) {
+				continue;
+			}
+			Vertex v = vertices.get(node.vertex);
+			if (v.isExit()) {
+				return route(node);
+			}
+			if (node.time + 1 <= horizon && safe(v, node.time, v, node.time + 1)) {
+				open.add(new Node(node.vertex, node.time + 1, node.time + 1 + heuristic[node.vertex], node));
+			}
+			for (Vertex w : graph.getNeighbors(v)) {
+				int index = indices.get(w);
+				int arrival = node.time + travelTime(v, w);
+				if (heuristic[index] <= horizon - arrival
+						&& !closed.contains((long) arrival * vertices.size() + index) && safe(v, node.time, w, arrival)) {
+					open.add(new Node(index, arrival, arrival + heuristic[index], node));
+				}
+			}
+		}
+		return null;
+	}
+
+	// Whether no guard sees the thief going straight from v1 at time t1 to v2
+	// at time t2.
+	private boolean safe(Vertex v1, int t1, Vertex v2, int t2) {
+		Thief thief = new Thief();
+		thief.addPointToRoute(new RoutePoint((int) v1.getX(), (int) v1.getY(), t1, 1));
+		thief.addPointToRoute(new RoutePoint((int) v2.getX(), (int) v2.getY(), t2, 1));
+		for (Guard guard : guards) {
+			if (!detection.detect(guard, 0, thief, 0).isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Whole seconds needed to walk from v1 to v2, at least one.
+	private int travelTime(Vertex v1, Vertex v2) {
+		double distance = Math.hypot(v1.getX() - v2.getX(), v1.getY() - v2.getY());
+		return Math.max(1, (int) Math.ceil(distance / speed));
+	}
+
+	// Dijkstra over the visibility graph from all exits at once, in seconds of
+	// travel. Vertices that cannot reach an exit get Integer.MAX_VALUE.
+	private int[] exitTimes() {
+		int[] times = new int[vertices.size()];
+		Arrays.fill(times, Integer.MAX_VALUE);
+		PriorityQueue<int[]> queue = new PriorityQueue<int[]>((a, b) -> Integer.compare(a[0], b[0]));
+		for (int i = 0; i < vertices.size(); ++i) {
+			if (vertices.get(i).isExit()) {
+				times[i] = 0;
+				queue.add(new int[] { 0, i });
+			}
+		}
+		while (!queue.isEmpty()) {
+			int[] entry = queue.poll();
+			if (entry[0] > times[entry[1]]) {
+				continue;
+			}
+			Vertex v = vertices.get(entry[1]);
+			for (Vertex w : graph.getNeighbors(v)) {
+				int index = indices.get(w);
+				int time = entry[0] + travelTime(v, w);
+				if (time < times[index]) {
+					times[index] = time;
+					queue.add(new int[] { time, index });
+				}
+			}
+		}
+		return times;
+	}
+
+	private ArrayList<RoutePoint> route(Node goal) {
+		ArrayList<Node> nodes = new ArrayList<Node>();
+		for (Node n = goal; n != null; n = n.parent) {
+			nodes.add(0, n);
+		}
+		ArrayList<RoutePoint> route = new ArrayList<RoutePoint>();
+		for (int i = 0; i < nodes.size(); ++i) {
+			Node n = nodes.get(i);
+			boolean waited = i > 0 && nodes.get(i - 1).vertex == n.vertex;
+			boolean waits = i + 1 < nodes.size() && nodes.get(i + 1).vertex == n.vertex;
+			if (waited && waits) {
+				continue;
+			}
+			Vertex v = vertices.get(n.vertex);
+			route.add(new RoutePoint((int) v.getX(), (int) v.getY(), n.time, 1));
+		}
+		return route;
+	}
+
+	// Text of the route in the format of the thief path files: the number of
+	// points, then one "x, y, time" line per point.
+	public static String toRouteFile(List<RoutePoint> route) {
+		StringBuilder text = new StringBuilder();
+		text.append(route.size()).append('\n');
+		for (RoutePoint r : route) {
+			text.append(r.getX()).append(", ").append(r.getY()).append(", ").append(r.getTimeStamp()).append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,146 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import artgallery.Actors.Actor;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Discrete-event scheduler of a simulation. Instead of advancing every actor
+ * at every tick, the simulation jumps from one event to the next in time
+ * order:
+ * - an actor arrives at a route point after moving, or leaves one to move
+ *   to a different position. Passing through a route point gives both
+ *   events at once, while standing still between route points gives none;
+ * - a guard starts seeing a thief, from the exact detections;
+ * - the global time ends.
+ * The queue only holds the next route event of each actor, which schedules
+ * the following one when processed, along with the detections and the end.
+ * Positions are not updated at all between events: they are interpolated
+ * from the routes only when asked for.
+ */
+public class EventScheduler {
+	private PriorityQueue<SimulationEvent> queue = new PriorityQueue<SimulationEvent>();
+	private double endTime;
+	private double time;
+	private int processed;
+	private boolean ended;
+
+	// Schedules the routes of the guards and thieves of the gallery and the
+	// given detections, up to the global time.
+	public EventScheduler(GalleryModel gallery, List<DetectionEvent> detections) {
+		this.endTime = gallery.getGlobalTime();
+		this.time = 0;
+		for (int i = 0; i < gallery.getGuards().size(); ++i) {
+			schedule(gallery.getGuards().get(i), i, 0, SimulationEvent.ARRIVAL);
+		}
+		for (int i = 0; i < gallery.getThieves().size(); ++i) {
+			schedule(gallery.getThieves().get(i), i, 0, SimulationEvent.ARRIVAL);
+		}
+		for (DetectionEvent detection : detections) {
+			if (detection.getStart() <= endTime) {
+				queue.add(new SimulationEvent(detection));
+			}
+		}
+		queue.add(new SimulationEvent(endTime));
+	}
+
+	// Schedules the first route event of the actor at or after the given route
+	// point, of the given type or a later one at that point. Arrivals are only
+	// events when coming from another position and departures when going to
+	// another position.
+	private void schedule(Actor actor, int actorIndex, int routeIndex, int type) {
+		ArrayList<RoutePoint> route = actor.getRoutePoints();
+		for (int i = routeIndex; i < route.size() && route.get(i).getTimeStamp() <= endTime; ++i) {
+			Vertex position = route.get(i).toVertex();
+			if (type <= SimulationEvent.ARRIVAL && i > 0 && !route.get(i - 1).toVertex().equals(position)) {
+				queue.add(new SimulationEvent(SimulationEvent.ARRIVAL, route.get(i).getTimeStamp(), actor, actorIndex,
+						i));
+				return;
+			}
+			if (type <= SimulationEvent.DEPARTURE && i + 1 < route.size()
+					&& !route.get(i + 1).toVertex().equals(position)) {
+				queue.add(new SimulationEvent(SimulationEvent.DEPARTURE, route.get(i).getTimeStamp(), actor, actorIndex,
+						i));
+				return;
+			}
+			type = SimulationEvent.ARRIVAL;
+		}
+	}
+
+	// Whether events are left, up to the end of the global time included.
+	public boolean hasNext() {
+		return !queue.isEmpty();
+	}
+
+	// Time of the next event, or infinity if none is left.
+	public double getNextTime() {
+		return queue.isEmpty() ? Double.POSITIVE_INFINITY : queue.peek().getTime();
+	}
+
+	// Processes the next event and moves the current time to it.
+	public SimulationEvent next() {
+		SimulationEvent event = queue.poll();
+		time = Math.max(time, event.getTime());
+		processed++;
+		switch (event.getType()) {
+		case SimulationEvent.ARRIVAL:
+			schedule(event.getActor(), event.getActorIndex(), event.getRouteIndex(), SimulationEvent.DEPARTURE);
+			break;
+		case SimulationEvent.DEPARTURE:
+			schedule(event.getActor(), event.getActorIndex(), event.getRouteIndex() + 1, SimulationEvent.ARRIVAL);
+			break;
+		case SimulationEvent.END:
+			ended = true;
+			queue.clear();
+			break;
+		}
+		return event;
+	}
+
+	// Processes the events up to the given time, included, handing them to
+	// the listener if any, and moves the current time there. The time does not
+	// go past the end of the global time.
+	public void advanceTo(double time, Consumer<SimulationEvent> listener) {
+		while (!queue.isEmpty() && queue.peek().getTime() <= time) {
+			SimulationEvent event = next();
+			if (listener != null) {
+				listener.accept(event);
+			}
+		}
+		this.time = Math.max(this.time, Math.min(time, endTime));
+	}
+
+	// Processes all the events until the end of the global time.
+	public void run(Consumer<SimulationEvent> listener) {
+		advanceTo(Double.POSITIVE_INFINITY, listener);
+	}
+
+	// Current time of the simulation, in seconds.
+	public double getTime() {
+		return time;
+	}
+
+	public double getEndTime() {
+		return endTime;
+	}
+
+	// Whether the end of the global time was processed.
+	public boolean hasEnded() {
+		return ended;
+	}
+
+	// Number of events processed so far.
+	public int getProcessedCount() {
+		return processed;
+	}
+
+	// Position of the actor at the current time, interpolated on its route.
+	public Vertex getPosition(Actor actor) {
+		return actor.getPositionAt(time);
+	}
+}
@@ -0,0 +1,167 @@
+package artgallery;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import artgallery.Actors.Guard;
+import artgallery.Actors.Thief;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+// Reads the input files of a simulation: the gallery structure (AGS), the
+// guard schedules (GSS) and the thief paths (RPS). The schedules and paths of
+// a gallery are found next to it, named after the last character of its file
+// name. Malformed files raise an IllegalArgumentException.
+public class GalleryLoader {
+	private static final String SEPARATOR = ",";
+
+	private GalleryLoader() {
+	}
+
+	// File of the guard schedules or thief paths of a gallery, from the prefix
+	// "GSS" or "RPS".
+	public static File companionFile(File galleryFile, String prefix) {
+		String name = galleryFile.getName();
+		return new File(galleryFile.getParentFile(), prefix + name.charAt(name.length() - 1));
+	}
+
+	// Gallery with its holes and global time, without actors.
+	public static GalleryModel loadGallery(File file) throws IOException {
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+		ArrayList<Hole> holes = new ArrayList<Hole>();
+		int lastHole = 0;
+		int lastIndex = 0;
+		int n, h, e, a;
+		int g, v, t, d;
+		n = h = e = a = g = v = t = d = 0;
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			int count = 1;
+			String line;
+			while ((line = br.readLine()) != null) {
+				// Line 2 holds the sizes of the holes and is empty without
+				// holes. Blank lines after the vertices of the gallery, among
+				// or after the holes, are not part of the numbering of the
+				// lines.
+				if (count > 3 + n && line.trim().isEmpty()) {
+					continue;
+				}
+				String[] values = line.replaceAll(" ", "").split(SEPARATOR);
+				if (count == 1) {
+					if (values.length != 4) {
+						throw new IllegalArgumentException("Expected 4 values on the first line of " + file);
+					}
+					n = Integer.parseInt(values[0]);
+					h = Integer.parseInt(values[1]);
+					e = Integer.parseInt(values[2]);
+					a = Integer.parseInt(values[3]);
+					if (n < 3 || h < 0 || e < 1 || a < 1) {
+						throw new IllegalArgumentException("Invalid gallery size in " + file);
+					}
+				} else if (count == 2) {
+					if (h > 0) {
+						for (int i = 0; i < values.length; ++i) {
+							Hole tempHole = new Hole();
+							tempHole.setSize(Integer.parseInt(values[i]));
+							holes.add(tempHole);
+						}
+					}
+				} else if (count == 3) {
+					g = Integer.parseInt(values[0]);
+					v = Integer.parseInt(values[1]);
+					t = Integer.parseInt(values[2]);
+					d = Integer.parseInt(values[3]);
+					if (g < 1 || v < 1 || t < 1 || d < 0) {
+						throw new IllegalArgumentException("Invalid simulation parameters in " + file);
+					}
+				} else if (count > 3 && count <= 3 + n) {
+					Vertex tempVertex = new Vertex(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+							"" + (count - 3), Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+					vertices.add(tempVertex);
+				} else {
+					Hole hole = holes.get(lastHole);
+					if (count > 3 + n + lastIndex + hole.getSize()) {
+						lastIndex += hole.getSize();
+						lastHole++;
+						hole = holes.get(lastHole);
+					}
+					Vertex tempVertex = new Vertex(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+							"" + (count - 3), Integer.parseInt(values[2]), 0);
+					hole.addVertex(tempVertex);
+				}
+				count++;
+			}
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Missing values in " + file, ex);
+		}
+		return new GalleryModel(new Polygon(vertices, holes), t);
+	}
+
+	// Guards with their routes, from a guard schedule file.
+	public static ArrayList<Guard> loadGuards(File file) throws IOException {
+		ArrayList<Guard> guards = new ArrayList<Guard>();
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			int count = 1;
+			int currentGuard = -1;
+			int lastDef = 0;
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] values = line.replaceAll(" ", "").split(SEPARATOR);
+				if (count == 1) {
+					if (values.length != 1) {
+						throw new IllegalArgumentException("Expected the number of guards on line 1 of " + file);
+					}
+					int g = Integer.parseInt(values[0]);
+					for (int i = 0; i < g; ++i) {
+						guards.add(new Guard());
+					}
+				} else if (count == 2 || count > lastDef + guards.get(currentGuard).getRouteLength() + 1) {
+					if (values.length != 1) {
+						throw new IllegalArgumentException("Expected a route length on line " + count + " of " + file);
+					}
+					currentGuard++;
+					lastDef = count;
+					guards.get(currentGuard).setRouteLength(Integer.parseInt(values[0]));
+				} else {
+					RoutePoint tempPoint = new RoutePoint(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+							Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+					guards.get(currentGuard).addPointToRoute(tempPoint);
+				}
+				count++;
+			}
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Missing values in " + file, ex);
+		}
+		return guards;
+	}
+
+	// Thief with its route, from a thief path file.
+	public static ArrayList<Thief> loadThieves(File file) throws IOException {
+		ArrayList<Thief> thieves = new ArrayList<Thief>();
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			int count = 1;
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] values = line.replaceAll(" ", "").split(SEPARATOR);
+				if (count == 1) {
+					if (values.length != 1) {
+						throw new IllegalArgumentException("Expected the path length on the first line of " + file);
+					}
+					thieves.add(new Thief());
+				} else {
+					RoutePoint tempPoint = new RoutePoint(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+							Integer.parseInt(values[2]), 1);
+					thieves.get(0).addPointToRoute(tempPoint);
+				}
+				count++;
+			}
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Missing values in " + file, ex);
+		}
+		return thieves;
+	}
+}
@@ -1,13 +1,23 @@
 package artgallery;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 
 import artgallery.Actors.Guard;
 import artgallery.Actors.Thief;
 import artgallery.geometricalElements.Edge;
 import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.PolygonOverlay;
+import artgallery.geometricalElements.RoutePoint;
 import artgallery.geometricalElements.Vertex;
 
 public class GalleryModel {
+	// Galleries with at least this many vertices get their visibility from a
+	// preprocessed triangulation instead of a sweep per query.
+	private static final int TRIANGULAR_EXPANSION_THRESHOLD = 64;
+	// Memory budget of the cache of visibility polygons, in bytes.
+	private static final long VISIBILITY_CACHE_BUDGET = 32L << 20;
+
 	private ArrayList<Guard> guards = new ArrayList<Guard>();
 	private ArrayList<Thief> thieves = new ArrayList<Thief>();
 	private Polygon galleryPolygon;
@@ -18,6 +28,20 @@ public class GalleryModel {
 	private boolean triangulation = false;
 	private boolean visibility = false;
 	private int globalTime;
+	// Time of the running simulation, in seconds.
+	private double currentTime;
+	private CachedVisibilityEngine visibilityEngine;
+	private ArrayList<Edge> trapezoidalEdges;
+	private int trapezoidalEdgesVersion;
+	private ShortestPaths shortestPaths;
+	private int shortestPathsVersion;
+	// Visibility of the guards walking along a segment of their route.
+	private IdentityHashMap<Guard, KineticVisibility> kineticViews = new IdentityHashMap<Guard, KineticVisibility>();
+	private int kineticViewsVersion;
+	// Visibility of the guards over the global time, once precomputed, for
+	// the given version of the gallery.
+	private volatile VisibilityTimeline timeline;
+	private volatile int timelineVersion;
 
 	public GalleryModel() {
 		this.setGallery(new Polygon());
@@ -32,8 +56,13 @@ public class GalleryModel {
 		return galleryPolygon;
 	}
 
-	public void setGallery(Polygon galleryPolygon) {
+	public synchronized void setGallery(Polygon galleryPolygon) {
 		this.galleryPolygon = galleryPolygon;
+		this.visibilityEngine = null;
+		this.shortestPaths = null;
+		this.trapezoidalEdges = null;
+		this.kineticViews.clear();
+		this.timeline = null;
 	}
 	public int getGlobalTime() {
 		return globalTime;
@@ -42,20 +71,261 @@ public class GalleryModel {
 	public void setGlobalTime(int globalTime) {
 		this.globalTime = globalTime;
 	}
+
+	public double getCurrentTime() {
+		return currentTime;
+	}
+
+	public void setCurrentTime(double currentTime) {
+		this.currentTime = currentTime;
+	}
 	
+	// Chords of the trapezoidal decomposition, recomputed only when the
+	// gallery changes.
 	public ArrayList<Edge> getTrapezoidalEdges(){
-		GeometricAlgorithms GA = new GeometricAlgorithms();
-		GA.trapezoidalDecomposition(galleryPolygon);
-		return GA.trapezoidalEdges;
+		if (trapezoidalEdges == null || trapezoidalEdgesVersion != galleryPolygon.getVersion()) {
+			GeometricAlgorithms GA = new GeometricAlgorithms();
+			GA.trapezoidalDecomposition(galleryPolygon);
+			trapezoidalEdges = GA.trapezoidalEdges;
+			trapezoidalEdgesVersion = galleryPolygon.getVersion();
+		}
+		return trapezoidalEdges;
 	}
 	
 	public ArrayList<Polygon> computeGuardVisibility(int i) {
-		GeometricAlgorithms GA = new GeometricAlgorithms();
 		Guard guard = this.guards.get(i);
 		Vertex guardPosition = new Vertex(guard.getX(), guard.getY());
-		guard.setVisibilityPolygon(GA.computeVisibilityPolygon(guardPosition, galleryPolygon));
+		guard.setVisibilityPolygon(getVisibilityEngine().computeVisibilityPolygon(guardPosition));
 		return guard.getVisibilityPolygon();
 	}
+
+	// Computes the visibility polygons of all guards at once, in parallel, and
+	// returns them in the order of the guards.
+	public ArrayList<ArrayList<Polygon>> computeGuardsVisibility() {
+		ArrayList<Vertex> guardPositions = new ArrayList<Vertex>();
+		for (Guard guard : guards) {
+			guardPositions.add(new Vertex(guard.getX(), guard.getY()));
+		}
+		ArrayList<ArrayList<Polygon>> guardViews = getVisibilityEngine().computeVisibilityPolygons(guardPositions);
+		for (int i = 0; i < guards.size(); ++i) {
+			guards.get(i).setVisibilityPolygon(guardViews.get(i));
+		}
+		return guardViews;
+	}
+
+	// Computes the visibility polygons of all guards at the given time, in
+	// seconds, following their routes. Once the timeline is precomputed they
+	// are looked up in it. Otherwise standing guards go through the cache of
+	// the visibility engine, while walking guards keep a kinetic polygon per
+	// route segment, which only asks the engine again at its events.
+	public ArrayList<ArrayList<Polygon>> computeGuardsVisibility(double time) {
+		ArrayList<ArrayList<Polygon>> guardViews = new ArrayList<ArrayList<Polygon>>();
+		VisibilityTimeline timeline = getTimeline();
+		if (timeline != null) {
+			for (int i = 0; i < guards.size(); ++i) {
+				guardViews.add(timeline.getVisibilityPolygon(i, time));
+				guards.get(i).setVisibilityPolygon(guardViews.get(i));
+			}
+			return guardViews;
+		}
+		ArrayList<Vertex> standingPositions = new ArrayList<Vertex>();
+		ArrayList<Integer> standingGuards = new ArrayList<Integer>();
+		for (int i = 0; i < guards.size(); ++i) {
+			Guard guard = guards.get(i);
+			ArrayList<RoutePoint> route = guard.getRoutePoints();
+			int index = guard.getRouteIndexAt(time);
+			guardViews.add(null);
+			RoutePoint r1 = index < 0 ? null : route.get(index);
+			RoutePoint r2 = index < 0 || index + 1 == route.size() ? null : route.get(index + 1);
+			if (r2 != null && !r1.toVertex().equals(r2.toVertex())) {
+				KineticVisibility view = kineticView(guard, r1, r2);
+				Polygon region = view.getVisibilityRegion(time);
+				guardViews.set(i, region == null ? new ArrayList<Polygon>()
+						: GeometricAlgorithms.visibilityFan(view.getViewPoint(time), region));
+			} else {
+				kineticViews.remove(guard);
+				Vertex position = guard.getPositionAt(time);
+				standingPositions.add(position == null ? new Vertex(guard.getX(), guard.getY()) : position);
+				standingGuards.add(i);
+			}
+		}
+		ArrayList<ArrayList<Polygon>> standingViews = getVisibilityEngine()
+				.computeVisibilityPolygons(standingPositions);
+		for (int i = 0; i < standingGuards.size(); ++i) {
+			guardViews.set(standingGuards.get(i), standingViews.get(i));
+		}
+		for (int i = 0; i < guards.size(); ++i) {
+			guards.get(i).setVisibilityPolygon(guardViews.get(i));
+		}
+		return guardViews;
+	}
+
+	// Kinetic visibility polygon of a guard walking from r1 to r2, kept until
+	// the guard walks along another segment or the gallery changes.
+	private KineticVisibility kineticView(Guard guard, RoutePoint r1, RoutePoint r2) {
+		if (kineticViewsVersion != galleryPolygon.getVersion()) {
+			kineticViews.clear();
+			kineticViewsVersion = galleryPolygon.getVersion();
+		}
+		KineticVisibility view = kineticViews.get(guard);
+		if (view == null || !view.follows(r1.toVertex(), r2.toVertex(), r1.getTimeStamp(), r2.getTimeStamp())) {
+			view = new KineticVisibility(galleryPolygon, getVisibilityEngine(), r1.toVertex(), r2.toVertex(),
+					r1.getTimeStamp(), r2.getTimeStamp());
+			kineticViews.put(guard, view);
+		}
+		return view;
+	}
+
+	// Visibility polygons of all guards at the given time, in seconds, as
+	// polygons rather than fans of triangles. Guards without a visibility
+	// polygon, standing outside the gallery, are left out.
+	public ArrayList<Polygon> computeGuardsRegions(double time) {
+		ArrayList<Polygon> regions = new ArrayList<Polygon>();
+		VisibilityTimeline timeline = getTimeline();
+		for (int i = 0; i < guards.size(); ++i) {
+			Polygon region;
+			if (timeline != null) {
+				region = timeline.getVisibilityRegion(i, time);
+			} else {
+				Guard guard = guards.get(i);
+				ArrayList<RoutePoint> route = guard.getRoutePoints();
+				int index = guard.getRouteIndexAt(time);
+				RoutePoint r1 = index < 0 ? null : route.get(index);
+				RoutePoint r2 = index < 0 || index + 1 == route.size() ? null : route.get(index + 1);
+				if (r2 != null && !r1.toVertex().equals(r2.toVertex())) {
+					region = kineticView(guard, r1, r2).getVisibilityRegion(time);
+				} else {
+					Vertex position = guard.getPositionAt(time);
+					region = getVisibilityEngine().computeVisibilityRegion(
+							position == null ? new Vertex(guard.getX(), guard.getY()) : position);
+				}
+			}
+			if (region != null) {
+				regions.add(region);
+			}
+		}
+		return regions;
+	}
+
+	// Part of the gallery seen by at least one guard at the given time: the
+	// union of their visibility polygons, clipped to the gallery and its holes.
+	public ArrayList<Polygon> computeCoverage(double time) {
+		return PolygonOverlay.compute(computeGuardsRegions(time), Collections.singletonList(galleryPolygon),
+				PolygonOverlay.INTERSECTION);
+	}
+
+	// Fraction of the area of the gallery seen by at least one guard at the
+	// given time.
+	public double computeCoverageRatio(double time) {
+		double area = PolygonOverlay.area(Collections.singletonList(galleryPolygon));
+		return area == 0 ? 0 : PolygonOverlay.area(computeCoverage(time)) / area;
+	}
+
+	// Regions of the gallery seen by 0, 1, 2, ... guards at the given time,
+	// with their areas.
+	public CoverageMap computeCoverageMap(double time) {
+		return new CoverageMap(galleryPolygon, computeGuardsRegions(time));
+	}
+
+	// Starts computing the visibility timeline of the current guards over the
+	// global time in the background. It is used by computeGuardsVisibility
+	// once done, unless the gallery or the guards changed in the meantime.
+	public void precomputeTimeline() {
+		Polygon gallery = galleryPolygon;
+		int version = gallery.getVersion();
+		ArrayList<Guard> scheduled = guards;
+		VisibilityEngine engine = getVisibilityEngine();
+		int horizon = globalTime;
+		timeline = null;
+		Thread worker = new Thread(() -> {
+			VisibilityTimeline computed = new VisibilityTimeline(gallery, engine, scheduled, horizon);
+			synchronized (this) {
+				if (galleryPolygon == gallery && gallery.getVersion() == version && guards == scheduled) {
+					timelineVersion = version;
+					timeline = computed;
+				}
+			}
+		}, "visibility-timeline");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	// Precomputed visibility timeline, or null if not available yet. A
+	// timeline of a former version of the gallery is dropped.
+	public VisibilityTimeline getTimeline() {
+		VisibilityTimeline timeline = this.timeline;
+		if (timeline != null && timelineVersion != galleryPolygon.getVersion()) {
+			this.timeline = null;
+			return null;
+		}
+		return timeline;
+	}
+
+	// Replaces the guards by static ones placed on the vertices of the gallery
+	// through Fisk's 3-coloring.
+	public ArrayList<Guard> placeGuards() {
+		GeometricAlgorithms GA = new GeometricAlgorithms();
+		setGuards(GA.placeGuards(galleryPolygon));
+		return guards;
+	}
+
+	// Replaces the guards by a near-minimum set of static guards found by
+	// greedy set cover, and returns the optimizer with the guard count and the
+	// coverage it reached.
+	public GuardOptimizer optimizeGuards() {
+		GuardOptimizer optimizer = new GuardOptimizer(galleryPolygon, getVisibilityEngine());
+		GeometricAlgorithms GA = new GeometricAlgorithms();
+		setGuards(GA.staticGuards(optimizer.optimize()));
+		return optimizer;
+	}
+
+	// Intervals during which each thief is in sight of a guard, following the
+	// routes of both, sorted by start time.
+	public ArrayList<DetectionEvent> detectThieves() {
+		DetectionEngine detection = new DetectionEngine(galleryPolygon, getVisibilityEngine());
+		return detection.detect(guards, thieves);
+	}
+
+	// Route of a thief from an art piece to an exit that no guard sees, moving
+	// at the given speed and out before the global time ends, or null if the
+	// guards leave no such route.
+	public ArrayList<RoutePoint> planEscape(double speed) {
+		EscapePlanner planner = new EscapePlanner(galleryPolygon, getVisibilityEngine(), guards, speed, globalTime);
+		return planner.plan();
+	}
+
+	// Shortest path queries inside the current gallery, built on first use
+	// and again once the gallery is modified.
+	public ShortestPaths getShortestPaths() {
+		if (shortestPaths == null || shortestPathsVersion != galleryPolygon.getVersion()) {
+			shortestPaths = new ShortestPaths(galleryPolygon);
+			shortestPathsVersion = galleryPolygon.getVersion();
+		}
+		return shortestPaths;
+	}
+
+	// Visibility engine of the current gallery, chosen by its size, behind a
+	// cache of the polygons it computed.
+	public VisibilityEngine getVisibilityEngine() {
+		return getVisibilityCache();
+	}
+
+	public CachedVisibilityEngine getVisibilityCache() {
+		if (visibilityEngine == null) {
+			visibilityEngine = new CachedVisibilityEngine(GalleryModel::createVisibilityEngine, galleryPolygon,
+					VISIBILITY_CACHE_BUDGET);
+		}
+		return visibilityEngine;
+	}
+
+	// Engine suited to the size of the gallery, built again by the cache once
+	// the gallery is modified.
+	private static VisibilityEngine createVisibilityEngine(Polygon gallery) {
+		if (gallery.getVerticesAndHoles().size() >= TRIANGULAR_EXPANSION_THRESHOLD) {
+			return new TriangularExpansionVisibilityEngine(gallery);
+		}
+		return new SweepVisibilityEngine(gallery);
+	}
 	
 	public void toggleActors() {
 		this.actors = this.actors == true ? false : true;
@@ -99,8 +369,10 @@ public class GalleryModel {
 		return guards;
 	}
 
-	public void setGuards(ArrayList<Guard> guards) {
+	public synchronized void setGuards(ArrayList<Guard> guards) {
 		this.guards = guards;
+		this.kineticViews.clear();
+		this.timeline = null;
 	}
 
 	public ArrayList<Thief> getThieves() {
@@ -6,16 +6,15 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Polygon;
 import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -95,12 +94,6 @@ public class GalleryView extends JPanel implements MouseListener, MouseMotionLis
 				drawTriangulation(g2d, gallery.getGallery().computeTriangulation());				
 			}
 
-			// If selected, display the visibility polygon of the guards.
-			// Currently not fully implemented - only showing the polygon for
-			// vertex 1.
-			// Perhaps tweak in the future to work on a "clicked guard" to make
-			// interactive & avoid overlapping.
-			
 
 			// Draw the gallery bounding edges.
 			for (Edge edge : gallery.getGallery().getEdges()) {
@@ -144,16 +137,15 @@ public class GalleryView extends JPanel implements MouseListener, MouseMotionLis
 					drawThief(g2d, thief);
 				}
 			}
+			// If selected, display the visibility polygons of all guards.
 			if (gallery.showVisibility()) {
-				//Vertex viewer = gallery.getGallery().getVertices().get(5);
-				ArrayList<artgallery.geometricalElements.Polygon> guardView = gallery.computeGuardVisibility(0);
 				Color copBlue = new Color(255, 200, 10, 120);
-				
-				for (artgallery.geometricalElements.Polygon visibleTriangle : guardView) {
-					drawArea(g2d, visibleTriangle, copBlue);
-					visibleTriangle.getVertices().forEach(v -> drawVertex(g2d, v, 8, Color.ORANGE));
+				for (ArrayList<artgallery.geometricalElements.Polygon> guardView : gallery.computeGuardsVisibility(gallery.getCurrentTime())) {
+					for (artgallery.geometricalElements.Polygon visibleTriangle : guardView) {
+						drawArea(g2d, visibleTriangle, copBlue);
+						visibleTriangle.getVertices().forEach(v -> drawVertex(g2d, v, 8, Color.ORANGE));
+					}
 				}
-				
 			}
 			
 			for(Edge e : this.gallery.getTrapezoidalEdges()) {
@@ -220,22 +212,12 @@ public class GalleryView extends JPanel implements MouseListener, MouseMotionLis
 	}
 
 	private void drawArea(Graphics2D g2d, artgallery.geometricalElements.Polygon galleryPolygon, Color c) {
-		// Create a Java polygon and load the vertices contained in the gallery
-		// (non-Java) Polygon.
-		Polygon p = new Polygon();
-		for (Vertex v : galleryPolygon.getVertices()) {
-			p.addPoint((int)(v.getX()), (int)(v.getY()));
-		}
-		Area surface = new Area(p);
-
-		// Subtract all the holes from the gallery surface
+		// Outline of the polygon and of its holes, filled with the even-odd
+		// rule so that the holes are left out.
+		Path2D.Double surface = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+		addRing(surface, galleryPolygon.getVertices());
 		for (Hole hole : galleryPolygon.getHoles()) {
-			Polygon h = new Polygon();
-			for (Vertex v : hole.getVertices()) {
-				h.addPoint((int)(v.getX()), (int)(v.getY()));
-			}
-			Area currentHole = new Area(h);
-			surface.subtract(currentHole);
+			addRing(surface, hole.getVertices());
 		}
 
 		if (c == null) {
@@ -246,6 +228,17 @@ public class GalleryView extends JPanel implements MouseListener, MouseMotionLis
 		g2d.fill(surface);
 	}
 
+	private void addRing(Path2D.Double path, ArrayList<Vertex> ring) {
+		if (ring.isEmpty()) {
+			return;
+		}
+		path.moveTo(ring.get(0).getX(), ring.get(0).getY());
+		for (int i = 1; i < ring.size(); ++i) {
+			path.lineTo(ring.get(i).getX(), ring.get(i).getY());
+		}
+		path.closePath();
+	}
+
 	private void drawTriangulation(Graphics2D g2d, ArrayList<artgallery.geometricalElements.Polygon> triangulation) {
 		for (int i = 0 ; i < triangulation.size() ; ++i) {
 			Vertex v = new Vertex(triangulation.get(i).getCentroid()[0], triangulation.get(i).getCentroid()[1]);
@@ -258,14 +251,22 @@ public class GalleryView extends JPanel implements MouseListener, MouseMotionLis
 	}
 
 	private void drawGuard(Graphics2D g2d, Guard guard) {
-		g2d.scale(0.2, -0.2);
-		g2d.drawImage(guardIcon, guard.getX() * 5 - 50, -guard.getY() * 5 - 50, null);
-		g2d.scale(5, -5);
+		drawActor(g2d, guardIcon, guard, guard.getX(), guard.getY());
 	}
 
 	private void drawThief(Graphics2D g2d, Thief thief) {
+		drawActor(g2d, thiefIcon, thief, thief.getX(), thief.getY());
+	}
+
+	// Draws the icon of an actor where its route takes it at the current time
+	// of the simulation, or at the given position if it has no route. Positions
+	// are only interpolated here, when drawn.
+	private void drawActor(Graphics2D g2d, BufferedImage icon, Actor actor, int x, int y) {
+		Vertex position = actor.getPositionAt(gallery.getCurrentTime());
+		double actorX = position == null ? x : position.getX();
+		double actorY = position == null ? y : position.getY();
 		g2d.scale(0.2, -0.2);
-		g2d.drawImage(thiefIcon, thief.getX() * 5 - 50, -thief.getY() * 5 - 50, null);
+		g2d.drawImage(icon, (int) Math.round(actorX * 5) - 50, (int) Math.round(-actorY * 5) - 50, null);
 		g2d.scale(5, -5);
 	}
 
@@ -1,332 +1,791 @@
 package artgallery;
 
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Stack;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import artgallery.Actors.Guard;
 import artgallery.dataStructures.AVLTree;
+import artgallery.dataStructures.DCEL;
+import artgallery.dataStructures.VisibilityGraph;
 import artgallery.geometricalElements.Edge;
 import artgallery.geometricalElements.Hole;
 import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Trapezoid;
 import artgallery.geometricalElements.Vertex;
 
 public final class GeometricAlgorithms {
+	// Vertex types of the monotone partitioning sweep.
+	private static final int START_VERTEX = 0;
+	private static final int SPLIT_VERTEX = 1;
+	private static final int END_VERTEX = 2;
+	private static final int MERGE_VERTEX = 3;
+	private static final int REGULAR_VERTEX = 4;
+
 	public ArrayList<Edge> trapezoidalEdges = new ArrayList<Edge>();
 
 	public GeometricAlgorithms() {
 	}
 
-	// Public method to trigger the triangulation of a complex polygon through
-	// the method proposed by Seidel here: http://gamma.cs.unc.edu/SEIDEL/#FIG
-	// (Input) Complex Polygon -> Trapezoidal Decomposition -> Monotone Polygons
-	// -> (Output) Monotonic Triangulation.
+	// Public method to trigger the triangulation of a complex polygon.
+	// (Input) Complex Polygon -> Monotone Polygons (plane sweep) -> (Output)
+	// Monotonic Triangulation.
 	public ArrayList<Polygon> computeTriangulation(Polygon polygon) {
+		// Return a triangle (Polygon) for each face of the triangulation.
+		ArrayList<Polygon> triangulation = new ArrayList<Polygon>();
+		for (DCEL.Face face : computeTriangulationDCEL(polygon).getInnerFaces()) {
+			triangulation.add(face.toPolygon());
+		}
+		return triangulation;
+	}
+
+	// Triangulates the polygon into a doubly-connected edge list, whose inner
+	// faces are the triangles and whose twin half-edges link every triangle to
+	// its neighbors.
+	public DCEL computeTriangulationDCEL(Polygon polygon) {
 		// Create a deep copy of the polygon object to avoid modifying the
 		// original gallery.
 		Polygon polygonCopy = polygon.clone();
 
-		// Decompose the complex (copied) gallery polygon into trapezoids.
-		ArrayList<Polygon> trapezoids = trapezoidalDecomposition(polygonCopy);
-		// Obtain a set of monotone polygons out of said trapezoids.
-		ArrayList<Polygon> monotonePolygons = monotonePolygonization(trapezoids);
-		// Triangulate each of said monotone polygons.
-		ArrayList<Polygon> triangulation = new ArrayList<Polygon>();
-		for (Polygon mp : monotonePolygons) {
-			triangulation.addAll(triangulateMonotonePolygon(mp));
+		// Split the complex (copied) gallery polygon into y-monotone pieces.
+		DCEL subdivision = monotonePolygonization(polygonCopy);
+		// Triangulate each of said monotone pieces in place.
+		for (DCEL.Face face : subdivision.getInnerFaces()) {
+			triangulateMonotonePolygon(subdivision, face);
 		}
+		return subdivision;
+	}
 
-		// Finally return the list containing a triangle (Polygon) for each
-		// triangle in the triangulation.
-		return triangulation;
+	// Seidel's randomized incremental trapezoidal decomposition. The edges of
+	// the gallery and its holes are inserted in random order into a trapezoidal
+	// map, whose history DAG is used to find the trapezoids crossed by every new
+	// edge. The map is cached on the polygon, where it also answers point
+	// location queries. Runs in O(n log n) expected time and returns the
+	// trapezoids covering the interior of the polygon. The horizontal chords
+	// separating them are also stored in the global list of trapezoidal edges
+	// for display purposes.
+	public ArrayList<Trapezoid> trapezoidalDecomposition(Polygon fullPolygon) {
+		ArrayList<Trapezoid> trapezoids = fullPolygon.getTrapezoidMap().getInsideTrapezoids();
+
+		for (Trapezoid trapezoid : trapezoids) {
+			Edge chord = trapezoid.getBottomChord();
+			if (chord != null) {
+				trapezoidalEdges.add(chord);
+			}
+		}
+		return trapezoids;
 	}
 
-	// Not fully implemented - for now simply setting the global list of
-	// trapezoidal edges
-	// for display debugging purposes.
-
-	public ArrayList<Polygon> trapezoidalDecomposition(Polygon fullPolygon) {
-		ArrayList<Polygon> trapezoids = new ArrayList<Polygon>();
-		ArrayList<Vertex> polygonVertices = fullPolygon.getVerticesAndHoles();
-		ArrayList<Edge> polygonEdges = fullPolygon.getEdgesAndHoles();
-		// ArrayList<Edge> trapezoidalEdges = new ArrayList<Edge>();
-
-		// Get all vertices and sort in descending Y-order.
-		polygonVertices.sort((v1, v2) -> Double.compare(v2.getY(), v1.getY()));
-
-		// Make a huge sweepline (edge) to test for intersections.
-		for (Vertex vertex : polygonVertices) {
-			Edge sweepLine = new Edge(new Vertex((int) (-Math.floor(fullPolygon.getMaxDistance())), vertex.getY()),
-					new Vertex((int) (Math.ceil(fullPolygon.getMaxDistance())), vertex.getY()));
-
-			// Check for edge intersections
-
-			PriorityQueue<Vertex> intersectionsLeft = new PriorityQueue<Vertex>(
-					(v1, v2) -> Double.compare(computeDistance(vertex, v1), computeDistance(vertex, v2)));
-			PriorityQueue<Vertex> intersectionsRight = new PriorityQueue<Vertex>(
-					(v1, v2) -> Double.compare(computeDistance(vertex, v1), computeDistance(vertex, v2)));
-
-			for (Edge edge : polygonEdges) {
-				Vertex intersection = getIntersectionPoint(sweepLine, edge);
-				// When a different, valid intersection occurs, store the
-				// intersection point
-				if (intersection != null && !intersection.equals(vertex)) {
-					if (intersection.getX() < vertex.getX()) {
-						intersectionsLeft.add(intersection);
-					} else if (intersection.getX() > vertex.getX()) {
-						intersectionsRight.add(intersection);
-					}
-				}
+	/*
+	 * Implementation of "MakeMonotone(P)". From the book
+	 * "Computational Geometry: Algorithms and Applications - Third Edition" by
+	 * M. Berg , page 53. Input: Polygon P, possibly with holes. Output: A
+	 * partitioning of P into y-monotone polygons, as the inner faces of a DCEL.
+	 * The status of the sweep line is kept in an AVL tree, so the whole sweep
+	 * runs in O(n log n).
+	 */
+	private DCEL monotonePolygonization(Polygon polygon) {
+		// Orient every boundary so that the interior of the gallery lies to its
+		// left, and link each vertex to its neighbors along that orientation.
+		ArrayList<ArrayList<Vertex>> rings = interiorLeftRings(polygon);
+		IdentityHashMap<Vertex, Vertex> next = new IdentityHashMap<Vertex, Vertex>();
+		IdentityHashMap<Vertex, Vertex> prev = new IdentityHashMap<Vertex, Vertex>();
+		ArrayList<Vertex> events = new ArrayList<Vertex>();
+		for (ArrayList<Vertex> ring : rings) {
+			for (int i = 0; i < ring.size(); ++i) {
+				next.put(ring.get(i), ring.get((i + 1) % ring.size()));
+				prev.put(ring.get((i + 1) % ring.size()), ring.get(i));
 			}
+			events.addAll(ring);
+		}
 
-			Vertex current = new Vertex(vertex.getX(), vertex.getY());
-			// Consider only the two closest ones, as the trapezoidal
-			if (intersectionsLeft.size() > 0) {
-				// Make a non-final edge to test whether it would be valid
-				Vertex intersection = intersectionsLeft.poll();
-				Edge tempEdge = new Edge(intersection, current);
-
-				// Check if the middlepoint of said edge is within the polygon
-				if (insidePolygon(tempEdge.getMidpoint(), fullPolygon)) {
-					intersection = fullPolygon.getMatchingVertex(intersection) == null ? intersection
-							: fullPolygon.getMatchingVertex(intersection);
-					// Check if the midpoint is inside the polygon
-					if (!vertex.isNeighbor(intersection)) {
-						if (!trapezoidalEdges.contains(tempEdge)) {
-							trapezoidalEdges.add(tempEdge);
-						}
-					}
-				}
+		// Classify the vertices and sort them from top to bottom.
+		IdentityHashMap<Vertex, Integer> types = new IdentityHashMap<Vertex, Integer>();
+		for (Vertex v : events) {
+			types.put(v, classifyVertex(prev.get(v), v, next.get(v)));
+		}
+		events.sort((v1, v2) -> isBelow(v1, v2) ? 1 : (isBelow(v2, v1) ? -1 : 0));
+
+		// The status holds the edges intersecting the sweep line that have the
+		// interior of the polygon to their right, keyed by their start vertex.
+		AVLTree<StatusEdge> status = new AVLTree<StatusEdge>();
+		IdentityHashMap<Vertex, StatusEdge> statusEdges = new IdentityHashMap<Vertex, StatusEdge>();
+		ArrayList<Vertex[]> diagonals = new ArrayList<Vertex[]>();
+
+		for (Vertex v : events) {
+			int type = types.get(v);
+			StatusEdge previousEdge = statusEdges.get(prev.get(v));
+			if (type == START_VERTEX) {
+				insertStatusEdge(status, statusEdges, v, next.get(v));
+			} else if (type == END_VERTEX) {
+				connectToMergeHelper(diagonals, types, previousEdge, v);
+				status.remove(previousEdge);
+			} else if (type == SPLIT_VERTEX) {
+				StatusEdge leftEdge = status.floor(new StatusEdge(v));
+				diagonals.add(new Vertex[] { v, leftEdge.helper });
+				leftEdge.helper = v;
+				insertStatusEdge(status, statusEdges, v, next.get(v));
+			} else if (type == MERGE_VERTEX) {
+				connectToMergeHelper(diagonals, types, previousEdge, v);
+				status.remove(previousEdge);
+				StatusEdge leftEdge = status.floor(new StatusEdge(v));
+				connectToMergeHelper(diagonals, types, leftEdge, v);
+				leftEdge.helper = v;
+			} else if (isBelow(next.get(v), v)) {
+				// Regular vertex with the interior of the polygon to its right.
+				connectToMergeHelper(diagonals, types, previousEdge, v);
+				status.remove(previousEdge);
+				insertStatusEdge(status, statusEdges, v, next.get(v));
+			} else {
+				// Regular vertex with the interior of the polygon to its left.
+				StatusEdge leftEdge = status.floor(new StatusEdge(v));
+				connectToMergeHelper(diagonals, types, leftEdge, v);
+				leftEdge.helper = v;
 			}
+		}
 
-			if (intersectionsRight.size() > 0) {
-				// Make a non-final edge to test whether it would be valid
-				Vertex intersection = intersectionsRight.poll();
-				Edge tempEdge = new Edge(current, intersection);
-
-				// Check if the middlepoint of said edge is within the polygon
-				if (insidePolygon(tempEdge.getMidpoint(), fullPolygon)) {
-					intersection = fullPolygon.getMatchingVertex(intersection) == null ? intersection
-							: fullPolygon.getMatchingVertex(intersection);
-					// Check if the midpoint is inside the polygon
-					if (!vertex.isNeighbor(intersection)) {
-						if (!trapezoidalEdges.contains(tempEdge)) {
-							trapezoidalEdges.add(tempEdge);
-						}
-					}
-				}
+		// Insert the diagonals connecting the holes to the rest of the boundary
+		// first, so that every later diagonal splits a face without holes.
+		DCEL subdivision = new DCEL(rings);
+		ArrayList<Vertex[]> splittingDiagonals = new ArrayList<Vertex[]>();
+		for (Vertex[] diagonal : diagonals) {
+			if (subdivision.areConnected(diagonal[0], diagonal[1])) {
+				splittingDiagonals.add(diagonal);
+			} else {
+				subdivision.addDiagonal(diagonal[0], diagonal[1]);
 			}
 		}
+		for (Vertex[] diagonal : splittingDiagonals) {
+			subdivision.addDiagonal(diagonal[0], diagonal[1]);
+		}
+		return subdivision;
+	}
 
-		trapezoids.add(fullPolygon);
-		return trapezoids;
+	private void insertStatusEdge(AVLTree<StatusEdge> status, IdentityHashMap<Vertex, StatusEdge> statusEdges,
+			Vertex start, Vertex end) {
+		StatusEdge edge = new StatusEdge(start, end);
+		edge.helper = start;
+		statusEdges.put(start, edge);
+		status.insert(edge);
+	}
 
+	// Inserts a diagonal from the vertex to the helper of the edge when said
+	// helper is a merge vertex.
+	private void connectToMergeHelper(ArrayList<Vertex[]> diagonals, IdentityHashMap<Vertex, Integer> types,
+			StatusEdge edge, Vertex v) {
+		if (types.get(edge.helper) == MERGE_VERTEX) {
+			diagonals.add(new Vertex[] { v, edge.helper });
+		}
 	}
 
-	// Not implemented - for now simply returning an empty list
-	private ArrayList<Polygon> monotonePolygonization(ArrayList<Polygon> trapezoid) {
-		ArrayList<Polygon> monotonePolygons = new ArrayList<Polygon>();
+	// Classifies a vertex of a boundary oriented with the interior to its left
+	// as a start, split, end, merge or regular vertex.
+	private int classifyVertex(Vertex prev, Vertex v, Vertex next) {
+		boolean convex = GeometricKernel.orientation(prev, v, next) > 0;
+		if (isBelow(prev, v) && isBelow(next, v)) {
+			return convex ? START_VERTEX : SPLIT_VERTEX;
+		}
+		if (isBelow(v, prev) && isBelow(v, next)) {
+			return convex ? END_VERTEX : MERGE_VERTEX;
+		}
+		return REGULAR_VERTEX;
+	}
 
-		return monotonePolygons;
+	// Returns the boundaries of the polygon oriented so that its interior lies
+	// to their left: the outer boundary counter-clockwise and the holes
+	// clockwise.
+	static ArrayList<ArrayList<Vertex>> interiorLeftRings(Polygon polygon) {
+		ArrayList<ArrayList<Vertex>> rings = new ArrayList<ArrayList<Vertex>>();
+		ArrayList<Vertex> outer = new ArrayList<Vertex>(polygon.getVertices());
+		if (signedArea(outer) < 0) {
+			Collections.reverse(outer);
+		}
+		rings.add(outer);
+		for (Hole h : polygon.getHoles()) {
+			ArrayList<Vertex> hole = new ArrayList<Vertex>(h.getVertices());
+			if (signedArea(hole) > 0) {
+				Collections.reverse(hole);
+			}
+			rings.add(hole);
+		}
+		return rings;
 	}
 
 	/*
 	 * Implementation of "TriangulateMonotonePolygon(polygon P as DCEL)". From
 	 * the course slides "3 - Art Gallery Triangulation", page 158. Input:
-	 * Y-Monotone polygon "p". Output: ArrayList of triangular polygons.
+	 * Y-Monotone face of a DCEL. Output: The face is triangulated in place by
+	 * inserting its diagonals into the DCEL, in linear time.
 	 */
-	private ArrayList<Polygon> triangulateMonotonePolygon(Polygon monotonePolygon) {
-		ArrayList<Vertex> triangulationVertices = monotonePolygon.getVertices();
-		ArrayList<Edge> triangulationEdges = monotonePolygon.getEdges();
+	private void triangulateMonotonePolygon(DCEL subdivision, DCEL.Face face) {
+		ArrayList<DCEL.HalfEdge> boundary = face.getHalfEdges();
+		int n = boundary.size();
+		if (n <= 3) {
+			return;
+		}
 
-		// Sorts the vertices on Y-Descending order.
-		Collections.sort(triangulationVertices, (v1, v2) -> Double.compare(v2.getY(), v1.getY()));
-		monotonePolygon.constructChains();
+		// Outgoing half-edge of every vertex along the part of the face that
+		// still has to be triangulated.
+		IdentityHashMap<Vertex, DCEL.HalfEdge> outgoing = new IdentityHashMap<Vertex, DCEL.HalfEdge>();
+		int top = 0;
+		int bottom = 0;
+		for (int i = 0; i < n; ++i) {
+			Vertex v = boundary.get(i).getOrigin();
+			outgoing.put(v, boundary.get(i));
+			if (isBelow(boundary.get(top).getOrigin(), v)) {
+				top = i;
+			}
+			if (isBelow(v, boundary.get(bottom).getOrigin())) {
+				bottom = i;
+			}
+		}
+
+		// Merge the left chain (counter-clockwise from the top) and the right
+		// chain (clockwise from the top) into a single list sorted from top to
+		// bottom.
+		ArrayList<Vertex> sorted = new ArrayList<Vertex>();
+		IdentityHashMap<Vertex, Boolean> leftChain = new IdentityHashMap<Vertex, Boolean>();
+		sorted.add(boundary.get(top).getOrigin());
+		int left = (top + 1) % n;
+		int right = (top + n - 1) % n;
+		while (sorted.size() < n) {
+			Vertex l = boundary.get(left).getOrigin();
+			Vertex r = boundary.get(right).getOrigin();
+			if (right == bottom || (left != bottom && isBelow(r, l))) {
+				sorted.add(l);
+				leftChain.put(l, true);
+				left = (left + 1) % n;
+			} else {
+				sorted.add(r);
+				leftChain.put(r, false);
+				right = (right + n - 1) % n;
+			}
+		}
 
 		// Implementation translation from the book.
 		Stack<Vertex> s = new Stack<Vertex>();
-		s.push(triangulationVertices.get(0));
-		s.push(triangulationVertices.get(1));
-
-		// Begin generating the internal edges
-		for (int j = 2; j < triangulationVertices.size() - 1; ++j) {
-			Vertex uj = triangulationVertices.get(j);
-
-			// HERE IS WHERE THE CHAIN CHECK SHOULD BE ADDED <---
-			if (!s.peek().isNeighbor(uj)) {
-				while (s.size() > 1) {
-					Vertex v = s.pop();
-					triangulationEdges.add(new Edge(uj, v));
+		s.push(sorted.get(0));
+		s.push(sorted.get(1));
+		for (int j = 2; j < n - 1; ++j) {
+			Vertex uj = sorted.get(j);
+			boolean ujLeft = leftChain.get(uj);
+			if (leftChain.get(s.peek()) != ujLeft) {
+				// Opposite chains: connect uj to every vertex on the stack but the
+				// bottom one, starting from the bottom so each diagonal cuts off
+				// a single triangle.
+				ArrayList<Vertex> popped = new ArrayList<Vertex>();
+				while (!s.isEmpty()) {
+					popped.add(s.pop());
 				}
-				s.pop();
-				s.push(triangulationVertices.get(j - 1));
+				for (int k = popped.size() - 2; k >= 0; --k) {
+					insertTriangulationDiagonal(subdivision, outgoing, uj, popped.get(k));
+				}
+				s.push(sorted.get(j - 1));
 				s.push(uj);
 			} else {
-				Vertex v = s.pop();
-				// Must implement "sees"
-				while (s.size() > 0) {
-					v = s.pop();
-					triangulationEdges.add(new Edge(uj, v));
+				// Same chain: connect uj to the vertices on the stack it can see.
+				Vertex last = s.pop();
+				while (!s.isEmpty()) {
+					int turn = GeometricKernel.orientation(uj, s.peek(), last);
+					if (ujLeft ? turn <= 0 : turn >= 0) {
+						break;
+					}
+					last = s.pop();
+					insertTriangulationDiagonal(subdivision, outgoing, uj, last);
 				}
-				s.push(v);
+				s.push(last);
 				s.push(uj);
 			}
 		}
 
+		// Connect the lowest vertex to every vertex on the stack but the first
+		// and the last one.
+		Vertex un = sorted.get(n - 1);
 		s.pop();
 		while (s.size() > 1) {
-			Vertex v = s.pop();
-			triangulationEdges.add(new Edge(triangulationVertices.get(triangulationVertices.size() - 1), v));
-		}
-
-		// Finally convert the loose list of edges into solid triangular
-		// polygons and return.
-		ArrayList<Polygon> triangles = constructTriangles(triangulationEdges);
-		return triangles;
-	}
-
-	// Iterates through all of the loose edges in the list and attempts to put
-	// together triangles by matching their vertices. Unfortunately O(n^3) as
-	// all edges have to be checked in each of the levels required (triangles =
-	// 3 levels). Perhaps could be improved through filtering, a better
-	// algorithm, or better usage of references later on.
-	private ArrayList<Polygon> constructTriangles(ArrayList<Edge> edges) {
-		ArrayList<Polygon> triangles = new ArrayList<Polygon>();
-
-		for (Edge firstEdge : edges) {
-			Vertex firstVertex = firstEdge.getStartVertex();
-			for (Edge secondEdge : edges) {
-				if (!secondEdge.equals(firstEdge) && secondEdge.containsVertex(firstVertex)) {
-					Vertex secondVertex = secondEdge.getOtherVertex(firstVertex);
-					for (Edge thirdEdge : edges) {
-						if (!thirdEdge.equals(secondEdge) && !thirdEdge.equals(firstEdge)
-								&& thirdEdge.containsVertex(secondVertex)) {
-							if (thirdEdge.containsVertex(firstEdge.getOtherVertex(firstVertex))) {
-								ArrayList<Edge> triangleEdges = new ArrayList<Edge>();
-								triangleEdges.add(firstEdge);
-								triangleEdges.add(secondEdge);
-								triangleEdges.add(thirdEdge);
-
-								Polygon triangle = new Polygon(triangleEdges);
-
-								if (!triangles.stream().anyMatch(t -> t.equals(triangle))) {
-									System.out.println("Adding triangle: " + firstEdge.toString() + " - "
-											+ secondEdge.toString() + " - " + thirdEdge.toString());
-									triangles.add(triangle);
-								}
-							}
-						}
+			insertTriangulationDiagonal(subdivision, outgoing, un, s.pop());
+		}
+	}
+
+	// Inserts a diagonal cutting off a triangle from the face being
+	// triangulated, and keeps track of the half-edges bounding the rest of it.
+	private void insertTriangulationDiagonal(DCEL subdivision, IdentityHashMap<Vertex, DCEL.HalfEdge> outgoing,
+			Vertex v1, Vertex v2) {
+		DCEL.HalfEdge diagonal = subdivision.connect(outgoing.get(v1), outgoing.get(v2));
+		if (diagonal.getNext().getNext().getNext() == diagonal) {
+			outgoing.put(v2, diagonal.getTwin());
+		} else {
+			outgoing.put(v1, diagonal);
+		}
+	}
+
+	// Visibility polygon of a viewpoint inside the gallery, returned as the
+	// fan of triangles joining the viewpoint to each of its edges.
+	public ArrayList<Polygon> computeVisibilityPolygon(Vertex viewPoint, Polygon p) {
+		return visibilityFan(viewPoint, computeVisibilityRegion(viewPoint, p));
+	}
+
+	/*
+	 * Implementation of Fisk's proof of the art gallery theorem. From the book
+	 * "Computational Geometry: Algorithms and Applications - Third Edition" by
+	 * M. Berg , page 48. Input: Polygon P, possibly with holes. Output: A set of
+	 * vertices of P seeing all of it. The triangulation is 3-colored through a
+	 * depth-first search of its dual graph, every triangle getting the one color
+	 * missing from the edge it was entered by, and the smallest color class is
+	 * returned: at most floor(n/3) vertices for a simple polygon. With holes the
+	 * dual graph has cycles, so only the edges of its spanning tree are crossed,
+	 * which cuts the gallery open along one diagonal per hole. A vertex on such a
+	 * cut may get a different color on each side and then belongs to all of
+	 * them, giving at most floor((n + 2h)/3) guards. Linear in the size of the
+	 * triangulation.
+	 */
+	public ArrayList<Vertex> placeGuardVertices(Polygon polygon) {
+		DCEL triangulation = polygon.computeTriangulationDCEL();
+		ArrayList<DCEL.Face> triangles = triangulation.getInnerFaces();
+		ArrayList<Vertex> guards = new ArrayList<Vertex>();
+		if (triangles.isEmpty()) {
+			return guards;
+		}
+
+		// Color of the origin of each of the three half-edges of a triangle,
+		// starting from its outer component, indexed by face.
+		int[] colors = new int[3 * triangulation.getFaces().size()];
+		Arrays.fill(colors, -1);
+		Stack<DCEL.Face> stack = new Stack<DCEL.Face>();
+		int root = 3 * triangles.get(0).getIndex();
+		colors[root] = 0;
+		colors[root + 1] = 1;
+		colors[root + 2] = 2;
+		stack.push(triangles.get(0));
+		while (!stack.isEmpty()) {
+			DCEL.Face triangle = stack.pop();
+			DCEL.HalfEdge h = triangle.getOuterComponent();
+			for (int i = 0; i < 3; ++i, h = h.getNext()) {
+				DCEL.HalfEdge twin = h.getTwin();
+				DCEL.Face neighbor = twin.getFace();
+				if (!neighbor.isInside() || colors[3 * neighbor.getIndex()] >= 0) {
+					continue;
+				}
+				// The shared edge keeps its colors and the opposite vertex gets
+				// the remaining one.
+				int origin = colors[3 * triangle.getIndex() + i];
+				int destination = colors[3 * triangle.getIndex() + (i + 1) % 3];
+				DCEL.HalfEdge g = neighbor.getOuterComponent();
+				for (int j = 0; j < 3; ++j, g = g.getNext()) {
+					int color = 3 - origin - destination;
+					if (g == twin) {
+						color = destination;
+					} else if (g == twin.getNext()) {
+						color = origin;
 					}
+					colors[3 * neighbor.getIndex() + j] = color;
+				}
+				stack.push(neighbor);
+			}
+		}
+
+		// Colors received by every vertex, as a bit mask, and the size of each
+		// color class.
+		IdentityHashMap<Vertex, Integer> received = new IdentityHashMap<Vertex, Integer>(2 * triangles.size());
+		int[] classSize = new int[3];
+		for (DCEL.Face triangle : triangles) {
+			DCEL.HalfEdge h = triangle.getOuterComponent();
+			for (int i = 0; i < 3; ++i, h = h.getNext()) {
+				int color = colors[3 * triangle.getIndex() + i];
+				Integer mask = received.get(h.getOrigin());
+				int bits = mask == null ? 0 : mask;
+				if ((bits & (1 << color)) == 0) {
+					received.put(h.getOrigin(), bits | (1 << color));
+					classSize[color]++;
 				}
 			}
 		}
-		return triangles;
+		int smallest = 0;
+		for (int c = 1; c < 3; ++c) {
+			if (classSize[c] < classSize[smallest]) {
+				smallest = c;
+			}
+		}
+		// The triangulation works on a copy, so return the polygon's own
+		// vertices.
+		for (DCEL.Face triangle : triangles) {
+			DCEL.HalfEdge h = triangle.getOuterComponent();
+			for (int i = 0; i < 3; ++i, h = h.getNext()) {
+				int bits = received.get(h.getOrigin());
+				if ((bits & (1 << smallest)) != 0) {
+					guards.add(polygon.getMatchingVertex(h.getOrigin()));
+					received.put(h.getOrigin(), bits & ~(1 << smallest));
+				}
+			}
+		}
+		return guards;
 	}
 
-	// Simple visibility algorithm based on testing each vertex around the viewpoint.
-	// Not finished and somewhat buggy on edge-cases.
-	public ArrayList<Polygon> computeVisibilityPolygon(Vertex viewPoint, Polygon p) {
-		// Array of triangles comprising the visibility polygon
+	// Places a static guard at every vertex chosen by placeGuardVertices.
+	public ArrayList<Guard> placeGuards(Polygon polygon) {
+		return staticGuards(placeGuardVertices(polygon));
+	}
+
+	// Static guards standing at the given positions, rounded to integers.
+	public ArrayList<Guard> staticGuards(List<Vertex> positions) {
+		ArrayList<Guard> guards = new ArrayList<Guard>();
+		for (Vertex v : positions) {
+			Guard guard = new Guard();
+			guard.setRouteLength(1);
+			guard.addPointToRoute(new RoutePoint((int) Math.round(v.getX()), (int) Math.round(v.getY()), 0, 0));
+			guards.add(guard);
+		}
+		return guards;
+	}
+
+	// Splits a visibility polygon into the triangles joining the viewpoint to
+	// each of its edges, leaving out the edges seen edge-on.
+	public static ArrayList<Polygon> visibilityFan(Vertex viewPoint, Polygon region) {
 		ArrayList<Polygon> visiblePolygons = new ArrayList<Polygon>();
+		if (region == null) {
+			return visiblePolygons;
+		}
+		ArrayList<Vertex> boundary = region.getVertices();
+		for (int i = 0; i < boundary.size(); ++i) {
+			Vertex v1 = boundary.get(i);
+			Vertex v2 = boundary.get((i + 1) % boundary.size());
+			if (GeometricKernel.orientation(viewPoint, v1, v2) > 0) {
+				ArrayList<Vertex> visTriangleVertices = new ArrayList<Vertex>();
+				visTriangleVertices.add(new Vertex(viewPoint.getX(), viewPoint.getY()));
+				visTriangleVertices.add(v1);
+				visTriangleVertices.add(v2);
+				visiblePolygons.add(new Polygon(visTriangleVertices));
+			}
+		}
+		return visiblePolygons;
+	}
 
-		// Array containing all points in the scene but the view point, and
-		// sorted on angle+proximity.
-		ArrayList<Vertex> visibleVertices = p.getVerticesAndHoles();
-		visibleVertices.remove(viewPoint);
-		visibleVertices.sort((v1, v2) -> compareAngleAndProximity(viewPoint, v1, v2));
+	// Whether the point lies in the wedge at the viewpoint turning
+	// counter-clockwise from the direction of right to the direction of left,
+	// either strictly inside it or also on its two rays.
+	public static boolean inWedge(Vertex viewPoint, Vertex right, Vertex left, Vertex v, boolean closed) {
+		int fromRight = GeometricKernel.orientation(viewPoint, right, v);
+		int fromLeft = GeometricKernel.orientation(viewPoint, left, v);
+		boolean afterRight = closed ? fromRight >= 0 : fromRight > 0;
+		boolean beforeLeft = closed ? fromLeft <= 0 : fromLeft < 0;
+		if (GeometricKernel.orientation(viewPoint, right, left) > 0) {
+			return afterRight && beforeLeft;
+		}
+		return afterRight || beforeLeft;
+	}
 
-		// Extend sightlines (edges) from the viewpoint into each of the scene
-		// vertices.
-		ArrayList<Edge> sightLines = new ArrayList<Edge>();
-		for (Vertex w : visibleVertices) {
-			double angle = computeCCWAngle(w, viewPoint);
-			int endX = (int) (viewPoint.getX() + (Math.cos(Math.toRadians(angle)) * p.getMaxDistance()));
-			int endY = (int) (viewPoint.getY() + (Math.sin(Math.toRadians(angle)) * p.getMaxDistance()));
-			Vertex endOfLine = new Vertex(endX, endY);
-			sightLines.add(new Edge(viewPoint, endOfLine));
-			System.out.println(w.getId() + " - " + angle);
+	// Vertices of a visibility polygon after the vertex at the position of
+	// right and before the next one at the position of left, in
+	// counter-clockwise order, or null if the polygon misses either of them.
+	public static ArrayList<Vertex> chainBetween(List<Vertex> region, Vertex right, Vertex left) {
+		int n = region.size();
+		for (int i = 0; i < n; ++i) {
+			if (samePosition(region.get(i), right)) {
+				ArrayList<Vertex> chain = new ArrayList<Vertex>();
+				for (int j = (i + 1) % n; j != i; j = (j + 1) % n) {
+					if (samePosition(region.get(j), left)) {
+						return chain;
+					}
+					chain.add(region.get(j));
+				}
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Rotational sweep visibility algorithm by Asano. Input: Point q inside
+	 * polygon P, possibly with holes, or on its boundary. Output: The
+	 * visibility polygon of q as a counter-clockwise polygon. The obstacle
+	 * edges crossed by the rotating ray are kept in an AVL tree ordered by
+	 * their distance to q, so the whole sweep runs in O(n log n).
+	 */
+	public Polygon computeVisibilityRegion(Vertex viewPoint, Polygon p) {
+		return computeVisibilityRegion(viewPoint, interiorLeftRings(p));
+	}
+
+	// Rotational sweep over the boundaries of a gallery, oriented with its
+	// interior to their left, so they can be shared between queries.
+	Polygon computeVisibilityRegion(Vertex viewPoint, ArrayList<ArrayList<Vertex>> rings) {
+
+		// When the viewpoint lies on the boundary only the wedge of directions
+		// pointing into the interior is swept, from "first" to "last".
+		Vertex first = null;
+		Vertex last = null;
+		ArrayList<Vertex> events = new ArrayList<Vertex>();
+		IdentityHashMap<Vertex, ArrayList<SweepSegment>> starting = new IdentityHashMap<Vertex, ArrayList<SweepSegment>>();
+		IdentityHashMap<Vertex, ArrayList<SweepSegment>> ending = new IdentityHashMap<Vertex, ArrayList<SweepSegment>>();
+		ArrayList<SweepSegment> segments = new ArrayList<SweepSegment>();
+		for (ArrayList<Vertex> ring : rings) {
+			for (int i = 0; i < ring.size(); ++i) {
+				Vertex v1 = ring.get(i);
+				Vertex v2 = ring.get((i + 1) % ring.size());
+				if (!samePosition(v1, viewPoint)) {
+					events.add(v1);
+					starting.put(v1, new ArrayList<SweepSegment>());
+					ending.put(v1, new ArrayList<SweepSegment>());
+				} else if (first == null) {
+					first = v2;
+					last = ring.get((i + ring.size() - 1) % ring.size());
+				}
+				if (first == null && !samePosition(v2, viewPoint) && onSegment(viewPoint, v1, v2)) {
+					first = v2;
+					last = v1;
+				}
+			}
+		}
+		if (events.isEmpty()) {
+			return null;
+		}
+
+		// Segments seen edge-on (including those through the viewpoint) hide
+		// nothing and are left out of the sweep.
+		for (ArrayList<Vertex> ring : rings) {
+			for (int i = 0; i < ring.size(); ++i) {
+				Vertex v1 = ring.get(i);
+				Vertex v2 = ring.get((i + 1) % ring.size());
+				int turn = GeometricKernel.orientation(viewPoint, v1, v2);
+				if (turn != 0) {
+					SweepSegment segment = turn > 0 ? new SweepSegment(viewPoint, v1, v2)
+							: new SweepSegment(viewPoint, v2, v1);
+					starting.get(segment.start).add(segment);
+					ending.get(segment.end).add(segment);
+					segments.add(segment);
+				}
+			}
+		}
+
+		// Sort the events counter-clockwise around the viewpoint, starting from
+		// the direction of the first one.
+		Vertex reference = first != null ? first : events.get(0);
+		events.sort((v1, v2) -> compareAngle(viewPoint, reference, v1, v2));
+
+		// The status starts with the segments crossed by the ray right before the
+		// reference direction.
+		AVLTree<SweepSegment> status = new AVLTree<SweepSegment>();
+		for (SweepSegment segment : segments) {
+			if (GeometricKernel.orientation(viewPoint, segment.start, reference) > 0
+					&& GeometricKernel.orientation(viewPoint, reference, segment.end) >= 0) {
+				status.insert(segment);
+			}
 		}
 
-		ArrayList<Edge> obstacles = p.getEdgesAndHoles();
 		ArrayList<Vertex> visibilityPolygonVertices = new ArrayList<Vertex>();
-		for (Edge sightLine : sightLines) {
-			PriorityQueue<Vertex> queue = new PriorityQueue<Vertex>(
-					(v1, v2) -> Double.compare(computeDistance(viewPoint, v1), computeDistance(viewPoint, v2)));
-			for (Edge obstacle : obstacles) {
-				Vertex intersection = getIntersectionPoint(sightLine, obstacle);
-				if (intersection != null) {
-					visibilityPolygonVertices.add(intersection);
+		if (first != null) {
+			visibilityPolygonVertices.add(new Vertex(viewPoint.getX(), viewPoint.getY()));
+		}
+		int i = 0;
+		while (i < events.size()) {
+			// Handle all of the events along the same ray at once.
+			Vertex direction = events.get(i);
+			int j = i;
+			while (j < events.size() && compareAngle(viewPoint, reference, direction, events.get(j)) == 0) {
+				++j;
+			}
+			boolean isLast = first != null && compareAngle(viewPoint, reference, direction, last) == 0;
+			SweepSegment closestBefore = status.findMin();
+			if (isLast) {
+				addVisibilityVertex(visibilityPolygonVertices, rayHit(viewPoint, direction, closestBefore));
+				break;
+			}
+			for (int k = i; k < j; ++k) {
+				for (SweepSegment segment : ending.get(events.get(k))) {
+					status.remove(segment);
+				}
+			}
+			for (int k = i; k < j; ++k) {
+				for (SweepSegment segment : starting.get(events.get(k))) {
+					status.insert(segment);
+				}
+			}
+			SweepSegment closestAfter = status.findMin();
+			if (closestBefore != closestAfter) {
+				if (i > 0 || first == null) {
+					addVisibilityVertex(visibilityPolygonVertices, rayHit(viewPoint, direction, closestBefore));
 				}
+				addVisibilityVertex(visibilityPolygonVertices, rayHit(viewPoint, direction, closestAfter));
 			}
+			i = j;
 		}
 
-		for (int i = 0; i < visibilityPolygonVertices.size() - 1; ++i) {
-			ArrayList<Vertex> visTriangleVertices = new ArrayList<Vertex>();
-			visTriangleVertices.add(viewPoint);
-			visTriangleVertices.add(visibilityPolygonVertices.get(i));
-			visTriangleVertices.add(visibilityPolygonVertices.get((i + 1)));
-			Polygon visibleTriangle = new Polygon(visTriangleVertices);
-			visiblePolygons.add(visibleTriangle);
+		int size = visibilityPolygonVertices.size();
+		if (size > 1 && samePosition(visibilityPolygonVertices.get(0), visibilityPolygonVertices.get(size - 1))) {
+			visibilityPolygonVertices.remove(size - 1);
 		}
+		if (visibilityPolygonVertices.size() < 3) {
+			return null;
+		}
+		return new Polygon(visibilityPolygonVertices);
+	}
 
-		return visiblePolygons;
+	// Appends a vertex to the visibility polygon unless it repeats the last one.
+	static void addVisibilityVertex(ArrayList<Vertex> vertices, Vertex v) {
+		if (v != null && (vertices.isEmpty() || !samePosition(vertices.get(vertices.size() - 1), v))) {
+			vertices.add(v);
+		}
+	}
+
+	// Point where the ray from the viewpoint through the direction vertex hits
+	// the segment, or null if there is no segment.
+	private Vertex rayHit(Vertex viewPoint, Vertex direction, SweepSegment segment) {
+		if (segment == null) {
+			return null;
+		}
+		return rayIntersection(viewPoint, direction, segment.start, segment.end);
+	}
+
+	// Point where the ray from the origin through the direction vertex meets
+	// the line through v1 and v2. Endpoints lying on the ray are returned
+	// exactly.
+	static Vertex rayIntersection(Vertex origin, Vertex direction, Vertex v1, Vertex v2) {
+		for (Vertex endpoint : new Vertex[] { v1, v2 }) {
+			if (GeometricKernel.orientation(origin, direction, endpoint) == 0) {
+				return new Vertex(endpoint.getX(), endpoint.getY());
+			}
+		}
+		double dx = direction.getX() - origin.getX();
+		double dy = direction.getY() - origin.getY();
+		double t = GeometricKernel.cross(v1, v2, origin)
+				/ ((v2.getY() - v1.getY()) * dx - (v2.getX() - v1.getX()) * dy);
+		return new Vertex(origin.getX() + t * dx, origin.getY() + t * dy);
+	}
+
+	// Compares the counter-clockwise angles of two vertices around the origin,
+	// measured from the direction of the reference vertex. Vertices along the
+	// same ray compare as equal.
+	private static int compareAngle(Vertex origin, Vertex reference, Vertex v1, Vertex v2) {
+		int half1 = angularHalf(origin, reference, v1);
+		int half2 = angularHalf(origin, reference, v2);
+		if (half1 != half2) {
+			return half1 - half2;
+		}
+		int turn = GeometricKernel.orientation(origin, v1, v2);
+		if (turn == 0) {
+			// Same half-plane and collinear, so either the same direction or
+			// both exactly opposite to the reference.
+			return 0;
+		}
+		return turn > 0 ? -1 : 1;
+	}
+
+	// Whether the vertex lies in the half-plane of angles [0, 180) from the
+	// reference direction (0) or in [180, 360) (1).
+	private static int angularHalf(Vertex origin, Vertex reference, Vertex v) {
+		int turn = GeometricKernel.orientation(origin, reference, v);
+		if (turn != 0) {
+			return turn > 0 ? 0 : 1;
+		}
+		return GeometricKernel.sameDirection(origin, reference, v) ? 0 : 1;
+	}
+
+	static boolean samePosition(Vertex v1, Vertex v2) {
+		return v1.getX() == v2.getX() && v1.getY() == v2.getY();
+	}
+
+	// Whether the vertex lies on the segment between v1 and v2.
+	private static boolean onSegment(Vertex v, Vertex v1, Vertex v2) {
+		return GeometricKernel.orientation(v1, v2, v) == 0 && Math.min(v1.getX(), v2.getX()) <= v.getX()
+				&& v.getX() <= Math.max(v1.getX(), v2.getX()) && Math.min(v1.getY(), v2.getY()) <= v.getY()
+				&& v.getY() <= Math.max(v1.getY(), v2.getY());
 	}
 
 	/*
-	 * Implementation of "VisibleVertices(P, S)". From the book
+	 * Implementation of "VisibilityGraph(S)". From the book
 	 * "Computational Geometry: Algorithms and Applications - Third Edition" by
-	 * M. Berg , page 328. Input: Point P, set of polygonal obstacles S. Output:
-	 * The set of visible vertices from P.
+	 * M. Berg , page 326. Input: Polygon P, possibly with holes. Output: The
+	 * visibility graph of the vertices of P. Runs VisibleVertices from every
+	 * vertex for O(n^2 log n) in total, optionally spreading the vertices over
+	 * the available processors.
 	 */
-	// Not currently working and the subroutine wasn't implemented.
-	private ArrayList<Vertex> visibleVertices(Vertex v, Polygon p) {
-		// 1) Sort the obstacle vertices according to the clockwise angle that
-		// the half-line from p to each vertex makes with the positive x-axis.
-		ArrayList<Vertex> obstacleVertices = p.getVerticesAndHoles();
-		obstacleVertices.sort((v1, v2) -> compareAngleAndProximity(v, v1, v2));
+	public VisibilityGraph computeVisibilityGraph(Polygon p, boolean parallel) {
+		IdentityHashMap<Vertex, Vertex[]> boundary = boundaryNeighbors(p);
+		ArrayList<Vertex> vertices = p.getVerticesAndHoles();
+		ArrayList<ArrayList<Vertex>> visible = new ArrayList<ArrayList<Vertex>>(
+				Collections.nCopies(vertices.size(), (ArrayList<Vertex>) null));
+		IntStream sources = IntStream.range(0, vertices.size());
+		(parallel ? sources.parallel() : sources).forEach(i -> visible.set(i, visibleVertices(vertices.get(i), boundary)));
+		return new VisibilityGraph(vertices, visible);
+	}
 
-		// Find the obstacle edges that are properly intersected by p parallel
-		// to the x-axis and store them in a
-		// balanced search tree in the order they intersect p.
-		AVLTree<Edge> tree = new AVLTree<Edge>();
-		Edge sweepLine = new Edge(v, new Vertex((int) (Math.ceil(p.getMaxDistance())), v.getY()));
+	/*
+	 * Implementation of "VisibleVertices(P, S)". From the book
+	 * "Computational Geometry: Algorithms and Applications - Third Edition" by
+	 * M. Berg , page 328. Input: Point P inside polygon S or on its boundary.
+	 * Output: The set of vertices of S (and its holes) visible from P.
+	 */
+	public ArrayList<Vertex> visibleVertices(Vertex v, Polygon p) {
+		return visibleVertices(v, boundaryNeighbors(p));
+	}
 
-		ArrayList<Edge> intersectedEdges = new ArrayList<Edge>();
-		for (Edge obstacleEdge : p.getEdges()) {
-			if (getIntersectionPoint(sweepLine, obstacleEdge) != null) {
-				intersectedEdges.add(obstacleEdge);
+	private ArrayList<Vertex> visibleVertices(Vertex v, IdentityHashMap<Vertex, Vertex[]> boundary) {
+		// Vertex of the gallery at the position of p, if any, whose interior
+		// wedge limits what p sees.
+		Vertex source = null;
+		ArrayList<Vertex> obstacleVertices = new ArrayList<Vertex>();
+		for (Vertex w : boundary.keySet()) {
+			if (samePosition(w, v)) {
+				source = w;
+			} else {
+				obstacleVertices.add(w);
 			}
 		}
-		intersectedEdges.sort((e1, e2) -> compareIntersectionDistance(v, sweepLine, e1, e2));
-		for (Edge edge : intersectedEdges) {
-			tree.insert(edge);
+		ArrayList<Vertex> visibleVertices = new ArrayList<Vertex>();
+		if (obstacleVertices.isEmpty()) {
+			return visibleVertices;
 		}
 
-		ArrayList<Vertex> visibleVertices = new ArrayList<Vertex>();
+		// 1) Sort the obstacle vertices according to the counter-clockwise angle
+		// the half-line from p to each vertex makes with a reference direction,
+		// closest vertices first on ties.
+		Vertex reference = obstacleVertices.get(0);
+		obstacleVertices.sort((v1, v2) -> {
+			int result = compareAngle(v, reference, v1, v2);
+			return result != 0 ? result : Double.compare(squaredDistance(v, v1), squaredDistance(v, v2));
+		});
+
+		// 2) Store the obstacle edges properly intersected by the half-line in a
+		// balanced search tree, in the order they intersect it. Edges seen
+		// edge-on hide nothing and are left out.
+		IdentityHashMap<Vertex, SweepSegment> segments = new IdentityHashMap<Vertex, SweepSegment>();
+		AVLTree<SweepSegment> status = new AVLTree<SweepSegment>();
+		for (Vertex w : boundary.keySet()) {
+			Vertex next = boundary.get(w)[1];
+			int turn = GeometricKernel.orientation(v, w, next);
+			if (turn != 0) {
+				SweepSegment segment = turn > 0 ? new SweepSegment(v, w, next) : new SweepSegment(v, next, w);
+				segments.put(w, segment);
+				if (GeometricKernel.orientation(v, segment.start, reference) > 0
+						&& GeometricKernel.orientation(v, reference, segment.end) >= 0) {
+					status.insert(segment);
+				}
+			}
+		}
 
+		// 3) Treat the vertices in order, updating the tree with their incident
+		// edges after testing their visibility.
+		boolean previousVisible = false;
 		for (int i = 0; i < obstacleVertices.size(); ++i) {
-			Vertex vi = obstacleVertices.get(i);
-			if (isVisible(obstacleVertices, i)) {
-				visibleVertices.add(vi);
-
-				List<Edge> incidentEdges = (List<Edge>) intersectedEdges.stream().filter(e -> e.containsVertex(vi))
-						.collect(Collectors.toList());
-				for (Edge e : incidentEdges) {
-					// Get the other vertex (not "vi") of the incident edge
-					Vertex otherVertex = e.getOtherVertex(vi);
-					// If the orientation if clockwise w.r.t. the sweepline, add
-					// the edge to the tree.
-					if (orientation(v, vi, otherVertex) == 1) {
-						tree.insert(e);
-					}
-					// If the orientation if counter-clockwise w.r.t. the
-					// sweepline, remove the edge to the tree.
-					if (orientation(v, vi, otherVertex) == 2) {
-						tree.remove(e);
-					}
+			Vertex wi = obstacleVertices.get(i);
+			previousVisible = isVisible(v, source, obstacleVertices, i, previousVisible, status, boundary);
+			if (previousVisible) {
+				visibleVertices.add(wi);
+			}
+			SweepSegment[] incident = { segments.get(boundary.get(wi)[0]), segments.get(wi) };
+			for (SweepSegment segment : incident) {
+				if (segment != null && segment.end == wi) {
+					status.remove(segment);
+				}
+			}
+			for (SweepSegment segment : incident) {
+				if (segment != null && segment.start == wi) {
+					status.insert(segment);
 				}
 			}
 		}
@@ -336,12 +795,89 @@ public final class GeometricAlgorithms {
 	/*
 	 * Implementation of "Visible(W)" subroutine. From the book
 	 * "Computational Geometry: Algorithms and Applications - Third Edition" by
-	 * M. Berg , page 329. Input: Point W. Output: The set of visible vertices
-	 * from P.
+	 * M. Berg , page 329. Input: Vertex w_i of the sorted list W, the status
+	 * tree right before w_i and whether w_(i-1) was visible. Output: Whether
+	 * w_i is visible from P. The segment may touch the boundary, but has to
+	 * leave both of its endpoints into the interior of the gallery.
 	 */
-	private boolean isVisible(ArrayList<Vertex> w, int i) {
-		//Not currently implemented as I switched to a simpler algorithm.
-		return true;
+	private boolean isVisible(Vertex v, Vertex source, ArrayList<Vertex> w, int i, boolean previousVisible,
+			AVLTree<SweepSegment> status, IdentityHashMap<Vertex, Vertex[]> boundary) {
+		Vertex wi = w.get(i);
+		if (!inInteriorWedge(wi, v, boundary) || (source != null && !inInteriorWedge(source, wi, boundary))) {
+			return false;
+		}
+
+		// When w_(i-1) lies on the segment only the part beyond it is left to
+		// test, provided the segment goes straight through it.
+		Vertex from = v;
+		if (i > 0 && compareAngle(v, w.get(0), w.get(i - 1), wi) == 0) {
+			if (!previousVisible || !inInteriorWedge(w.get(i - 1), wi, boundary)) {
+				return false;
+			}
+			from = w.get(i - 1);
+		}
+
+		// Search the closest edge crossing the half-line beyond "from", which
+		// blocks the view if it separates "from" and w_i.
+		SweepSegment e = status.findMin();
+		while (e != null && touchesBefore(e, v, wi, from)) {
+			e = status.higher(e);
+		}
+		if (e == null || e.start == wi || e.end == wi) {
+			return true;
+		}
+		int side1 = GeometricKernel.orientation(e.start, e.end, from);
+		int side2 = GeometricKernel.orientation(e.start, e.end, wi);
+		return !((side1 > 0 && side2 < 0) || (side1 < 0 && side2 > 0));
+	}
+
+	// Whether the edge only touches the half-line from v through w at a vertex
+	// no further away than "from".
+	private boolean touchesBefore(SweepSegment e, Vertex v, Vertex w, Vertex from) {
+		double limit = dot(v, w, from);
+		for (Vertex endpoint : new Vertex[] { e.start, e.end }) {
+			if (GeometricKernel.orientation(v, w, endpoint) == 0 && dot(v, w, endpoint) <= limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Whether the direction from a vertex of the gallery towards the target
+	// lies in the closed angle the interior of the gallery makes at said vertex.
+	private boolean inInteriorWedge(Vertex v, Vertex target, IdentityHashMap<Vertex, Vertex[]> boundary) {
+		Vertex prev = boundary.get(v)[0];
+		Vertex next = boundary.get(v)[1];
+		int toTarget = GeometricKernel.orientation(v, next, target);
+		int fromTarget = GeometricKernel.orientation(v, target, prev);
+		if (GeometricKernel.orientation(v, next, prev) > 0) {
+			return toTarget >= 0 && fromTarget >= 0;
+		}
+		return toTarget >= 0 || fromTarget >= 0;
+	}
+
+	// Previous and next vertex of every vertex of the gallery and its holes,
+	// along boundaries oriented with the interior to their left.
+	private IdentityHashMap<Vertex, Vertex[]> boundaryNeighbors(Polygon p) {
+		IdentityHashMap<Vertex, Vertex[]> boundary = new IdentityHashMap<Vertex, Vertex[]>();
+		for (ArrayList<Vertex> ring : interiorLeftRings(p)) {
+			for (int i = 0; i < ring.size(); ++i) {
+				boundary.put(ring.get(i),
+						new Vertex[] { ring.get((i + ring.size() - 1) % ring.size()), ring.get((i + 1) % ring.size()) });
+			}
+		}
+		return boundary;
+	}
+
+	private static double squaredDistance(Vertex v1, Vertex v2) {
+		double dx = v1.getX() - v2.getX();
+		double dy = v1.getY() - v2.getY();
+		return dx * dx + dy * dy;
+	}
+
+	// Dot product of the vectors from v1 to v2 and from v1 to v3.
+	private static double dot(Vertex v1, Vertex v2, Vertex v3) {
+		return (v2.getX() - v1.getX()) * (v3.getX() - v1.getX()) + (v2.getY() - v1.getY()) * (v3.getY() - v1.getY());
 	}
 
 	// Computes simple euclidian distance between two vertices.
@@ -371,136 +907,208 @@ public final class GeometricAlgorithms {
 		}
 		return result;
 	}
-	
-	
-	// Finds the intersection point between two edges (or null if there is none)
-	//and returns it as a new Vertex.
-	private Vertex getIntersectionPoint(Edge e1, Edge e2) {
-		double x1 = e1.getStartVertex().getX();
-		double y1 = e1.getStartVertex().getY();
-		double x2 = e1.getEndVertex().getX();
-		double y2 = e1.getEndVertex().getY();
-
-		double x3 = e2.getStartVertex().getX();
-		double y3 = e2.getStartVertex().getY();
-		double x4 = e2.getEndVertex().getX();
-		double y4 = e2.getEndVertex().getY();
-
-		double ax = x2 - x1;
-		double ay = y2 - y1;
-		double bx = x4 - x3;
-		double by = y4 - y3;
-
-		double denominator = ax * by - ay * bx;
-
-		if (denominator == 0)
-			if (e1.getStartVertex().equals(e2.getStartVertex()) || e1.getStartVertex().equals(e2.getEndVertex())) {
-				return e1.getStartVertex();
-			} else if (e1.getEndVertex().equals(e2.getStartVertex()) || e1.getEndVertex().equals(e2.getEndVertex())) {
-				return e1.getEndVertex();
-			} else {
-				return null;
-			}
-
-		double cx = x3 - x1;
-		double cy = y3 - y1;
 
-		double t = (cx * by - cy * bx) / (denominator);
-		if (t < 0 || t > 1)
-			return null;
+	/*
+	 * Implementation of Andrew's monotone chain convex hull algorithm. Input: A
+	 * set of vertices. Output: The vertices of their convex hull in
+	 * counter-clockwise order, without collinear ones. Runs in O(n log n).
+	 */
+	public ArrayList<Vertex> computeConvexHull(List<Vertex> vertices) {
+		ArrayList<Vertex> sorted = new ArrayList<Vertex>(vertices);
+		sorted.sort((v1, v2) -> v1.getX() != v2.getX() ? Double.compare(v1.getX(), v2.getX())
+				: Double.compare(v1.getY(), v2.getY()));
+		if (sorted.size() < 3) {
+			return sorted;
+		}
+		// Lower hull from left to right, then upper hull from right to left.
+		ArrayList<Vertex> hull = new ArrayList<Vertex>();
+		for (int pass = 0; pass < 2; ++pass) {
+			int chainStart = hull.size();
+			for (int i = 0; i < sorted.size(); ++i) {
+				Vertex v = sorted.get(pass == 0 ? i : sorted.size() - 1 - i);
+				while (hull.size() >= chainStart + 2
+						&& GeometricKernel.orientation(hull.get(hull.size() - 2), hull.get(hull.size() - 1), v) <= 0) {
+					hull.remove(hull.size() - 1);
+				}
+				hull.add(v);
+			}
+			// The last vertex of each chain starts the other one.
+			hull.remove(hull.size() - 1);
+		}
+		return hull;
+	}
 
-		double u = (cx * ay - cy * ax) / (denominator);
-		if (u < 0 || u > 1)
-			return null;
+	/*
+	 * Implementation of the rotating calipers by M. Shamos. Input: A convex
+	 * polygon given by its vertices in counter-clockwise order. Output: Its
+	 * diameter, the largest distance between two of its vertices. Every
+	 * antipodal pair is visited once, for O(n) in total.
+	 */
+	public double computeDiameter(List<Vertex> hull) {
+		int n = hull.size();
+		if (n < 2) {
+			return 0;
+		}
+		if (n == 2) {
+			return computeDistance(hull.get(0), hull.get(1));
+		}
+		double diameter = 0;
+		int j = 1;
+		for (int i = 0; i < n; ++i) {
+			Vertex v1 = hull.get(i);
+			Vertex v2 = hull.get((i + 1) % n);
+			// Advance the opposite caliper while it gets further from the edge.
+			while (turn(v1, v2, hull.get(j), hull.get((j + 1) % n)) > 0) {
+				j = (j + 1) % n;
+			}
+			diameter = Math.max(diameter, squaredDistance(v1, hull.get(j)));
+			diameter = Math.max(diameter, squaredDistance(v2, hull.get(j)));
+		}
+		return Math.sqrt(diameter);
+	}
 
-		Vertex intersection = new Vertex((x1 + t * ax), (y1 + t * ay));
-		return intersection;
+	// Orientation of the direction from w1 to w2 relative to the one from v1 to
+	// v2.
+	private static int turn(Vertex v1, Vertex v2, Vertex w1, Vertex w2) {
+		return GeometricKernel.orientation(0, 0, v2.getX() - v1.getX(), v2.getY() - v1.getY(), w2.getX() - w1.getX(),
+				w2.getY() - w1.getY());
 	}
 	
-	// Computes the distance between a vertex "v" and the intersection point of two edges "e1" and "e2".
-	// Useful to discern what intersections in a sweep-line are closed to the origin point. 
-	private double getIntersectionDistance(Vertex v, Edge e1, Edge e2) {
-		double x1, x2, x3, x4, y1, y2, y3, y4;
-
-		x1 = e1.getStartVertex().getX();
-		y1 = e1.getStartVertex().getY();
-		x2 = e1.getEndVertex().getX();
-		y2 = e1.getEndVertex().getY();
-		x3 = e2.getStartVertex().getX();
-		y3 = e2.getStartVertex().getY();
-		x4 = e2.getEndVertex().getX();
-		y4 = e2.getEndVertex().getY();
-
-		double x = ((x1 * y2 - y1 * x2) * (x3 - x4) - (x1 - x2) * (x3 * y4 - y3 * x4))
-				/ ((x1 - x2) * (y3 - y4) - (y1 - y2) * (x3 - x4));
-		double y = ((x1 * y2 - y1 * x2) * (y3 - y4) - (y1 - y2) * (x3 * y4 - y3 * x4))
-				/ ((x1 - x2) * (y3 - y4) - (y1 - y2) * (x3 - x4));
-		return Math.sqrt(Math.pow(y - v.getY(), 2) + Math.pow((x - v.getX()), 2));
-	}
-
-	// Given an origin point "v" and a segment "e" coming out of it, compare the distance from said point
-	// to the intersection points of two other segments with said segment.
-	private int compareIntersectionDistance(Vertex v, Edge e, Edge e1, Edge e2) {
-		return Double.compare(getIntersectionDistance(v, e, e1), getIntersectionDistance(v, e, e2));
-	}
-
-	// Computes a bounding box - Not currently used but might be useful at some point.
-	private Polygon computeBoundingBox(Polygon p) {
-		double minX, minY, maxX, maxY;
-		minX = minY = Integer.MAX_VALUE;
-		maxX = maxY = Integer.MIN_VALUE;
-
-		for (Vertex v : p.getVertices()) {
-			if (v.getX() > maxX)
-				maxX = v.getX();
-			if (v.getX() < minX)
-				minX = v.getX();
-			if (v.getY() > maxY)
-				maxY = v.getY();
-			if (v.getY() < minY)
-				minY = v.getY();
-		}
-		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
-		vertices.add(new Vertex(maxX, maxY));
-		vertices.add(new Vertex(maxX, minY));
-		vertices.add(new Vertex(minX, minY));
-		vertices.add(new Vertex(minX, maxY));
-		Polygon boundingBox = new Polygon(vertices);
-		return boundingBox;
+	// Computes the signed area of a closed ring of vertices through the shoelace
+	// formula. Positive for counter-clockwise rings and negative for clockwise ones.
+	public static double signedArea(List<Vertex> ring) {
+		double area = 0;
+		for (int i = 0; i < ring.size(); ++i) {
+			Vertex v1 = ring.get(i);
+			Vertex v2 = ring.get((i + 1) % ring.size());
+			area += v1.getX() * v2.getY() - v2.getX() * v1.getY();
+		}
+		return area / 2;
 	}
-	
-	// Uses the Java AWT.Polygon class to check whether a point falls within a polygon.
-	// First considers the bounding polygon, and subsequently checks for each hole polygon.
-	private boolean insidePolygon(Vertex v, Polygon p) {
-		java.awt.Polygon polygon = new java.awt.Polygon();
-		p.getVertices().forEach(i -> polygon.addPoint((int) (i.getX()), (int) (i.getY())));
 
-		// Construct the "hole" polygons.
-		ArrayList<java.awt.Polygon> holes = new ArrayList<java.awt.Polygon>();
-		for (Hole h : p.getHoles()) {
-			java.awt.Polygon hole = new java.awt.Polygon();
-			h.getVertices().forEach(i -> hole.addPoint((int) (i.getX()), (int) (i.getY())));
-			holes.add(hole);
+	// Whether the point lies inside the ring or on its boundary, through an
+	// exact crossing number test.
+	public static boolean ringContains(List<Vertex> ring, Vertex v) {
+		boolean inside = false;
+		for (int i = 0; i < ring.size(); ++i) {
+			Vertex a = ring.get(i);
+			Vertex b = ring.get((i + 1) % ring.size());
+			int side = GeometricKernel.orientation(a, b, v);
+			if (side == 0 && Math.min(a.getX(), b.getX()) <= v.getX() && v.getX() <= Math.max(a.getX(), b.getX())
+					&& Math.min(a.getY(), b.getY()) <= v.getY() && v.getY() <= Math.max(a.getY(), b.getY())) {
+				return true;
+			}
+			if ((a.getY() > v.getY()) != (b.getY() > v.getY()) && (b.getY() > v.getY() ? side > 0 : side < 0)) {
+				inside = !inside;
+			}
 		}
-		boolean inHole = holes.stream().anyMatch(h -> h.contains(v.getX(), v.getY()));
-		
-		// If the point is inside the main polygon, and inside no hole, then return true.
-		return polygon.contains((v.getX()), (v.getY())) && !inHole;
+		return inside;
 	}
 
 	private boolean areColinear(Vertex v1, Vertex v2, Vertex v3) {
-		double area = v1.getX() * (v2.getY() - v3.getY()) + v2.getX() * (v3.getY() - v1.getY())
-				+ v3.getX() * (v1.getY() - v2.getY());
-		return (area == 0);
+		return GeometricKernel.collinear(v1, v2, v3);
 	}
 
-	private int orientation(Vertex p, Vertex q, Vertex r) {
-		double val = (q.getY() - p.getY()) * (r.getX() - q.getX()) - (q.getX() - p.getX()) * (r.getY() - q.getY());
-		if (val < 0) {
-			return 0; // colinear
-		} else {
-			return (val > 0) ? 1 : 2; // clock or counterclock wise
+	// Sweep order of the vertices from bottom to top. Vertices at the same
+	// height are ordered as if the plane was slightly rotated, so the one
+	// further to the right is considered to be lower.
+	private static boolean isBelow(Vertex v1, Vertex v2) {
+		return v1.getY() < v2.getY() || (v1.getY() == v2.getY() && v1.getX() > v2.getX());
+	}
+
+	// Edge in the status of the monotone partitioning sweep, ordered from left
+	// to right along the sweep line. An edge without end vertex is a probe used
+	// to search for the edge directly left of a vertex.
+	private static class StatusEdge implements Comparable<StatusEdge> {
+		private Vertex upper;
+		private Vertex lower;
+		private Vertex helper;
+
+		StatusEdge(Vertex probe) {
+			this.upper = probe;
 		}
 
+		StatusEdge(Vertex start, Vertex end) {
+			this.upper = isBelow(start, end) ? end : start;
+			this.lower = isBelow(start, end) ? start : end;
+		}
+
+		// Positive when the vertex lies to the left of this edge.
+		private int side(Vertex v) {
+			return GeometricKernel.orientation(lower, upper, v);
+		}
+
+		@Override
+		public int compareTo(StatusEdge other) {
+			if (this == other) {
+				return 0;
+			}
+			if (this.lower == null) {
+				return other.side(this.upper) < 0 ? 1 : -1;
+			}
+			// Test the edge whose upper endpoint was reached last against the
+			// other one, falling back to its lower endpoint when they touch.
+			if (isBelow(this.upper, other.upper)) {
+				int side = other.side(this.upper);
+				if (side == 0) {
+					side = other.side(this.lower);
+				}
+				return side > 0 ? -1 : 1;
+			}
+			int side = this.side(other.upper);
+			if (side == 0) {
+				side = this.side(other.lower);
+			}
+			return side > 0 ? 1 : -1;
+		}
+	}
+
+	// Obstacle edge in the status of the rotational visibility sweep, oriented
+	// counter-clockwise around the viewpoint. Edges are ordered by their
+	// distance to the viewpoint along any ray crossing both of them, which is
+	// well defined since the edges of a polygon do not cross.
+	private static class SweepSegment implements Comparable<SweepSegment> {
+		private Vertex viewPoint;
+		private Vertex start;
+		private Vertex end;
+
+		SweepSegment(Vertex viewPoint, Vertex start, Vertex end) {
+			this.viewPoint = viewPoint;
+			this.start = start;
+			this.end = end;
+		}
+
+		// Whether the segment lies on the same side of the line through the
+		// other segment as the viewpoint, or on the opposite one (0 if it crosses
+		// said line).
+		private int sideOf(SweepSegment other) {
+			int sideViewPoint = GeometricKernel.orientation(other.start, other.end, viewPoint);
+			int side1 = GeometricKernel.orientation(other.start, other.end, start) * sideViewPoint;
+			int side2 = GeometricKernel.orientation(other.start, other.end, end) * sideViewPoint;
+			if (side1 >= 0 && side2 >= 0 && side1 + side2 > 0) {
+				return 1;
+			}
+			if (side1 <= 0 && side2 <= 0 && side1 + side2 < 0) {
+				return -1;
+			}
+			return 0;
+		}
+
+		@Override
+		public int compareTo(SweepSegment other) {
+			if (this == other) {
+				return 0;
+			}
+			int side = this.sideOf(other);
+			if (side != 0) {
+				return -side;
+			}
+			side = other.sideOf(this);
+			if (side != 0) {
+				return side;
+			}
+			// Collinear segments, which can only meet at a shared endpoint.
+			return GeometricKernel.orientation(viewPoint, other.start, this.start) > 0 ? 1 : -1;
+		}
 	}
 }
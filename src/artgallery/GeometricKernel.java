@@ -0,0 +1,134 @@
+package artgallery;
+
+import java.math.BigDecimal;
+
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Exact geometric predicates. The sign of each determinant is first computed
+ * in floating point and accepted when it exceeds the error bound of the
+ * computation, following the filters of "Adaptive Precision Floating-Point
+ * Arithmetic and Fast Robust Geometric Predicates" by J. R. Shewchuk. When the
+ * filter fails, which mostly happens on degenerate inputs, the determinant is
+ * evaluated exactly: with long arithmetic when all coordinates are integers
+ * (as in the gallery files), and with BigDecimal otherwise, for instance on
+ * derived intersection points.
+ */
+public final class GeometricKernel {
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	private static final double ORIENTATION_BOUND = (3 + 16 * EPSILON) * EPSILON;
+	private static final double IN_CIRCLE_BOUND = (10 + 96 * EPSILON) * EPSILON;
+	// Integer coordinates below these magnitudes keep every intermediate
+	// product of the determinants within a long.
+	private static final double ORIENTATION_LIMIT = 1 << 29;
+	private static final double IN_CIRCLE_LIMIT = 1 << 13;
+
+	private GeometricKernel() {
+	}
+
+	// Sign of the orientation of the triangle (v1, v2, v3): 1 when v3 lies to
+	// the left of the line from v1 to v2, -1 when it lies to its right and 0
+	// when the three vertices are collinear.
+	public static int orientation(Vertex v1, Vertex v2, Vertex v3) {
+		return orientation(v1.getX(), v1.getY(), v2.getX(), v2.getY(), v3.getX(), v3.getY());
+	}
+
+	public static int orientation(double x1, double y1, double x2, double y2, double x3, double y3) {
+		double left = (x2 - x1) * (y3 - y1);
+		double right = (y2 - y1) * (x3 - x1);
+		double det = left - right;
+		// The sign is exact when both products have different signs.
+		if ((left > 0 && right <= 0) || (left < 0 && right >= 0) || left == 0) {
+			return (int) Math.signum(det);
+		}
+		if (Math.abs(det) > ORIENTATION_BOUND * Math.abs(left + right)) {
+			return (int) Math.signum(det);
+		}
+		if (isInteger(ORIENTATION_LIMIT, x1, y1, x2, y2, x3, y3)) {
+			long exact = ((long) x2 - (long) x1) * ((long) y3 - (long) y1)
+					- ((long) y2 - (long) y1) * ((long) x3 - (long) x1);
+			return Long.signum(exact);
+		}
+		BigDecimal bx1 = new BigDecimal(x1);
+		BigDecimal by1 = new BigDecimal(y1);
+		return new BigDecimal(x2).subtract(bx1).multiply(new BigDecimal(y3).subtract(by1))
+				.subtract(new BigDecimal(y2).subtract(by1).multiply(new BigDecimal(x3).subtract(bx1))).signum();
+	}
+
+	public static boolean collinear(Vertex v1, Vertex v2, Vertex v3) {
+		return orientation(v1, v2, v3) == 0;
+	}
+
+	// Sign of the in-circle determinant: 1 when v4 lies inside the circle
+	// through the counter-clockwise triangle (v1, v2, v3), -1 when it lies
+	// outside and 0 when the four vertices are cocircular.
+	public static int inCircle(Vertex v1, Vertex v2, Vertex v3, Vertex v4) {
+		double adx = v1.getX() - v4.getX();
+		double ady = v1.getY() - v4.getY();
+		double bdx = v2.getX() - v4.getX();
+		double bdy = v2.getY() - v4.getY();
+		double cdx = v3.getX() - v4.getX();
+		double cdy = v3.getY() - v4.getY();
+
+		double bdxcdy = bdx * cdy;
+		double cdxbdy = cdx * bdy;
+		double alift = adx * adx + ady * ady;
+		double cdxady = cdx * ady;
+		double adxcdy = adx * cdy;
+		double blift = bdx * bdx + bdy * bdy;
+		double adxbdy = adx * bdy;
+		double bdxady = bdx * ady;
+		double clift = cdx * cdx + cdy * cdy;
+
+		double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+		double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+				+ (Math.abs(cdxady) + Math.abs(adxcdy)) * blift + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+		if (Math.abs(det) > IN_CIRCLE_BOUND * permanent) {
+			return (int) Math.signum(det);
+		}
+
+		if (isInteger(IN_CIRCLE_LIMIT, v1.getX(), v1.getY(), v2.getX(), v2.getY(), v3.getX(), v3.getY())
+				&& isInteger(IN_CIRCLE_LIMIT, v4.getX(), v4.getY())) {
+			long ax = (long) v1.getX() - (long) v4.getX(), ay = (long) v1.getY() - (long) v4.getY();
+			long bx = (long) v2.getX() - (long) v4.getX(), by = (long) v2.getY() - (long) v4.getY();
+			long cx = (long) v3.getX() - (long) v4.getX(), cy = (long) v3.getY() - (long) v4.getY();
+			long exact = (ax * ax + ay * ay) * (bx * cy - cx * by) + (bx * bx + by * by) * (cx * ay - ax * cy)
+					+ (cx * cx + cy * cy) * (ax * by - bx * ay);
+			return Long.signum(exact);
+		}
+
+		BigDecimal dx = new BigDecimal(v4.getX());
+		BigDecimal dy = new BigDecimal(v4.getY());
+		BigDecimal ax = new BigDecimal(v1.getX()).subtract(dx), ay = new BigDecimal(v1.getY()).subtract(dy);
+		BigDecimal bx = new BigDecimal(v2.getX()).subtract(dx), by = new BigDecimal(v2.getY()).subtract(dy);
+		BigDecimal cx = new BigDecimal(v3.getX()).subtract(dx), cy = new BigDecimal(v3.getY()).subtract(dy);
+		BigDecimal a = ax.multiply(ax).add(ay.multiply(ay)).multiply(bx.multiply(cy).subtract(cx.multiply(by)));
+		BigDecimal b = bx.multiply(bx).add(by.multiply(by)).multiply(cx.multiply(ay).subtract(ax.multiply(cy)));
+		BigDecimal c = cx.multiply(cx).add(cy.multiply(cy)).multiply(ax.multiply(by).subtract(bx.multiply(ay)));
+		return a.add(b).add(c).signum();
+	}
+
+	// Twice the signed area of the triangle (v1, v2, v3), in floating point.
+	// Meant for constructions such as intersection points; use orientation for
+	// any decision.
+	public static double cross(Vertex v1, Vertex v2, Vertex v3) {
+		return (v2.getX() - v1.getX()) * (v3.getY() - v1.getY()) - (v2.getY() - v1.getY()) * (v3.getX() - v1.getX());
+	}
+
+	// Whether the vectors from v1 to v2 and from v1 to v3, known to be
+	// collinear, point in the same direction. Exact, as it only depends on the
+	// signs of the coordinates.
+	public static boolean sameDirection(Vertex v1, Vertex v2, Vertex v3) {
+		return Math.signum(v2.getX() - v1.getX()) * Math.signum(v3.getX() - v1.getX())
+				+ Math.signum(v2.getY() - v1.getY()) * Math.signum(v3.getY() - v1.getY()) > 0;
+	}
+
+	private static boolean isInteger(double limit, double... coordinates) {
+		for (double c : coordinates) {
+			if (c != Math.rint(c) || Math.abs(c) >= limit) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
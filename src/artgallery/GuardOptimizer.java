@@ -0,0 +1,259 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import artgallery.dataStructures.TrapezoidMap;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Near-minimum set of static guards through greedy set cover. The gallery is
+ * sampled by a uniform grid of witness points and every candidate position
+ * (the vertices of the gallery and a coarser grid of interior points) is
+ * mapped to the witnesses inside its visibility polygon. Coverage is stored
+ * as one bit per witness in long arrays, so thousands of candidates over tens
+ * of thousands of witnesses take a few megabytes. The greedy choice uses the
+ * lazy evaluation of "Cost-effective Outbreak Detection in Networks" by
+ * J. Leskovec et al.: gains only decrease as witnesses get covered, so a
+ * candidate whose recomputed gain still tops the queue is the best one.
+ */
+public class GuardOptimizer {
+	private static final int DEFAULT_WITNESSES = 20000;
+	private static final int DEFAULT_CANDIDATES = 1000;
+
+	private Polygon gallery;
+	private VisibilityEngine engine;
+	private int witnessTarget;
+	private int candidateTarget;
+
+	// Witness grid: point (row, col) lies at (originX + col * spacing, originY
+	// + row * spacing) and has index witnessIndex[row * columns + col], or -1
+	// when it is outside the gallery.
+	private double originX;
+	private double originY;
+	private double spacing;
+	private int rows;
+	private int columns;
+	private int[] witnessIndex;
+	private int witnessCount;
+
+	private ArrayList<Vertex> guards = new ArrayList<Vertex>();
+	private int coveredCount;
+
+	// Constructors
+
+	public GuardOptimizer(Polygon gallery, VisibilityEngine engine) {
+		this(gallery, engine, DEFAULT_WITNESSES, DEFAULT_CANDIDATES);
+	}
+
+	// Samples about witnessTarget witnesses and candidateTarget interior
+	// candidates over the bounding box of the gallery.
+	public GuardOptimizer(Polygon gallery, VisibilityEngine engine, int witnessTarget, int candidateTarget) {
+		this.gallery = gallery;
+		this.engine = engine;
+		this.witnessTarget = witnessTarget;
+		this.candidateTarget = candidateTarget;
+	}
+
+	// Computes the guard set, available afterwards through getGuards.
+	public ArrayList<Vertex> optimize() {
+		buildWitnesses();
+		ArrayList<Vertex> candidates = buildCandidates();
+
+		// The point location structure is built lazily, so build it before the
+		// visibility engines run it from several threads.
+		gallery.getTrapezoidMap();
+		ArrayList<long[]> coverage = IntStream.range(0, candidates.size()).parallel()
+				.mapToObj(i -> coverage(candidates.get(i))).collect(Collectors.toCollection(ArrayList::new));
+
+		guards = new ArrayList<Vertex>();
+		coveredCount = 0;
+		long[] covered = new long[(witnessCount + 63) / 64];
+		// Entries are {gain, candidate}, largest gain first. The gains in the
+		// queue are upper bounds of the current ones.
+		PriorityQueue<int[]> queue = new PriorityQueue<int[]>(Math.max(1, candidates.size()),
+				(a, b) -> a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]));
+		for (int i = 0; i < candidates.size(); ++i) {
+			int gain = gain(coverage.get(i), covered);
+			if (gain > 0) {
+				queue.add(new int[] { gain, i });
+			}
+		}
+		while (!queue.isEmpty()) {
+			int[] top = queue.poll();
+			int gain = gain(coverage.get(top[1]), covered);
+			if (gain == 0) {
+				continue;
+			}
+			if (!queue.isEmpty() && gain < queue.peek()[0]) {
+				top[0] = gain;
+				queue.add(top);
+				continue;
+			}
+			long[] bits = coverage.get(top[1]);
+			for (int w = 0; w < covered.length; ++w) {
+				covered[w] |= bits[w];
+			}
+			coveredCount += gain;
+			guards.add(candidates.get(top[1]));
+		}
+		return guards;
+	}
+
+	// Guards chosen by the last call to optimize.
+	public ArrayList<Vertex> getGuards() {
+		return guards;
+	}
+
+	public int getGuardCount() {
+		return guards.size();
+	}
+
+	public int getWitnessCount() {
+		return witnessCount;
+	}
+
+	// Fraction of the witnesses seen by the chosen guards. Below one only when
+	// some witnesses are seen by no candidate at all.
+	public double getCoverage() {
+		return witnessCount == 0 ? 1 : (double) coveredCount / witnessCount;
+	}
+
+	// Lays out the witness grid with square cells over the bounding box and
+	// keeps the points strictly inside the gallery.
+	private void buildWitnesses() {
+		Polygon box = gallery.getBoundingBox();
+		Vertex min = box.getVertices().get(2);
+		Vertex max = box.getVertices().get(0);
+		double width = Math.max(max.getX() - min.getX(), Double.MIN_VALUE);
+		double height = Math.max(max.getY() - min.getY(), Double.MIN_VALUE);
+		spacing = Math.sqrt(width * height / Math.max(1, witnessTarget));
+		columns = Math.max(1, (int) (width / spacing));
+		rows = Math.max(1, (int) (height / spacing));
+		// Center the grid in the box, half a cell away from its sides.
+		originX = min.getX() + (width - (columns - 1) * spacing) / 2;
+		originY = min.getY() + (height - (rows - 1) * spacing) / 2;
+
+		witnessIndex = new int[rows * columns];
+		witnessCount = 0;
+		for (int row = 0; row < rows; ++row) {
+			for (int col = 0; col < columns; ++col) {
+				Vertex w = new Vertex(originX + col * spacing, originY + row * spacing);
+				boolean inside = gallery.locatePoint(w) == TrapezoidMap.INSIDE;
+				witnessIndex[row * columns + col] = inside ? witnessCount++ : -1;
+			}
+		}
+	}
+
+	// Vertices of the gallery and its holes, and every step-th witness in each
+	// direction. Guards stand on integer positions, so the interior candidates
+	// are rounded and kept only if they are still inside.
+	private ArrayList<Vertex> buildCandidates() {
+		HashSet<Vertex> seen = new HashSet<Vertex>();
+		ArrayList<Vertex> candidates = new ArrayList<Vertex>();
+		for (Vertex v : gallery.getVerticesAndHoles()) {
+			if (seen.add(v)) {
+				candidates.add(v);
+			}
+		}
+		int step = Math.max(1, (int) Math.round(Math.sqrt((double) witnessCount / Math.max(1, candidateTarget))));
+		for (int row = step / 2; row < rows; row += step) {
+			for (int col = step / 2; col < columns; col += step) {
+				Vertex c = new Vertex(Math.rint(originX + col * spacing), Math.rint(originY + row * spacing));
+				if (witnessIndex[row * columns + col] >= 0 && gallery.locatePoint(c) == TrapezoidMap.INSIDE
+						&& seen.add(c)) {
+					candidates.add(c);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	// Bit set of the witnesses inside the visibility polygon of the candidate,
+	// filled row by row of the grid with the even-odd rule.
+	private long[] coverage(Vertex candidate) {
+		long[] bits = new long[(witnessCount + 63) / 64];
+		Polygon region = engine.computeVisibilityRegion(candidate);
+		if (region == null) {
+			return bits;
+		}
+		ArrayList<Vertex> boundary = region.getVertices();
+		int n = boundary.size();
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Vertex v : boundary) {
+			minY = Math.min(minY, v.getY());
+			maxY = Math.max(maxY, v.getY());
+		}
+		int firstRow = Math.max(0, (int) Math.ceil((minY - originY) / spacing));
+		int lastRow = Math.min(rows - 1, (int) Math.floor((maxY - originY) / spacing));
+		if (firstRow > lastRow) {
+			return bits;
+		}
+
+		// Crossings of the boundary with each row, counted and then stored in
+		// one array. An edge crosses the rows in the half-open range between
+		// its endpoints, so shared vertices are counted once.
+		int[] start = new int[lastRow - firstRow + 2];
+		for (int i = 0; i < n; ++i) {
+			int[] span = crossedRows(boundary.get(i), boundary.get((i + 1) % n), firstRow, lastRow);
+			for (int row = span[0]; row <= span[1]; ++row) {
+				start[row - firstRow + 1]++;
+			}
+		}
+		for (int r = 1; r < start.length; ++r) {
+			start[r] += start[r - 1];
+		}
+		double[] xs = new double[start[start.length - 1]];
+		int[] fill = Arrays.copyOf(start, start.length);
+		for (int i = 0; i < n; ++i) {
+			Vertex a = boundary.get(i);
+			Vertex b = boundary.get((i + 1) % n);
+			int[] span = crossedRows(a, b, firstRow, lastRow);
+			for (int row = span[0]; row <= span[1]; ++row) {
+				double t = (originY + row * spacing - a.getY()) / (b.getY() - a.getY());
+				xs[fill[row - firstRow]++] = a.getX() + t * (b.getX() - a.getX());
+			}
+		}
+
+		for (int row = firstRow; row <= lastRow; ++row) {
+			int s = start[row - firstRow];
+			int e = start[row - firstRow + 1];
+			Arrays.sort(xs, s, e);
+			for (int k = s; k + 1 < e; k += 2) {
+				int colFrom = Math.max(0, (int) Math.ceil((xs[k] - originX) / spacing));
+				int colTo = Math.min(columns - 1, (int) Math.floor((xs[k + 1] - originX) / spacing));
+				for (int col = colFrom; col <= colTo; ++col) {
+					int w = witnessIndex[row * columns + col];
+					if (w >= 0) {
+						bits[w >>> 6] |= 1L << w;
+					}
+				}
+			}
+		}
+		return bits;
+	}
+
+	// First and last rows, within the given range, crossed by the edge from a
+	// to b. Empty when first > last, as for horizontal edges.
+	private int[] crossedRows(Vertex a, Vertex b, int firstRow, int lastRow) {
+		double low = Math.min(a.getY(), b.getY());
+		double high = Math.max(a.getY(), b.getY());
+		int from = Math.max(firstRow, (int) Math.ceil((low - originY) / spacing));
+		int to = Math.min(lastRow, (int) Math.ceil((high - originY) / spacing) - 1);
+		return new int[] { from, to };
+	}
+
+	// Number of witnesses in the bit set that are not covered yet.
+	private static int gain(long[] bits, long[] covered) {
+		int gain = 0;
+		for (int w = 0; w < bits.length; ++w) {
+			gain += Long.bitCount(bits[w] & ~covered[w]);
+		}
+		return gain;
+	}
+}
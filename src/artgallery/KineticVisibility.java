@@ -0,0 +1,483 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import artgallery.dataStructures.EdgeGrid;
+import artgallery.geometricalElements.Edge;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Kinetic visibility polygon of a viewpoint moving in a straight line at
+ * constant speed, as guards do between two route points. The polygon is made
+ * of gallery vertices, which stay put, and of shadow points, where the ray
+ * from the viewpoint grazing a reflex vertex hits an edge behind it, which
+ * slide along that edge. Its combinatorial structure only changes when the
+ * viewpoint crosses a line through two gallery vertices: a vertex of the
+ * polygon and one of its neighbors on the boundary (the vertex starts or stops
+ * casting a shadow), or a shadow casting vertex and an endpoint of the edge it
+ * shades (the shadow point leaves the edge). These lines are the certificates
+ * of the structure, and the time at which the viewpoint first crosses one of
+ * them is the next event.
+ *
+ * Between events the polygon is rebuilt from the structure in O(k) by moving
+ * its shadow points. Every feature keeps the interval its own certificates
+ * hold in. At an event only the features whose certificates fail, and their
+ * neighbors, are replaced: the visibility engine is asked for the part of the
+ * polygon in the wedge between the nearest features that stay, and only the
+ * new features and the two around them get new certificates. The full
+ * computation only runs for the first query, when going back in time, or when
+ * an event cannot be repaired locally (the viewpoint on the boundary, or an
+ * event touching most of the polygon).
+ */
+public class KineticVisibility {
+	// Relative distance in time under which the viewpoint counts as being on a
+	// certificate line.
+	private static final double EPSILON = 1e-9;
+	// Number of events repaired in a row for one query before the structure
+	// is rather computed again at the time of the query.
+	private static final int MAX_REPAIRS = 16;
+
+	private VisibilityEngine engine;
+	private Polygon gallery;
+	private EdgeGrid grid;
+	// Previous and next vertex of every vertex of the gallery along its ring.
+	private IdentityHashMap<Vertex, Vertex[]> rings = new IdentityHashMap<Vertex, Vertex[]>();
+
+	private Vertex from;
+	private Vertex to;
+	private double startTime;
+	private double endTime;
+
+	// Structure of the visibility polygon being built, valid from validFrom to
+	// validUntil, as one feature per vertex of the polygon.
+	private ArrayList<Feature> features;
+	private double validFrom;
+	private double validUntil;
+	private Piece piece;
+	private int rebuilds;
+	private int repairs;
+
+	// Viewpoint moving from "from" at startTime to "to" at endTime.
+	public KineticVisibility(Polygon gallery, VisibilityEngine engine, Vertex from, Vertex to, double startTime,
+			double endTime) {
+		this.gallery = gallery;
+		this.engine = engine;
+		this.grid = gallery.getEdgeIndex();
+		this.from = from;
+		this.to = to;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		addRing(gallery.getVertices());
+		for (Hole h : gallery.getHoles()) {
+			addRing(h.getVertices());
+		}
+	}
+
+	private void addRing(ArrayList<Vertex> ring) {
+		for (int i = 0; i < ring.size(); ++i) {
+			rings.put(ring.get(i),
+					new Vertex[] { ring.get((i + ring.size() - 1) % ring.size()), ring.get((i + 1) % ring.size()) });
+		}
+	}
+
+	// Vertex of the polygon: a gallery vertex, the viewpoint itself, or the
+	// point where the ray through the caster hits the edge. It holds from
+	// since to until, as far as its own certificates tell. A stuck feature is
+	// a shadow whose edge was not found, left in place for an instant.
+	private static class Feature {
+		private Vertex vertex;
+		private boolean viewPoint;
+		private Vertex caster;
+		private Edge edge;
+		private boolean stuck;
+		private double since;
+		private double until;
+	}
+
+	// Whether this structure follows the given motion.
+	public boolean follows(Vertex from, Vertex to, double startTime, double endTime) {
+		return this.from.equals(from) && this.to.equals(to) && this.startTime == startTime && this.endTime == endTime;
+	}
+
+	public Vertex getViewPoint(double time) {
+		return viewPoint(from, to, startTime, endTime, time);
+	}
+
+	private static Vertex viewPoint(Vertex from, Vertex to, double startTime, double endTime, double time) {
+		double t = endTime == startTime ? 0 : (time - startTime) / (endTime - startTime);
+		return new Vertex(from.getX() + t * (to.getX() - from.getX()), from.getY() + t * (to.getY() - from.getY()));
+	}
+
+	// Visibility polygon at the given time, or null if the viewpoint is
+	// outside the gallery.
+	public Polygon getVisibilityRegion(double time) {
+		return getPiece(time).getVisibilityRegion(time);
+	}
+
+	// Structure of the polygon holding at the given time, computed again if
+	// the time is past one of its events.
+	public Piece getPiece(double time) {
+		if (piece != null && time >= piece.start && time <= piece.end) {
+			return piece;
+		}
+		if (piece == null || time < piece.start) {
+			rebuild(time);
+		} else {
+			// Repair the structure event after event up to the time.
+			for (int i = 0; time > validUntil; ++i) {
+				if (i == MAX_REPAIRS || !repair()) {
+					rebuild(time);
+					break;
+				}
+			}
+			if (time < validFrom) {
+				rebuild(time);
+			}
+		}
+		piece = new Piece(this, features == null ? null : new ArrayList<Feature>(features), validFrom, validUntil);
+		return piece;
+	}
+
+	// Structure of the visibility polygon between two consecutive events, from
+	// which the polygon at any time in between is rebuilt in O(k). It does not
+	// hold on to the kinetic polygon it comes from.
+	public static class Piece {
+		private ArrayList<Feature> features;
+		private double start;
+		private double end;
+		private Vertex from;
+		private Vertex to;
+		private double startTime;
+		private double endTime;
+
+		private Piece(KineticVisibility motion, ArrayList<Feature> features, double start, double end) {
+			this.features = features;
+			this.start = start;
+			this.end = end;
+			this.from = motion.from;
+			this.to = motion.to;
+			this.startTime = motion.startTime;
+			this.endTime = motion.endTime;
+		}
+
+		public Vertex getViewPoint(double time) {
+			return viewPoint(from, to, startTime, endTime, time);
+		}
+
+		public double getStart() {
+			return start;
+		}
+
+		public double getEnd() {
+			return end;
+		}
+
+		// Visibility polygon at the given time, within the piece, or null if
+		// the viewpoint is outside the gallery.
+		public Polygon getVisibilityRegion(double time) {
+			if (features == null) {
+				return null;
+			}
+			Vertex q = getViewPoint(time);
+			ArrayList<Vertex> vertices = new ArrayList<Vertex>(features.size());
+			for (Feature f : features) {
+				if (f.viewPoint) {
+					vertices.add(new Vertex(q.getX(), q.getY()));
+				} else if (f.edge == null) {
+					vertices.add(new Vertex(f.vertex.getX(), f.vertex.getY()));
+				} else {
+					vertices.add(shadow(q, f));
+				}
+			}
+			return new Polygon(vertices);
+		}
+	}
+
+	// Number of times the structure was computed from scratch.
+	public int getRebuildCount() {
+		return rebuilds;
+	}
+
+	// Number of events the structure was repaired at.
+	public int getRepairCount() {
+		return repairs;
+	}
+
+	// Time of the next event after the given time, or infinity if the
+	// structure holds until the end of the motion.
+	public double getNextEvent(double time) {
+		return getPiece(time).end;
+	}
+
+	private void rebuild(double time) {
+		rebuilds++;
+		Vertex q = getViewPoint(time);
+		Polygon region = engine.computeVisibilityRegion(q);
+		if (region == null) {
+			features = null;
+			validFrom = validUntil = time;
+			return;
+		}
+		features = describe(region.getVertices(), q, null, null, time);
+		for (int i = 0; i < features.size(); ++i) {
+			certify(features, i, q, time);
+		}
+		validate();
+	}
+
+	// Moves the structure past the event ending it. The features failing
+	// there, with their neighbors, are replaced by the part of the polygon
+	// just after the event between the nearest features that stay, and these
+	// two features are certified again along with the new ones. Returns false
+	// if the event has to be handled by computing the structure again, which
+	// leaves the structure to be rebuilt.
+	private boolean repair() {
+		double after = validUntil + 2 * EPSILON * (endTime - startTime);
+		if (features == null || after >= endTime) {
+			return false;
+		}
+		int n = features.size();
+		// Longest circular run of features holding past the event, the others
+		// are in the run to replace.
+		int gapStart = -1;
+		int gapLength = 0;
+		for (int i = 0; i < n; ++i) {
+			if (features.get(i).viewPoint) {
+				return false;
+			}
+			int length = 0;
+			while (length < n && features.get((i + length) % n).until > validUntil) {
+				length++;
+			}
+			if (length > gapLength) {
+				gapStart = i;
+				gapLength = length;
+			}
+		}
+		if (gapLength == n) {
+			return false;
+		}
+
+		// Features kept, from the left bound to the right one along the
+		// polygon, leaving a neighbor of the run on each side to be replaced as
+		// well. The bounds are gallery vertices, found as they are in the
+		// polygon after the event.
+		Vertex q = getViewPoint(after);
+		int left = gapStart + 1;
+		int right = gapStart + gapLength - 2;
+		while (left < right && features.get(left % n).edge != null) {
+			left++;
+		}
+		while (left < right && features.get(right % n).edge != null) {
+			right--;
+		}
+		if (left >= right) {
+			return false;
+		}
+		Feature first = features.get(right % n);
+		Feature last = features.get(left % n);
+		ArrayList<Vertex> chain = engine.computeVisibilityChain(q, first.vertex, last.vertex);
+		if (chain == null) {
+			return false;
+		}
+		chain.add(0, first.vertex);
+		chain.add(last.vertex);
+		ArrayList<Feature> local = describe(chain, q, first, last, after);
+		for (Feature f : local) {
+			if (f.stuck || f.viewPoint) {
+				return false;
+			}
+		}
+
+		// The polygon now starts at the right bound.
+		ArrayList<Feature> repaired = new ArrayList<Feature>(local);
+		for (int i = left + 1; i < right; ++i) {
+			repaired.add(features.get(i % n));
+		}
+		features = repaired;
+		for (int i = 0; i < local.size(); ++i) {
+			certify(features, i, q, after);
+		}
+		validate();
+		if (validFrom > after || validUntil < after) {
+			return false;
+		}
+		repairs++;
+		return true;
+	}
+
+	// Interval over which all the features hold.
+	private void validate() {
+		validFrom = Double.NEGATIVE_INFINITY;
+		validUntil = Double.POSITIVE_INFINITY;
+		for (Feature f : features) {
+			validFrom = Math.max(validFrom, f.since);
+			validUntil = Math.min(validUntil, f.until);
+		}
+	}
+
+	// Features of the boundary points of the polygon seen from q. When the
+	// first and last features are given, the points are a part of the
+	// boundary starting and ending at them, otherwise the whole boundary.
+	private ArrayList<Feature> describe(ArrayList<Vertex> boundary, Vertex q, Feature first, Feature last,
+			double time) {
+		ArrayList<Feature> features = new ArrayList<Feature>(boundary.size());
+		for (Vertex p : boundary) {
+			Feature f = new Feature();
+			// Exact match only, a shadow point snapping onto a gallery vertex
+			// still moves.
+			Vertex match = gallery.getMatchingVertex(p);
+			if (match != null && match.getX() == p.getX() && match.getY() == p.getY()) {
+				f.vertex = match;
+			}
+			f.viewPoint = p.equals(q);
+			features.add(f);
+		}
+		boolean cyclic = first == null;
+		if (!cyclic) {
+			features.set(0, first);
+			features.set(features.size() - 1, last);
+		}
+		// A point that is no gallery vertex is the shadow of the neighboring
+		// gallery vertex most in line with it and the viewpoint.
+		for (int i = cyclic ? 0 : 1; i < (cyclic ? features.size() : features.size() - 1); ++i) {
+			Feature f = features.get(i);
+			if (f.vertex != null || f.viewPoint) {
+				continue;
+			}
+			Vertex p = boundary.get(i);
+			Vertex caster = null;
+			double best = Double.POSITIVE_INFINITY;
+			for (int j : new int[] { (i + features.size() - 1) % features.size(), (i + 1) % features.size() }) {
+				Vertex r = features.get(j).vertex;
+				if (r == null) {
+					continue;
+				}
+				double deviation = Math.abs(GeometricKernel.cross(q, r, p)) / Math.hypot(r.getX() - q.getX(),
+						r.getY() - q.getY()) / Math.hypot(p.getX() - q.getX(), p.getY() - q.getY());
+				if (deviation < best) {
+					best = deviation;
+					caster = r;
+				}
+			}
+			Edge edge = caster == null ? null
+					: grid.firstHit(caster, new Vertex(2 * caster.getX() - q.getX(), 2 * caster.getY() - q.getY()));
+			if (edge == null) {
+				// Left in place, and rebuilt at the next query.
+				f.vertex = new Vertex(p.getX(), p.getY());
+				f.stuck = true;
+			} else {
+				f.caster = caster;
+				f.edge = edge;
+				f.vertex = null;
+			}
+		}
+		return features;
+	}
+
+	// Certificates of the feature at the given index, each crossed by the
+	// viewpoint at most once.
+	private void certify(ArrayList<Feature> features, int i, Vertex q, double time) {
+		Feature f = features.get(i);
+		f.since = Double.NEGATIVE_INFINITY;
+		f.until = Double.POSITIVE_INFINITY;
+		if (f.stuck) {
+			f.since = f.until = time;
+			return;
+		}
+		if (f.viewPoint) {
+			return;
+		}
+		// A window between two gallery vertices that are not neighbors, where
+		// the shadow of the one falls exactly on the other.
+		Feature next = features.get((i + 1) % features.size());
+		if (f.edge == null && next.edge == null && !next.viewPoint && !neighbors(f.vertex, next.vertex)) {
+			certify(f, f.vertex, next.vertex, time);
+		}
+		if (f.edge != null) {
+			certify(f, f.caster, f.edge.getStartVertex(), time);
+			certify(f, f.caster, f.edge.getEndVertex(), time);
+		} else if (rings.containsKey(f.vertex)) {
+			certify(f, f.vertex, rings.get(f.vertex)[0], time);
+			certify(f, f.vertex, rings.get(f.vertex)[1], time);
+		}
+		f.since = Math.max(f.since, Math.min(startTime, time));
+		f.until = Math.min(f.until, Math.max(endTime, time));
+		if (f.edge == null) {
+			return;
+		}
+
+		// The ray of a shadow may also sweep over a hidden vertex of the pocket
+		// behind its caster before reaching an end of its edge. The vertices in
+		// the area it sweeps while the shadow holds get a certificate as well,
+		// which can only shorten the interval and so the area.
+		Vertex first = shadow(getViewPoint(f.since), f);
+		Vertex now = shadow(q, f);
+		Vertex last = shadow(getViewPoint(f.until), f);
+		double xMin = Math.min(f.caster.getX(), Math.min(first.getX(), Math.min(now.getX(), last.getX())));
+		double yMin = Math.min(f.caster.getY(), Math.min(first.getY(), Math.min(now.getY(), last.getY())));
+		double xMax = Math.max(f.caster.getX(), Math.max(first.getX(), Math.max(now.getX(), last.getX())));
+		double yMax = Math.max(f.caster.getY(), Math.max(first.getY(), Math.max(now.getY(), last.getY())));
+		for (Edge e : grid.rangeQuery(xMin, yMin, xMax, yMax)) {
+			for (Vertex w : new Vertex[] { e.getStartVertex(), e.getEndVertex() }) {
+				if (w != f.caster && (inTriangle(f.caster, first, now, w) || inTriangle(f.caster, now, last, w))) {
+					certify(f, f.caster, w, time);
+				}
+			}
+		}
+	}
+
+	private boolean neighbors(Vertex v, Vertex w) {
+		Vertex[] ring = rings.get(v);
+		return ring != null && (ring[0] == w || ring[1] == w);
+	}
+
+	// Point where the ray from the viewpoint through the caster of the shadow
+	// meets the line of its edge.
+	private static Vertex shadow(Vertex q, Feature f) {
+		Vertex a = f.edge.getStartVertex();
+		Vertex b = f.edge.getEndVertex();
+		double denominator = GeometricKernel.cross(q, f.caster, b) - GeometricKernel.cross(q, f.caster, a);
+		if (denominator == 0) {
+			return new Vertex(f.caster.getX(), f.caster.getY());
+		}
+		double s = -GeometricKernel.cross(q, f.caster, a) / denominator;
+		return new Vertex(a.getX() + s * (b.getX() - a.getX()), a.getY() + s * (b.getY() - a.getY()));
+	}
+
+	// Whether w lies in the closed triangle (a, b, c), of either orientation.
+	private static boolean inTriangle(Vertex a, Vertex b, Vertex c, Vertex w) {
+		int o1 = GeometricKernel.orientation(a, b, w);
+		int o2 = GeometricKernel.orientation(b, c, w);
+		int o3 = GeometricKernel.orientation(c, a, w);
+		return (o1 >= 0 && o2 >= 0 && o3 >= 0) || (o1 <= 0 && o2 <= 0 && o3 <= 0);
+	}
+
+	// Narrows the interval of the feature around the given time to the side
+	// of the line through a and b the viewpoint is on. A viewpoint on the
+	// line, up to rounding, only keeps the feature for the current instant.
+	private void certify(Feature f, Vertex a, Vertex b, double time) {
+		if (endTime == startTime) {
+			return;
+		}
+		double dx = b.getX() - a.getX();
+		double dy = b.getY() - a.getY();
+		// Signed distance times |ab| of the viewpoint at start and its rate.
+		double start = dx * (from.getY() - a.getY()) - dy * (from.getX() - a.getX());
+		double rate = (dx * (to.getY() - from.getY()) - dy * (to.getX() - from.getX())) / (endTime - startTime);
+		if (rate == 0) {
+			return;
+		}
+		double crossing = startTime - start / rate;
+		if (Math.abs(crossing - time) <= EPSILON * (endTime - startTime)) {
+			f.since = f.until = time;
+		} else if (crossing > time) {
+			f.until = Math.min(f.until, crossing);
+		} else {
+			f.since = Math.max(f.since, crossing);
+		}
+	}
+}
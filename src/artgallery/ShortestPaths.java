@@ -0,0 +1,412 @@
+package artgallery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+import artgallery.dataStructures.DCEL;
+import artgallery.dataStructures.VisibilityGraph;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Shortest paths between points of a gallery, walking around its walls and
+ * holes. The gallery is triangulated once, and the triangle of a point is
+ * found through the trapezoidal map of the gallery.
+ *
+ * Without holes the triangles form a tree, and the triangles between two
+ * points (the sleeve) are found by climbing from both towards their common
+ * ancestor. The path is then pulled tight through the sleeve by the funnel
+ * algorithm of "Euclidean shortest paths in the presence of rectilinear
+ * barriers" by D. T. Lee and F. P. Preparata, in O(k) for k triangles.
+ *
+ * With holes the sleeve is not unique, and the path is found by a search over
+ * the visibility graph of the gallery, extended with both points. Shortest
+ * paths only bend at reflex vertices, so the search skips the other vertices.
+ * A single target guides the search by its straight-line distance (A*), and
+ * the targets of a batch share one search tree, which stops as soon as all of
+ * them are reached.
+ */
+public class ShortestPaths {
+	private Polygon gallery;
+	private ArrayList<DCEL.Face> triangles;
+	private TriangleLocator locator;
+	// Region seen from the source, for the targets reached in a straight line
+	// when the gallery has holes.
+	private VisibilityEngine visibility;
+	// Vertices of the gallery and its holes where a path can bend: the reflex
+	// ones, and the flat ones a path may run through.
+	private IdentityHashMap<Vertex, Boolean> bends = new IdentityHashMap<Vertex, Boolean>();
+	// Dual tree of the triangulation, rooted at the first triangle and indexed
+	// by face, for galleries without holes.
+	private DCEL.Face[] parent;
+	private int[] depth;
+
+	public ShortestPaths(Polygon gallery) {
+		this.gallery = gallery;
+		DCEL triangulation = gallery.computeTriangulationDCEL();
+		this.triangles = triangulation.getInnerFaces();
+
+		this.locator = new TriangleLocator(gallery);
+		addBends(gallery.getVertices(), true);
+		for (Hole hole : gallery.getHoles()) {
+			addBends(hole.getVertices(), false);
+		}
+
+		if (!gallery.getHoles().isEmpty()) {
+			visibility = new TriangularExpansionVisibilityEngine(gallery);
+		} else if (!triangles.isEmpty()) {
+			int faces = triangulation.getFaces().size();
+			parent = new DCEL.Face[faces];
+			depth = new int[faces];
+			Arrays.fill(depth, -1);
+			ArrayDeque<DCEL.Face> queue = new ArrayDeque<DCEL.Face>();
+			depth[triangles.get(0).getIndex()] = 0;
+			queue.add(triangles.get(0));
+			while (!queue.isEmpty()) {
+				DCEL.Face face = queue.poll();
+				for (DCEL.HalfEdge h : face.getHalfEdges()) {
+					DCEL.Face neighbor = h.getTwin().getFace();
+					if (neighbor.isInside() && depth[neighbor.getIndex()] < 0) {
+						depth[neighbor.getIndex()] = depth[face.getIndex()] + 1;
+						parent[neighbor.getIndex()] = face;
+						queue.add(neighbor);
+					}
+				}
+			}
+		}
+	}
+
+	// Shortest path from the source to the target, both included, or null if
+	// either lies outside the gallery.
+	public ArrayList<Vertex> shortestPath(Vertex source, Vertex target) {
+		DCEL.Face start = locate(source);
+		DCEL.Face end = locate(target);
+		if (start == null || end == null) {
+			return null;
+		}
+		if (depth != null) {
+			return funnel(source, target, trim(sleeve(start, end), source, target));
+		}
+		return visibilityGraphPaths(source, Collections.singletonList(target)).get(0);
+	}
+
+	// Shortest paths from the source to each of the targets, in the same
+	// order, with null for the targets outside the gallery. The paths through
+	// the triangulation are computed in parallel; with holes a single search
+	// over the visibility graph serves all the targets.
+	public ArrayList<ArrayList<Vertex>> shortestPaths(Vertex source, List<Vertex> targets) {
+		if (locate(source) == null) {
+			return new ArrayList<ArrayList<Vertex>>(Collections.nCopies(targets.size(), (ArrayList<Vertex>) null));
+		}
+		if (depth != null) {
+			return targets.parallelStream().map(t -> shortestPath(source, t))
+					.collect(Collectors.toCollection(ArrayList::new));
+		}
+		return visibilityGraphPaths(source, targets);
+	}
+
+	// Length of the shortest path between the points, or infinity if either
+	// lies outside the gallery.
+	public double distance(Vertex source, Vertex target) {
+		ArrayList<Vertex> path = shortestPath(source, target);
+		return path == null ? Double.POSITIVE_INFINITY : length(path);
+	}
+
+	public static double length(List<Vertex> path) {
+		double length = 0;
+		for (int i = 0; i + 1 < path.size(); ++i) {
+			length += Math.hypot(path.get(i + 1).getX() - path.get(i).getX(),
+					path.get(i + 1).getY() - path.get(i).getY());
+		}
+		return length;
+	}
+
+	// Triangle containing the point, or null if it lies outside the gallery.
+	private DCEL.Face locate(Vertex v) {
+		return locator.locate(v);
+	}
+
+	// Marks the vertices of a ring where the interior angle of the gallery is
+	// at least flat. The interior lies inside the outer boundary and outside
+	// the holes.
+	private void addBends(ArrayList<Vertex> ring, boolean outer) {
+		int n = ring.size();
+		double sign = Math.signum(GeometricAlgorithms.signedArea(ring)) * (outer ? 1 : -1);
+		for (int i = 0; i < n; ++i) {
+			int turn = GeometricKernel.orientation(ring.get((i + n - 1) % n), ring.get(i), ring.get((i + 1) % n));
+			if (turn * sign <= 0) {
+				bends.put(ring.get(i), Boolean.TRUE);
+			}
+		}
+	}
+
+	// Half-edges crossed going from the start triangle to the end one through
+	// the dual tree, each one seen from the triangle it leaves.
+	private ArrayList<DCEL.HalfEdge> sleeve(DCEL.Face start, DCEL.Face end) {
+		ArrayList<DCEL.HalfEdge> up = new ArrayList<DCEL.HalfEdge>();
+		ArrayList<DCEL.HalfEdge> down = new ArrayList<DCEL.HalfEdge>();
+		DCEL.Face a = start;
+		DCEL.Face b = end;
+		while (a != b) {
+			if (depth[a.getIndex()] >= depth[b.getIndex()]) {
+				up.add(shared(a, parent[a.getIndex()]));
+				a = parent[a.getIndex()];
+			} else {
+				down.add(shared(parent[b.getIndex()], b));
+				b = parent[b.getIndex()];
+			}
+		}
+		Collections.reverse(down);
+		up.addAll(down);
+		return up;
+	}
+
+	// Drops the portals before the last one the source lies on, and from the
+	// first one the target lies on: both points also belong to the triangles
+	// past these portals, and the funnel needs them strictly inside.
+	private static List<DCEL.HalfEdge> trim(List<DCEL.HalfEdge> portals, Vertex source, Vertex target) {
+		int from = 0;
+		for (int i = 0; i < portals.size(); ++i) {
+			if (touches(portals.get(i), source)) {
+				from = i + 1;
+			}
+		}
+		int to = portals.size();
+		for (int i = portals.size() - 1; i >= from; --i) {
+			if (touches(portals.get(i), target)) {
+				to = i;
+			}
+		}
+		return portals.subList(from, to);
+	}
+
+	private static boolean touches(DCEL.HalfEdge h, Vertex v) {
+		Vertex a = h.getOrigin();
+		Vertex b = h.getDestination();
+		return GeometricKernel.orientation(a, b, v) == 0 && Math.min(a.getX(), b.getX()) <= v.getX()
+				&& v.getX() <= Math.max(a.getX(), b.getX()) && Math.min(a.getY(), b.getY()) <= v.getY()
+				&& v.getY() <= Math.max(a.getY(), b.getY());
+	}
+
+	// Half-edge of the first triangle whose twin lies in the second one.
+	private static DCEL.HalfEdge shared(DCEL.Face from, DCEL.Face to) {
+		for (DCEL.HalfEdge h : from.getHalfEdges()) {
+			if (h.getTwin().getFace() == to) {
+				return h;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Funnel algorithm. The funnel is kept in a deque, with the left chain
+	 * from the apex towards the head and the right chain towards the tail. Each
+	 * portal of the sleeve adds one vertex to a chain, which first drops the
+	 * vertices it sees past, and moves the apex along the other chain when it
+	 * crosses it. The apexes form the path, completed by the chain reaching
+	 * the target.
+	 */
+	private ArrayList<Vertex> funnel(Vertex source, Vertex target, List<DCEL.HalfEdge> portals) {
+		ArrayList<Vertex> path = new ArrayList<Vertex>();
+		path.add(source);
+		Vertex[] deque = new Vertex[2 * portals.size() + 5];
+		int head = portals.size() + 2;
+		int tail = head;
+		int apex = head;
+		deque[apex] = source;
+
+		Vertex left = null;
+		Vertex right = null;
+		for (int i = 0; i <= portals.size(); ++i) {
+			// A portal leaving a triangle through a counter-clockwise half-edge
+			// has its destination on the left and its origin on the right.
+			Vertex nextLeft = i < portals.size() ? portals.get(i).getDestination() : null;
+			Vertex nextRight = i < portals.size() ? portals.get(i).getOrigin() : target;
+			if (nextLeft != null && nextLeft != left) {
+				left = nextLeft;
+				while (head < apex && GeometricKernel.orientation(deque[head + 1], deque[head], left) <= 0) {
+					head++;
+				}
+				if (head == apex) {
+					while (tail > apex && GeometricKernel.orientation(deque[apex], deque[apex + 1], left) <= 0) {
+						apex++;
+						head = apex;
+						path.add(deque[apex]);
+					}
+				}
+				deque[--head] = left;
+			}
+			if (nextRight != right) {
+				right = nextRight;
+				while (tail > apex && GeometricKernel.orientation(deque[tail - 1], deque[tail], right) >= 0) {
+					tail--;
+				}
+				if (tail == apex) {
+					while (head < apex && GeometricKernel.orientation(deque[apex], deque[apex - 1], right) >= 0) {
+						apex--;
+						tail = apex;
+						path.add(deque[apex]);
+					}
+				}
+				deque[++tail] = right;
+			}
+		}
+		for (int k = apex + 1; k <= tail; ++k) {
+			path.add(deque[k]);
+		}
+		return originalVertices(path);
+	}
+
+	// Search over the visibility graph of the gallery, starting from the
+	// vertices the source sees and ending at the vertices each target sees.
+	// Vertices are settled in order of their distance from the source plus,
+	// for a single target, their straight-line distance to it, which never
+	// overestimates the rest of the path. The search stops once no path
+	// through the remaining vertices can improve any target.
+	private ArrayList<ArrayList<Vertex>> visibilityGraphPaths(Vertex source, List<Vertex> targets) {
+		VisibilityGraph graph = gallery.getVisibilityGraph();
+		ArrayList<Vertex> vertices = graph.getVertices();
+		IdentityHashMap<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>();
+		for (int i = 0; i < vertices.size(); ++i) {
+			indices.put(vertices.get(i), i);
+		}
+		GeometricAlgorithms GA = new GeometricAlgorithms();
+		Vertex guide = targets.size() == 1 ? targets.get(0) : null;
+
+		// Best path found so far to each target, through the vertex before it,
+		// or straight from the source when that vertex is -1.
+		int count = targets.size();
+		double[] best = new double[count];
+		int[] last = new int[count];
+		boolean[] reachable = new boolean[count];
+		Arrays.fill(best, Double.POSITIVE_INFINITY);
+		Arrays.fill(last, -1);
+		// Targets seen from each vertex, with the length of the last leg.
+		HashMap<Integer, ArrayList<double[]>> exits = new HashMap<Integer, ArrayList<double[]>>();
+		Polygon sourceView = visibility.computeVisibilityRegion(source);
+		Vertex sourceVertex = gallery.getMatchingVertex(source);
+		for (int t = 0; t < count; ++t) {
+			Vertex target = targets.get(t);
+			if (locate(target) == null) {
+				continue;
+			}
+			reachable[t] = true;
+			// Vertices seeing each other along the boundary of the region of
+			// the source are found in the graph.
+			Vertex targetVertex = gallery.getMatchingVertex(target);
+			if (sourceView != null && GeometricAlgorithms.ringContains(sourceView.getVertices(), target)
+					|| sourceVertex != null && targetVertex != null && graph.areVisible(sourceVertex, targetVertex)) {
+				best[t] = euclidean(source, target);
+				continue;
+			}
+			for (Vertex w : GA.visibleVertices(target, gallery)) {
+				if (bends.containsKey(w)) {
+					exits.computeIfAbsent(indices.get(w), k -> new ArrayList<double[]>())
+							.add(new double[] { t, euclidean(w, target) });
+				}
+			}
+		}
+
+		double[] distance = new double[vertices.size()];
+		int[] previous = new int[vertices.size()];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(previous, -1);
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+		if (!exits.isEmpty()) {
+			for (Vertex w : GA.visibleVertices(source, gallery)) {
+				if (bends.containsKey(w)) {
+					int index = indices.get(w);
+					distance[index] = euclidean(source, w);
+					queue.add(new double[] { distance[index] + estimate(w, guide), index });
+				}
+			}
+		}
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			if (entry[0] >= max(best, reachable)) {
+				break;
+			}
+			int index = (int) entry[1];
+			Vertex v = vertices.get(index);
+			if (entry[0] > distance[index] + estimate(v, guide)) {
+				continue;
+			}
+			for (double[] exit : exits.getOrDefault(index, new ArrayList<double[]>())) {
+				int t = (int) exit[0];
+				if (distance[index] + exit[1] < best[t]) {
+					best[t] = distance[index] + exit[1];
+					last[t] = index;
+				}
+			}
+			for (Vertex w : graph.getNeighbors(v)) {
+				if (!bends.containsKey(w)) {
+					continue;
+				}
+				int next = indices.get(w);
+				double d = distance[index] + euclidean(v, w);
+				if (d < distance[next]) {
+					distance[next] = d;
+					previous[next] = index;
+					queue.add(new double[] { d + estimate(w, guide), next });
+				}
+			}
+		}
+
+		ArrayList<ArrayList<Vertex>> paths = new ArrayList<ArrayList<Vertex>>();
+		for (int t = 0; t < count; ++t) {
+			if (best[t] == Double.POSITIVE_INFINITY) {
+				paths.add(null);
+				continue;
+			}
+			ArrayList<Vertex> path = new ArrayList<Vertex>();
+			path.add(targets.get(t));
+			for (int index = last[t]; index >= 0; index = previous[index]) {
+				path.add(vertices.get(index));
+			}
+			path.add(source);
+			Collections.reverse(path);
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	// Straight-line distance to the target guiding the search, if any.
+	private static double estimate(Vertex v, Vertex guide) {
+		return guide == null ? 0 : euclidean(v, guide);
+	}
+
+	// Largest of the best lengths found to the targets inside the gallery.
+	private static double max(double[] best, boolean[] reachable) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int t = 0; t < best.length; ++t) {
+			if (reachable[t]) {
+				max = Math.max(max, best[t]);
+			}
+		}
+		return max;
+	}
+
+	private static double euclidean(Vertex a, Vertex b) {
+		return Math.hypot(b.getX() - a.getX(), b.getY() - a.getY());
+	}
+
+	// Replaces the vertices of the triangulation, which works on a copy of the
+	// gallery, by those of the gallery.
+	private ArrayList<Vertex> originalVertices(ArrayList<Vertex> path) {
+		for (int i = 1; i + 1 < path.size(); ++i) {
+			Vertex original = gallery.getMatchingVertex(path.get(i));
+			if (original != null) {
+				path.set(i, original);
+			}
+		}
+		return path;
+	}
+}
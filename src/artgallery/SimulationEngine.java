@@ -0,0 +1,205 @@
+package artgallery;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import artgallery.Actors.Guard;
+import artgallery.Actors.Thief;
+
+/*
+ * Simulation of scenarios without user interface, for batches of schedules.
+ * A scenario is a gallery file with the guard schedules and thief paths found
+ * next to it (see GalleryLoader). The detections of the thieves come from the
+ * exact DetectionEngine, then an EventScheduler jumps from one event of the
+ * actors to the next, stopping only where the coverage of the gallery by the
+ * guards is sampled, at a fixed interval. Scenarios share nothing, so several
+ * of them run at once on a pool of threads.
+ */
+public class SimulationEngine {
+	private int threads;
+	// Interval between two samples of the coverage, in seconds, or 0 for no
+	// coverage.
+	private double coverageStep;
+
+	public SimulationEngine(int threads, double coverageStep) {
+		this.threads = threads;
+		this.coverageStep = coverageStep;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public double getCoverageStep() {
+		return coverageStep;
+	}
+
+	// Runs the scenarios of the gallery files, in parallel, and returns their
+	// results in the same order.
+	public ArrayList<SimulationResult> runAll(List<File> galleryFiles) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			ArrayList<Future<SimulationResult>> futures = new ArrayList<Future<SimulationResult>>();
+			for (File file : galleryFiles) {
+				futures.add(pool.submit(() -> run(file)));
+			}
+			ArrayList<SimulationResult> results = new ArrayList<SimulationResult>();
+			for (int i = 0; i < futures.size(); ++i) {
+				results.add(result(galleryFiles.get(i), futures.get(i)));
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static SimulationResult result(File file, Future<SimulationResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			SimulationResult result = new SimulationResult(file.getName());
+			result.setError("interrupted");
+			return result;
+		} catch (ExecutionException e) {
+			SimulationResult result = new SimulationResult(file.getName());
+			result.setError(e.getCause().toString());
+			return result;
+		}
+	}
+
+	// Loads the scenario of a gallery file and runs it. Missing schedule or
+	// path files leave the scenario without guards or thieves.
+	public SimulationResult run(File galleryFile) {
+		SimulationResult result = new SimulationResult(galleryFile.getName());
+		long start = System.nanoTime();
+		GalleryModel gallery;
+		try {
+			gallery = GalleryLoader.loadGallery(galleryFile);
+			gallery.setGuards(loadGuards(galleryFile));
+			gallery.setThieves(loadThieves(galleryFile));
+		} catch (IOException | IllegalArgumentException e) {
+			result.setError(e.getMessage() != null ? e.getMessage() : e.toString());
+			return result;
+		}
+		result.setLoadTime((System.nanoTime() - start) / 1000000);
+		simulate(gallery, result);
+		return result;
+	}
+
+	private static ArrayList<Guard> loadGuards(File galleryFile) throws IOException {
+		try {
+			return GalleryLoader.loadGuards(GalleryLoader.companionFile(galleryFile, "GSS"));
+		} catch (FileNotFoundException e) {
+			return new ArrayList<Guard>();
+		}
+	}
+
+	private static ArrayList<Thief> loadThieves(File galleryFile) throws IOException {
+		try {
+			return GalleryLoader.loadThieves(GalleryLoader.companionFile(galleryFile, "RPS"));
+		} catch (FileNotFoundException e) {
+			return new ArrayList<Thief>();
+		}
+	}
+
+	// Runs a loaded scenario up to its global time and fills in the result.
+	public void simulate(GalleryModel gallery, SimulationResult result) {
+		result.setGuardCount(gallery.getGuards().size());
+		result.setThiefCount(gallery.getThieves().size());
+		result.setGlobalTime(gallery.getGlobalTime());
+		result.setCoverageStep(coverageStep);
+
+		long start = System.nanoTime();
+		ArrayList<DetectionEvent> detections = gallery.getThieves().isEmpty() ? new ArrayList<DetectionEvent>()
+				: gallery.detectThieves();
+		result.setDetections(detections);
+		result.setDetectionTime((System.nanoTime() - start) / 1000000);
+
+		long coverageTime = 0;
+		start = System.nanoTime();
+		EventScheduler scheduler = new EventScheduler(gallery, detections);
+		for (int sample = 0; coverageStep > 0 && sample * coverageStep <= gallery.getGlobalTime(); ++sample) {
+			double time = sample * coverageStep;
+			scheduler.advanceTo(time, null);
+			gallery.setCurrentTime(time);
+			long sampleStart = System.nanoTime();
+			result.addCoverage(gallery.computeCoverageRatio(time));
+			coverageTime += System.nanoTime() - sampleStart;
+		}
+		scheduler.run(null);
+		gallery.setCurrentTime(scheduler.getTime());
+		result.setEventCount(scheduler.getProcessedCount());
+		result.setSimulationTime((System.nanoTime() - start - coverageTime) / 1000000);
+		result.setCoverageTime(coverageTime / 1000000);
+	}
+
+	/**
+	 * Runs the scenarios given on the command line and prints their results.
+	 * Usage: SimulationEngine [-threads n] [-step seconds] [-events] file|directory...
+	 * Directories stand for the gallery files (AGS*) they contain.
+	 */
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		double step = 1;
+		boolean events = false;
+		ArrayList<File> files = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; ++i) {
+				if (args[i].equals("-threads")) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-step")) {
+					step = Double.parseDouble(args[++i]);
+				} else if (args[i].equals("-events")) {
+					events = true;
+				} else {
+					addScenarios(files, new File(args[i]));
+				}
+			}
+		} catch (IndexOutOfBoundsException | NumberFormatException e) {
+			files.clear();
+		}
+		if (files.isEmpty()) {
+			System.err.println("Usage: SimulationEngine [-threads n] [-step seconds] [-events] file|directory...");
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		SimulationEngine engine = new SimulationEngine(threads, step);
+		ArrayList<SimulationResult> results = engine.runAll(files);
+		int failed = 0;
+		for (SimulationResult result : results) {
+			System.out.println(result);
+			if (result.getError() != null) {
+				failed++;
+			} else if (events) {
+				for (DetectionEvent event : result.getDetections()) {
+					System.out.println("  " + event);
+				}
+			}
+		}
+		System.out.println(String.format("%d scenarios, %d failed, %d ms on %d threads", results.size(), failed,
+				(System.nanoTime() - start) / 1000000, threads));
+		System.exit(failed == 0 ? 0 : 2);
+	}
+
+	private static void addScenarios(ArrayList<File> files, File file) {
+		if (!file.isDirectory()) {
+			files.add(file);
+			return;
+		}
+		File[] galleries = file.listFiles((directory, name) -> name.startsWith("AGS"));
+		if (galleries != null) {
+			Arrays.sort(galleries);
+			files.addAll(Arrays.asList(galleries));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package artgallery;
+
+import artgallery.Actors.Actor;
+import artgallery.Actors.Guard;
+
+// Event of a discrete-event simulation, at a time in seconds: an actor
+// arriving at or leaving a route point, a guard starting to see a thief, or
+// the end of the global time. Events at the same time are ordered by type, so
+// that actors are in place before detections are reported, and the end comes
+// last.
+public class SimulationEvent implements Comparable<SimulationEvent> {
+	public static final int ARRIVAL = 0;
+	public static final int DEPARTURE = 1;
+	public static final int DETECTION = 2;
+	public static final int END = 3;
+
+	private int type;
+	private double time;
+	private Actor actor;
+	private int actorIndex;
+	private int routeIndex;
+	private DetectionEvent detection;
+
+	// Arrival or departure of the actor, with its index among the guards or
+	// the thieves, at one of its route points.
+	public SimulationEvent(int type, double time, Actor actor, int actorIndex, int routeIndex) {
+		this.type = type;
+		this.time = time;
+		this.actor = actor;
+		this.actorIndex = actorIndex;
+		this.routeIndex = routeIndex;
+	}
+
+	// Start of a detection.
+	public SimulationEvent(DetectionEvent detection) {
+		this(DETECTION, detection.getStart(), null, -1, -1);
+		this.detection = detection;
+	}
+
+	// End of the global time.
+	public SimulationEvent(double time) {
+		this(END, time, null, -1, -1);
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	// Actor arriving or leaving, or null for other events.
+	public Actor getActor() {
+		return actor;
+	}
+
+	public int getActorIndex() {
+		return actorIndex;
+	}
+
+	public int getRouteIndex() {
+		return routeIndex;
+	}
+
+	// Detection starting, or null for other events.
+	public DetectionEvent getDetection() {
+		return detection;
+	}
+
+	@Override
+	public int compareTo(SimulationEvent other) {
+		if (time != other.time) {
+			return Double.compare(time, other.time);
+		}
+		return Integer.compare(type, other.type);
+	}
+
+	@Override
+	public String toString() {
+		String actorName = (actor instanceof Guard ? "guard " : "thief ") + actorIndex;
+		switch (type) {
+		case ARRIVAL:
+			return String.format("%.3f: %s arrives at route point %d", time, actorName, routeIndex);
+		case DEPARTURE:
+			return String.format("%.3f: %s leaves route point %d", time, actorName, routeIndex);
+		case DETECTION:
+			return String.format("%.3f: %s", time, detection);
+		default:
+			return String.format("%.3f: end of global time", time);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package artgallery;
+
+import java.util.ArrayList;
+
+// Outcome of a headless simulation of one scenario: the detections of the
+// thieves, the share of the gallery covered by the guards over time and the
+// time spent on each part of the run, in milliseconds.
+public class SimulationResult {
+	private String name;
+	private String error;
+	private int guardCount;
+	private int thiefCount;
+	private int globalTime;
+	private ArrayList<DetectionEvent> detections = new ArrayList<DetectionEvent>();
+	// Coverage ratio sampled every coverageStep seconds from time 0.
+	private ArrayList<Double> coverage = new ArrayList<Double>();
+	private double coverageStep;
+	private int eventCount;
+	private long loadTime;
+	private long simulationTime;
+	private long coverageTime;
+	private long detectionTime;
+
+	public SimulationResult(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// Reason why the scenario could not be run, or null if it ran.
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public int getGuardCount() {
+		return guardCount;
+	}
+
+	public void setGuardCount(int guardCount) {
+		this.guardCount = guardCount;
+	}
+
+	public int getThiefCount() {
+		return thiefCount;
+	}
+
+	public void setThiefCount(int thiefCount) {
+		this.thiefCount = thiefCount;
+	}
+
+	public int getGlobalTime() {
+		return globalTime;
+	}
+
+	public void setGlobalTime(int globalTime) {
+		this.globalTime = globalTime;
+	}
+
+	public ArrayList<DetectionEvent> getDetections() {
+		return detections;
+	}
+
+	public void setDetections(ArrayList<DetectionEvent> detections) {
+		this.detections = detections;
+	}
+
+	// Time at which a thief is first seen, or NaN if none ever is.
+	public double getFirstDetection() {
+		double first = Double.NaN;
+		for (DetectionEvent event : detections) {
+			if (Double.isNaN(first) || event.getStart() < first) {
+				first = event.getStart();
+			}
+		}
+		return first;
+	}
+
+	public ArrayList<Double> getCoverage() {
+		return coverage;
+	}
+
+	public void addCoverage(double ratio) {
+		coverage.add(ratio);
+	}
+
+	public double getCoverageStep() {
+		return coverageStep;
+	}
+
+	public void setCoverageStep(double coverageStep) {
+		this.coverageStep = coverageStep;
+	}
+
+	public double getMinCoverage() {
+		double min = Double.NaN;
+		for (double ratio : coverage) {
+			min = Double.isNaN(min) ? ratio : Math.min(min, ratio);
+		}
+		return min;
+	}
+
+	public double getMeanCoverage() {
+		double sum = 0;
+		for (double ratio : coverage) {
+			sum += ratio;
+		}
+		return coverage.isEmpty() ? Double.NaN : sum / coverage.size();
+	}
+
+	// Number of events the simulation went through.
+	public int getEventCount() {
+		return eventCount;
+	}
+
+	public void setEventCount(int eventCount) {
+		this.eventCount = eventCount;
+	}
+
+	public long getLoadTime() {
+		return loadTime;
+	}
+
+	public void setLoadTime(long loadTime) {
+		this.loadTime = loadTime;
+	}
+
+	// Time spent going through the events, coverage excluded.
+	public long getSimulationTime() {
+		return simulationTime;
+	}
+
+	public void setSimulationTime(long simulationTime) {
+		this.simulationTime = simulationTime;
+	}
+
+	public long getCoverageTime() {
+		return coverageTime;
+	}
+
+	public void setCoverageTime(long coverageTime) {
+		this.coverageTime = coverageTime;
+	}
+
+	public long getDetectionTime() {
+		return detectionTime;
+	}
+
+	public void setDetectionTime(long detectionTime) {
+		this.detectionTime = detectionTime;
+	}
+
+	public long getTotalTime() {
+		return loadTime + simulationTime + coverageTime + detectionTime;
+	}
+
+	// One line summary of the scenario.
+	@Override
+	public String toString() {
+		if (error != null) {
+			return name + ": failed, " + error;
+		}
+		String first = detections.isEmpty() ? "none" : String.format("%.3f s", getFirstDetection());
+		return String.format(
+				"%s: %d guards, %d thieves, %d s, %d events, %d detections (first at %s), "
+						+ "coverage mean %.4f min %.4f, load %d ms, simulation %d ms, coverage %d ms, detection %d ms",
+				name, guardCount, thiefCount, globalTime, eventCount, detections.size(), first, getMeanCoverage(),
+				getMinCoverage(), loadTime, simulationTime, coverageTime, detectionTime);
+	}
+}
@@ -0,0 +1,24 @@
+package artgallery;
+
+import java.util.ArrayList;
+
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// Visibility engine running the rotational sweep from scratch on every query.
+// Needs no preprocessing, so it suits small galleries and one-off queries.
+public class SweepVisibilityEngine implements VisibilityEngine {
+	// Boundaries of the gallery oriented with the interior to their left,
+	// shared read-only by all queries.
+	private ArrayList<ArrayList<Vertex>> rings;
+
+	public SweepVisibilityEngine(Polygon gallery) {
+		this.rings = GeometricAlgorithms.interiorLeftRings(gallery);
+	}
+
+	@Override
+	public Polygon computeVisibilityRegion(Vertex viewPoint) {
+		GeometricAlgorithms GA = new GeometricAlgorithms();
+		return GA.computeVisibilityRegion(viewPoint, rings);
+	}
+}
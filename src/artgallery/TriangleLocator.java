@@ -0,0 +1,116 @@
+package artgallery;
+
+import java.util.HashMap;
+
+import artgallery.dataStructures.DCEL;
+import artgallery.dataStructures.TrapezoidMap;
+import artgallery.geometricalElements.Edge;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Trapezoid;
+import artgallery.geometricalElements.Vertex;
+
+// Point location in the triangulation of a gallery. The trapezoid of the point
+// is found in the cached trapezoidal map of the gallery, in expected O(log n),
+// and the triangles are then walked from one of its vertices along the segment
+// to the point. The segment stays inside the trapezoid, so the walk never
+// leaves the gallery, and it only crosses the triangles overlapping the
+// trapezoid.
+public class TriangleLocator {
+	private TrapezoidMap map;
+	private int triangleCount;
+	// Half-edge of a triangle leaving each vertex of the gallery, by position,
+	// from where the triangles around the vertex are reached.
+	private HashMap<Vertex, DCEL.HalfEdge> outgoing = new HashMap<Vertex, DCEL.HalfEdge>();
+
+	public TriangleLocator(Polygon gallery) {
+		this.map = gallery.getTrapezoidMap();
+		for (DCEL.Face triangle : gallery.computeTriangulationDCEL().getInnerFaces()) {
+			++triangleCount;
+			for (DCEL.HalfEdge h : triangle.getHalfEdges()) {
+				outgoing.put(h.getOrigin(), h);
+			}
+		}
+	}
+
+	// Triangle containing the point, or null if it lies outside the gallery.
+	// Points on an edge or at a vertex get one of the triangles touching them.
+	public DCEL.Face locate(Vertex v) {
+		if (map.locatePoint(v) == TrapezoidMap.OUTSIDE) {
+			return null;
+		}
+		return walk(start(map.locate(v), v), v);
+	}
+
+	// Whether the point lies inside the triangle or on its boundary.
+	public static boolean contains(DCEL.Face triangle, Vertex v) {
+		for (DCEL.HalfEdge h : triangle.getHalfEdges()) {
+			if (GeometricKernel.orientation(h.getOrigin(), h.getDestination(), v) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Vertex of the gallery from which the segment to the point stays in the
+	// gallery. The top vertex of a trapezoid inside the gallery sees all of it.
+	// A point on the boundary may get a trapezoid outside, in which case it
+	// lies at one of its vertices or on one of its edges, along which it is
+	// reached.
+	private Vertex start(Trapezoid t, Vertex v) {
+		if (t.isInside()) {
+			return t.getTop();
+		}
+		for (Vertex corner : new Vertex[] { t.getTop(), t.getBottom() }) {
+			if (corner != null && GeometricAlgorithms.samePosition(corner, v)) {
+				return corner;
+			}
+		}
+		for (Edge e : new Edge[] { t.getLeftEdge(), t.getRightEdge() }) {
+			if (e != null && GeometricKernel.orientation(e.getStartVertex(), e.getEndVertex(), v) == 0) {
+				return e.getStartVertex();
+			}
+		}
+		return t.getTop();
+	}
+
+	// Walks the triangles crossed by the segment from a vertex of the gallery
+	// to the point, and returns the one containing the point.
+	private DCEL.Face walk(Vertex from, Vertex v) {
+		DCEL.HalfEdge h = from == null ? null : outgoing.get(from);
+		if (h == null) {
+			return null;
+		}
+		// Triangle around the vertex whose angle contains the direction of the
+		// point, rotating counter-clockwise from the boundary.
+		while (h.getTwin().getFace().isInside() && h.getTwin().getNext() != outgoing.get(from)) {
+			h = h.getTwin().getNext();
+		}
+		DCEL.HalfEdge first = h;
+		while (GeometricKernel.orientation(from, h.getDestination(), v) < 0
+				|| GeometricKernel.orientation(from, h.getNext().getDestination(), v) > 0) {
+			h = h.getPrev().getTwin();
+			if (!h.getFace().isInside() || h == first) {
+				return null;
+			}
+		}
+
+		// Cross the edge opposite the vertex, then in every triangle the other
+		// edge crossed by the segment, on the side of its third vertex.
+		DCEL.Face current = h.getFace();
+		DCEL.HalfEdge entry = h.getNext();
+		for (int steps = 0; steps <= triangleCount; ++steps) {
+			if (contains(current, v)) {
+				return current;
+			}
+			DCEL.HalfEdge across = entry.getTwin();
+			if (!across.getFace().isInside()) {
+				return null;
+			}
+			current = across.getFace();
+			Vertex apex = across.getNext().getDestination();
+			entry = GeometricKernel.orientation(from, v, apex) > 0 ? across.getNext()
+					: across.getNext().getNext();
+		}
+		return null;
+	}
+}
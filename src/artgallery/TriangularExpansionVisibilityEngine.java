@@ -0,0 +1,183 @@
+package artgallery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+import artgallery.dataStructures.DCEL;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Triangular expansion visibility algorithm by Bungiu, Hemmer, Hershberger,
+ * Huang and Kroller. The gallery is triangulated once, and every query
+ * locates the triangle of the viewpoint and expands through its edges into
+ * the neighboring triangles, narrowing the window of visible directions as it
+ * goes. Each expansion stops at the boundary of the gallery, so on typical
+ * floor plans a query only touches the triangles it actually sees.
+ */
+public class TriangularExpansionVisibilityEngine implements VisibilityEngine {
+	private ArrayList<DCEL.Face> triangles;
+	private TriangleLocator locator;
+	// Triangle of the last query of each thread, where the search for its
+	// next one starts.
+	private ThreadLocal<DCEL.Face> lastTriangle = new ThreadLocal<DCEL.Face>();
+
+	public TriangularExpansionVisibilityEngine(Polygon gallery) {
+		this.triangles = gallery.computeTriangulationDCEL().getInnerFaces();
+		this.locator = new TriangleLocator(gallery);
+	}
+
+	@Override
+	public Polygon computeVisibilityRegion(Vertex viewPoint) {
+		ArrayList<Vertex> visibilityPolygonVertices = expand(viewPoint, null, null);
+		if (visibilityPolygonVertices == null || visibilityPolygonVertices.size() < 3) {
+			return null;
+		}
+		return new Polygon(visibilityPolygonVertices);
+	}
+
+	// Only expands the windows overlapping the wedge, so the work is
+	// proportional to the triangles seen inside it.
+	@Override
+	public ArrayList<Vertex> computeVisibilityChain(Vertex viewPoint, Vertex right, Vertex left) {
+		ArrayList<Vertex> visibilityPolygonVertices = expand(viewPoint, right, left);
+		if (visibilityPolygonVertices == null) {
+			return null;
+		}
+		return GeometricAlgorithms.chainBetween(visibilityPolygonVertices, right, left);
+	}
+
+	// Boundary of the visibility polygon in counter-clockwise order, or null
+	// if the viewpoint lies outside the gallery. Given a wedge from right to
+	// left, the windows outside of it are not expanded and the boundary is
+	// only complete inside the wedge.
+	private ArrayList<Vertex> expand(Vertex viewPoint, Vertex right, Vertex left) {
+		DCEL.Face start = locate(viewPoint);
+		if (start == null) {
+			return null;
+		}
+
+		// Windows through the edges of the starting triangle, in
+		// counter-clockwise order around the viewpoint.
+		ArrayList<Window> initial = new ArrayList<Window>();
+		ArrayList<Vertex> visibilityPolygonVertices = new ArrayList<Vertex>();
+		DCEL.HalfEdge atVertex = null;
+		for (DCEL.HalfEdge h : start.getHalfEdges()) {
+			if (GeometricAlgorithms.samePosition(h.getOrigin(), viewPoint)) {
+				atVertex = h;
+			}
+		}
+		if (atVertex == null) {
+			for (DCEL.HalfEdge h : start.getHalfEdges()) {
+				initial.add(new Window(h, h.getOrigin(), h.getDestination()));
+			}
+		} else {
+			// The viewpoint is a vertex of the gallery: look through the far
+			// edge of every triangle around it, starting from the boundary.
+			DCEL.HalfEdge h = atVertex;
+			while (h.getTwin().getFace().isInside() && h.getTwin().getNext() != atVertex) {
+				h = h.getTwin().getNext();
+			}
+			visibilityPolygonVertices.add(new Vertex(viewPoint.getX(), viewPoint.getY()));
+			DCEL.HalfEdge first = h;
+			do {
+				initial.add(new Window(h.getNext(), h.getDestination(), h.getNext().getDestination()));
+				h = h.getPrev().getTwin();
+			} while (h.getFace().isInside() && h != first);
+		}
+
+		Deque<Window> windows = new ArrayDeque<Window>();
+		for (int i = initial.size() - 1; i >= 0; --i) {
+			windows.push(initial.get(i));
+		}
+		while (!windows.isEmpty()) {
+			Window window = windows.pop();
+			if (right != null && !overlaps(viewPoint, window, right, left)) {
+				continue;
+			}
+			DCEL.HalfEdge edge = window.edge;
+			DCEL.HalfEdge across = edge.getTwin();
+			if (!across.getFace().isInside()) {
+				// The window ends at the boundary of the gallery.
+				GeometricAlgorithms.addVisibilityVertex(visibilityPolygonVertices, GeometricAlgorithms
+						.rayIntersection(viewPoint, window.right, edge.getOrigin(), edge.getDestination()));
+				GeometricAlgorithms.addVisibilityVertex(visibilityPolygonVertices, GeometricAlgorithms
+						.rayIntersection(viewPoint, window.left, edge.getOrigin(), edge.getDestination()));
+				continue;
+			}
+
+			// Continue through the two other edges of the next triangle, splitting
+			// the window at its third vertex when it falls inside.
+			DCEL.HalfEdge rightEdge = across.getNext();
+			DCEL.HalfEdge leftEdge = rightEdge.getNext();
+			Vertex apex = rightEdge.getDestination();
+			if (GeometricKernel.orientation(viewPoint, window.right, apex) <= 0) {
+				windows.push(new Window(leftEdge, window.right, window.left));
+			} else if (GeometricKernel.orientation(viewPoint, window.left, apex) >= 0) {
+				windows.push(new Window(rightEdge, window.right, window.left));
+			} else {
+				windows.push(new Window(leftEdge, apex, window.left));
+				windows.push(new Window(rightEdge, window.right, apex));
+			}
+		}
+
+		int size = visibilityPolygonVertices.size();
+		if (size > 1 && GeometricAlgorithms.samePosition(visibilityPolygonVertices.get(0),
+				visibilityPolygonVertices.get(size - 1))) {
+			visibilityPolygonVertices.remove(size - 1);
+		}
+		return visibilityPolygonVertices;
+	}
+
+	// Whether the directions through a window may meet the wedge, rays
+	// included.
+	private static boolean overlaps(Vertex viewPoint, Window window, Vertex right, Vertex left) {
+		return GeometricAlgorithms.inWedge(viewPoint, right, left, window.right, true)
+				|| GeometricAlgorithms.inWedge(viewPoint, right, left, window.left, true)
+				|| GeometricAlgorithms.inWedge(viewPoint, window.right, window.left, right, true)
+				|| GeometricAlgorithms.inWedge(viewPoint, window.right, window.left, left, true);
+	}
+
+	// Finds the triangle containing the viewpoint by walking from the triangle
+	// of the last query towards it, and through the trapezoidal map of the
+	// gallery if that walk hits the boundary. Returns null if the viewpoint
+	// lies outside the gallery.
+	private DCEL.Face locate(Vertex v) {
+		DCEL.Face current = lastTriangle.get();
+		for (int steps = 0; current != null && steps < triangles.size(); ++steps) {
+			DCEL.HalfEdge exit = null;
+			for (DCEL.HalfEdge h : current.getHalfEdges()) {
+				if (GeometricKernel.orientation(h.getOrigin(), h.getDestination(), v) < 0) {
+					exit = h;
+					break;
+				}
+			}
+			if (exit == null) {
+				lastTriangle.set(current);
+				return current;
+			}
+			current = exit.getTwin().getFace().isInside() ? exit.getTwin().getFace() : null;
+		}
+		DCEL.Face found = locator.locate(v);
+		if (found != null) {
+			lastTriangle.set(found);
+		}
+		return found;
+	}
+
+	// Range of directions from the viewpoint, between the rays through the
+	// right (clockwise) and left (counter-clockwise) vertices, looking across
+	// an edge of the triangulation.
+	private static class Window {
+		private DCEL.HalfEdge edge;
+		private Vertex right;
+		private Vertex left;
+
+		Window(DCEL.HalfEdge edge, Vertex right, Vertex left) {
+			this.edge = edge;
+			this.right = right;
+			this.left = left;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+// Computes visibility polygons of viewpoints inside a fixed gallery. Each
+// engine may preprocess the gallery once and then answer any number of
+// queries against it, from any number of threads at the same time.
+public interface VisibilityEngine {
+	// Returns the visibility polygon of the viewpoint as a counter-clockwise
+	// polygon, or null if the viewpoint lies outside the gallery.
+	public Polygon computeVisibilityRegion(Vertex viewPoint);
+
+	// Returns the vertices of the visibility polygon of the viewpoint between
+	// two of its vertices, right and left, going counter-clockwise and leaving
+	// both out. Returns null if the viewpoint lies outside the gallery or the
+	// polygon misses either vertex. Engines that can restrict their work to
+	// the wedge between the two override this; by default the whole polygon
+	// is computed.
+	public default ArrayList<Vertex> computeVisibilityChain(Vertex viewPoint, Vertex right, Vertex left) {
+		Polygon region = computeVisibilityRegion(viewPoint);
+		return region == null ? null : GeometricAlgorithms.chainBetween(region.getVertices(), right, left);
+	}
+
+	// Returns the visibility polygon of the viewpoint as the fan of triangles
+	// joining the viewpoint to each of its edges.
+	public default ArrayList<Polygon> computeVisibilityPolygon(Vertex viewPoint) {
+		return GeometricAlgorithms.visibilityFan(viewPoint, computeVisibilityRegion(viewPoint));
+	}
+
+	// Returns the visibility polygons of several viewpoints, in the same order,
+	// computing them in parallel on the common fork-join pool.
+	public default ArrayList<ArrayList<Polygon>> computeVisibilityPolygons(List<Vertex> viewPoints) {
+		return viewPoints.parallelStream().map(this::computeVisibilityPolygon)
+				.collect(Collectors.toCollection(ArrayList::new));
+	}
+}
@@ -0,0 +1,177 @@
+package artgallery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import artgallery.Actors.Guard;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.RoutePoint;
+import artgallery.geometricalElements.Vertex;
+
+/*
+ * Visibility of every guard over the whole simulation, computed ahead of
+ * time from the guard schedules. The schedule of a guard is split into spans
+ * sorted by start time:
+ * - while the guard stands still, one span holds its visibility polygon and
+ *   fan, shared by all the spans at the same position;
+ * - while it walks, one span per piece of its kinetic visibility polygon
+ *   (see KineticVisibility), from one event to the next.
+ * A lookup by time is a binary search over the spans of the guard, followed
+ * for a walking guard by moving the shadow points of the piece, in O(k).
+ */
+public class VisibilityTimeline {
+	// Step past an event, relative to the duration of the segment, at which
+	// the next piece is computed.
+	private static final double EVENT_STEP = 1e-6;
+
+	private Polygon gallery;
+	private VisibilityEngine engine;
+	private ArrayList<ArrayList<Span>> timelines;
+
+	// Visibility of the guards from the start of the simulation to the
+	// horizon, in seconds. The guards are processed in parallel.
+	public VisibilityTimeline(Polygon gallery, VisibilityEngine engine, List<Guard> guards, double horizon) {
+		this.gallery = gallery;
+		this.engine = engine;
+		// Lookups of the gallery built on first use, built here before the
+		// parallel part.
+		gallery.getEdgeIndex();
+		if (!gallery.getVertices().isEmpty()) {
+			gallery.getMatchingVertex(gallery.getVertices().get(0));
+		}
+		this.timelines = IntStream.range(0, guards.size()).parallel()
+				.mapToObj(i -> timeline(guards.get(i).getRoutePoints(), horizon))
+				.collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	// Part of the schedule of a guard with a single structure of its
+	// visibility polygon: either a fixed polygon and its fan, or a piece of a
+	// kinetic polygon.
+	private static class Span {
+		private double start;
+		private Polygon region;
+		private ArrayList<Polygon> fan;
+		private KineticVisibility.Piece piece;
+	}
+
+	private ArrayList<Span> timeline(ArrayList<RoutePoint> route, double horizon) {
+		ArrayList<Span> spans = new ArrayList<Span>();
+		if (route.isEmpty()) {
+			return spans;
+		}
+		HashMap<Vertex, Span> standing = new HashMap<Vertex, Span>();
+		spans.add(standingSpan(standing, route.get(0).toVertex(), Double.NEGATIVE_INFINITY));
+		for (int i = 0; i + 1 < route.size() && route.get(i).getTimeStamp() < horizon; ++i) {
+			RoutePoint r1 = route.get(i);
+			RoutePoint r2 = route.get(i + 1);
+			if (r1.getTimeStamp() == r2.getTimeStamp()) {
+				continue;
+			}
+			if (r1.toVertex().equals(r2.toVertex())) {
+				spans.add(standingSpan(standing, r1.toVertex(), r1.getTimeStamp()));
+				continue;
+			}
+			KineticVisibility kinetic = new KineticVisibility(gallery, engine, r1.toVertex(), r2.toVertex(),
+					r1.getTimeStamp(), r2.getTimeStamp());
+			double end = Math.min(r2.getTimeStamp(), horizon);
+			double step = EVENT_STEP * (r2.getTimeStamp() - r1.getTimeStamp());
+			double previous = r1.getTimeStamp();
+			for (double time = previous; time <= end;) {
+				KineticVisibility.Piece piece = kinetic.getPiece(time);
+				// A structure only holding at an instant is skipped.
+				if (piece.getEnd() > piece.getStart()) {
+					Span span = new Span();
+					span.start = Math.max(piece.getStart(), previous);
+					span.piece = piece;
+					spans.add(span);
+					previous = piece.getEnd();
+				}
+				time = Math.max(time, piece.getEnd()) + step;
+			}
+		}
+		RoutePoint last = route.get(route.size() - 1);
+		if (route.size() > 1 && last.getTimeStamp() < horizon) {
+			spans.add(standingSpan(standing, last.toVertex(), last.getTimeStamp()));
+		}
+		return spans;
+	}
+
+	// Span of a guard standing at the given position, sharing the polygon
+	// and fan of previous spans at the same position.
+	private Span standingSpan(HashMap<Vertex, Span> standing, Vertex position, double start) {
+		Span shared = standing.get(position);
+		Span span = new Span();
+		span.start = start;
+		if (shared != null) {
+			span.region = shared.region;
+			span.fan = shared.fan;
+		} else {
+			span.region = engine.computeVisibilityRegion(position);
+			span.fan = span.region == null ? new ArrayList<Polygon>()
+					: GeometricAlgorithms.visibilityFan(position, span.region);
+			standing.put(position, span);
+		}
+		return span;
+	}
+
+	// Span of the guard holding at the given time, by binary search, or null
+	// if the guard has no route.
+	private Span lookup(int guard, double time) {
+		ArrayList<Span> spans = timelines.get(guard);
+		if (spans.isEmpty()) {
+			return null;
+		}
+		int low = 0;
+		int high = spans.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) / 2;
+			if (spans.get(middle).start <= time) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return spans.get(low);
+	}
+
+	// Visibility polygon of the guard at the given time, in seconds, or null
+	// if it has none. Polygons of standing guards are shared and must not be
+	// modified.
+	public Polygon getVisibilityRegion(int guard, double time) {
+		Span span = lookup(guard, time);
+		if (span == null) {
+			return null;
+		}
+		return span.piece == null ? span.region : span.piece.getVisibilityRegion(time);
+	}
+
+	// Triangles of the visibility polygon of the guard at the given time.
+	public ArrayList<Polygon> getVisibilityPolygon(int guard, double time) {
+		Span span = lookup(guard, time);
+		if (span == null) {
+			return new ArrayList<Polygon>();
+		}
+		if (span.piece == null) {
+			return span.fan;
+		}
+		Polygon region = span.piece.getVisibilityRegion(time);
+		return region == null ? new ArrayList<Polygon>()
+				: GeometricAlgorithms.visibilityFan(span.piece.getViewPoint(time), region);
+	}
+
+	// Number of spans with a structure of their own, over all guards.
+	public int getSpanCount() {
+		int count = 0;
+		for (ArrayList<Span> spans : timelines) {
+			count += spans.size();
+		}
+		return count;
+	}
+
+	public int getGuardCount() {
+		return timelines.size();
+	}
+}
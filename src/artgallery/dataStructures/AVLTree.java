@@ -11,6 +11,8 @@ package artgallery.dataStructures;
 //boolean remove( x )    --> Return true if x was present
 //Comparable findMin( )  --> Return smallest item
 //Comparable findMax( )  --> Return largest item
+//Comparable floor( x )  --> Return largest item <= x
+//Comparable higher( x ) --> Return smallest item > x
 //boolean isEmpty( )     --> Return true if empty; else false
 //void makeEmpty( )      --> Remove all items
 //void printTree( )      --> Print tree in sorted order
@@ -102,6 +104,52 @@ public class AVLTree<AnyType extends Comparable<? super AnyType>> {
 		return findMax(root).element;
 	}
 
+	/**
+	 * Find the largest item in the tree that is smaller than or equal to x.
+	 * 
+	 * @param x
+	 *            the item to search for.
+	 * @return the matching item or null if there is none.
+	 */
+	public AnyType floor(AnyType x) {
+		AvlNode<AnyType> t = root;
+		AnyType best = null;
+		while (t != null) {
+			int compareResult = x.compareTo(t.element);
+
+			if (compareResult < 0)
+				t = t.left;
+			else if (compareResult > 0) {
+				best = t.element;
+				t = t.right;
+			} else
+				return t.element; // Match
+		}
+		return best;
+	}
+
+	/**
+	 * Find the smallest item in the tree that is strictly larger than x.
+	 * 
+	 * @param x
+	 *            the item to search for.
+	 * @return the matching item or null if there is none.
+	 */
+	public AnyType higher(AnyType x) {
+		AvlNode<AnyType> t = root;
+		AnyType best = null;
+		while (t != null) {
+			int compareResult = x.compareTo(t.element);
+
+			if (compareResult < 0) {
+				best = t.element;
+				t = t.left;
+			} else
+				t = t.right;
+		}
+		return best;
+	}
+
 	/**
 	 * Find an item in the tree.
 	 * 
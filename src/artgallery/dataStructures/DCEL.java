@@ -0,0 +1,411 @@
+package artgallery.dataStructures;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import artgallery.GeometricKernel;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/**
+ * Doubly-connected edge list of a polygonal subdivision. Every edge is stored
+ * as a pair of twin half-edges, each bounding the face to its left and linked
+ * to the next and previous half-edges along the boundary of that face.
+ *
+ * The subdivision starts from the boundaries of a polygon with holes, and is
+ * refined by inserting diagonals, which either split a face in two or connect
+ * two boundary components of the same face.
+ */
+public class DCEL {
+	private ArrayList<HalfEdge> halfEdges = new ArrayList<HalfEdge>();
+	private ArrayList<Face> faces = new ArrayList<Face>();
+	private IdentityHashMap<Vertex, ArrayList<HalfEdge>> outgoing = new IdentityHashMap<Vertex, ArrayList<HalfEdge>>();
+
+	// Connected components of the edge graph, as a union-find over the ids of
+	// the boundaries the vertices initially belonged to.
+	private IdentityHashMap<Vertex, Integer> components = new IdentityHashMap<Vertex, Integer>();
+	private ArrayList<Integer> componentParent = new ArrayList<Integer>();
+
+	/**
+	 * Construct the subdivision of a polygon with holes. The first ring is the
+	 * outer boundary in counter-clockwise order, the remaining ones are the holes
+	 * in clockwise order, so that the interior always lies to their left.
+	 */
+	public DCEL(ArrayList<ArrayList<Vertex>> rings) {
+		Face interior = new Face(true);
+		Face exterior = new Face(false);
+		addFace(interior);
+		addFace(exterior);
+
+		for (int r = 0; r < rings.size(); ++r) {
+			ArrayList<Vertex> ring = rings.get(r);
+			int n = ring.size();
+			componentParent.add(r);
+			Face outside = r == 0 ? exterior : new Face(false);
+
+			HalfEdge[] inner = new HalfEdge[n];
+			HalfEdge[] outer = new HalfEdge[n];
+			for (int i = 0; i < n; ++i) {
+				components.put(ring.get(i), r);
+				inner[i] = createEdge(ring.get(i), ring.get((i + 1) % n));
+				outer[i] = inner[i].twin;
+				inner[i].face = interior;
+				outer[i].face = outside;
+			}
+			for (int i = 0; i < n; ++i) {
+				link(inner[i], inner[(i + 1) % n]);
+				link(outer[(i + 1) % n], outer[i]);
+			}
+
+			if (r == 0) {
+				interior.outerComponent = inner[0];
+				exterior.innerComponents.add(outer[0]);
+			} else {
+				interior.innerComponents.add(inner[0]);
+				outside.outerComponent = outer[0];
+				addFace(outside);
+			}
+		}
+	}
+
+	public ArrayList<HalfEdge> getHalfEdges() {
+		return halfEdges;
+	}
+
+	public ArrayList<Face> getFaces() {
+		return faces;
+	}
+
+	// Returns the faces that cover the interior of the polygon.
+	public ArrayList<Face> getInnerFaces() {
+		ArrayList<Face> innerFaces = new ArrayList<Face>();
+		for (Face f : faces) {
+			if (f.inside) {
+				innerFaces.add(f);
+			}
+		}
+		return innerFaces;
+	}
+
+	// Returns the half-edges having the given vertex as origin.
+	public ArrayList<HalfEdge> getOutgoing(Vertex v) {
+		ArrayList<HalfEdge> edges = outgoing.get(v);
+		return edges == null ? new ArrayList<HalfEdge>() : edges;
+	}
+
+	// Whether two vertices are connected through the edges of the subdivision,
+	// in which case a diagonal between them splits a face.
+	public boolean areConnected(Vertex v1, Vertex v2) {
+		return findComponent(components.get(v1)) == findComponent(components.get(v2));
+	}
+
+	/**
+	 * Insert the diagonal between two vertices of the same face, locating the
+	 * face by the angle of the diagonal at both of its endpoints. Returns the
+	 * new half-edge going from v1 to v2.
+	 */
+	public HalfEdge addDiagonal(Vertex v1, Vertex v2) {
+		return connect(findWedge(v1, v2), findWedge(v2, v1));
+	}
+
+	/**
+	 * Insert a diagonal between the origins of two half-edges bounding the same
+	 * face. Returns the new half-edge going from the origin of h1 to the origin
+	 * of h2, which bounds the face containing h2 while its twin bounds the face
+	 * containing h1.
+	 */
+	public HalfEdge connect(HalfEdge h1, HalfEdge h2) {
+		Face f = h1.face;
+		if (h2.face != f) {
+			throw new IllegalArgumentException("Diagonal endpoints do not share a face");
+		}
+		Vertex v1 = h1.origin;
+		Vertex v2 = h2.origin;
+		HalfEdge p1 = h1.prev;
+		HalfEdge p2 = h2.prev;
+		HalfEdge d = createEdge(v1, v2);
+		HalfEdge e = d.twin;
+		link(p1, d);
+		link(d, h2);
+		link(p2, e);
+		link(e, h1);
+		d.face = f;
+		e.face = f;
+
+		int c1 = findComponent(components.get(v1));
+		int c2 = findComponent(components.get(v2));
+		if (c1 != c2) {
+			// Two boundary components of the face become a single one.
+			int outerComponent = f.outerComponent == null ? -1 : findComponent(components.get(f.outerComponent.origin));
+			int dropped = outerComponent == c2 ? c1 : c2;
+			for (int i = 0; i < f.innerComponents.size(); ++i) {
+				if (findComponent(components.get(f.innerComponents.get(i).origin)) == dropped) {
+					f.innerComponents.remove(i);
+					break;
+				}
+			}
+			if (f.outerComponent == null && f.innerComponents.isEmpty()) {
+				f.innerComponents.add(d);
+			}
+			componentParent.set(c2, c1);
+			return d;
+		}
+
+		// The face is split in two. Walk both new cycles in lockstep and move
+		// the shorter one into a new face, so that repeated splits stay cheap.
+		HalfEdge x = d.next;
+		HalfEdge y = e.next;
+		while (x != d && y != e) {
+			x = x.next;
+			y = y.next;
+		}
+		HalfEdge shorter = x == d ? d : e;
+		Face g = new Face(f.inside);
+		g.outerComponent = shorter;
+		HalfEdge h = shorter;
+		do {
+			h.face = g;
+			h = h.next;
+		} while (h != shorter);
+		f.outerComponent = shorter == d ? e : d;
+		addFace(g);
+
+		// Holes of the original face lying inside the new one move along.
+		for (int i = f.innerComponents.size() - 1; i >= 0; --i) {
+			HalfEdge component = f.innerComponents.get(i);
+			if (insideCycle(shorter, component.origin)) {
+				f.innerComponents.remove(i);
+				g.innerComponents.add(component);
+				HalfEdge c = component;
+				do {
+					c.face = g;
+					c = c.next;
+				} while (c != component);
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Check the consistency of the twin, next, previous and face pointers of
+	 * every half-edge. Throws an IllegalStateException describing the first
+	 * inconsistency found.
+	 */
+	public void validate() {
+		for (HalfEdge h : halfEdges) {
+			if (h.twin == null || h.twin.twin != h || h.twin == h) {
+				throw new IllegalStateException("Invalid twin for half-edge " + h);
+			}
+			if (h.next == null || h.next.prev != h || h.prev == null || h.prev.next != h) {
+				throw new IllegalStateException("Invalid next/prev links for half-edge " + h);
+			}
+			if (h.next.origin != h.twin.origin) {
+				throw new IllegalStateException("Half-edge " + h + " does not end where its successor starts");
+			}
+			if (h.face == null || h.next.face != h.face) {
+				throw new IllegalStateException("Inconsistent face along half-edge " + h);
+			}
+		}
+		for (Face f : faces) {
+			if (f.outerComponent != null && f.outerComponent.face != f) {
+				throw new IllegalStateException("Outer component not bounding its face");
+			}
+			for (HalfEdge h : f.innerComponents) {
+				if (h.face != f) {
+					throw new IllegalStateException("Inner component not bounding its face");
+				}
+			}
+		}
+	}
+
+	// Finds the half-edge leaving v1 whose face contains the direction towards
+	// v2 in its angle at v1.
+	private HalfEdge findWedge(Vertex v1, Vertex v2) {
+		for (HalfEdge h : getOutgoing(v1)) {
+			Vertex u = h.twin.origin;
+			Vertex w = h.prev.origin;
+			int uw = GeometricKernel.orientation(v1, u, w);
+			int ud = GeometricKernel.orientation(v1, u, v2);
+			int dw = GeometricKernel.orientation(v1, v2, w);
+			boolean inside = uw > 0 ? (ud > 0 && dw > 0) : (ud > 0 || dw > 0);
+			if (inside) {
+				return h;
+			}
+		}
+		throw new IllegalArgumentException("No face at " + v1 + " contains the diagonal to " + v2);
+	}
+
+	// Crossing number test of a point against the cycle of half-edges starting
+	// at the given one.
+	private boolean insideCycle(HalfEdge start, Vertex v) {
+		boolean inside = false;
+		HalfEdge h = start;
+		do {
+			Vertex a = h.origin;
+			Vertex b = h.twin.origin;
+			// The point lies left of the crossing when it is on the left of the
+			// upward oriented edge.
+			if ((a.getY() > v.getY()) != (b.getY() > v.getY())) {
+				int side = GeometricKernel.orientation(a, b, v);
+				if (b.getY() > v.getY() ? side > 0 : side < 0) {
+					inside = !inside;
+				}
+			}
+			h = h.next;
+		} while (h != start);
+		return inside;
+	}
+
+	private void addFace(Face f) {
+		f.index = faces.size();
+		faces.add(f);
+	}
+
+	private HalfEdge createEdge(Vertex v1, Vertex v2) {
+		HalfEdge h = new HalfEdge(v1);
+		HalfEdge t = new HalfEdge(v2);
+		h.twin = t;
+		t.twin = h;
+		halfEdges.add(h);
+		halfEdges.add(t);
+		addOutgoing(h);
+		addOutgoing(t);
+		return h;
+	}
+
+	private void addOutgoing(HalfEdge h) {
+		if (!outgoing.containsKey(h.origin)) {
+			outgoing.put(h.origin, new ArrayList<HalfEdge>());
+		}
+		outgoing.get(h.origin).add(h);
+	}
+
+	private static void link(HalfEdge h, HalfEdge next) {
+		h.next = next;
+		next.prev = h;
+	}
+
+	private int findComponent(int c) {
+		while (componentParent.get(c) != c) {
+			componentParent.set(c, componentParent.get(componentParent.get(c)));
+			c = componentParent.get(c);
+		}
+		return c;
+	}
+
+	/**
+	 * Half of an edge of the subdivision, oriented so that its face lies to the
+	 * left.
+	 */
+	public static class HalfEdge {
+		private Vertex origin;
+		private HalfEdge twin;
+		private HalfEdge next;
+		private HalfEdge prev;
+		private Face face;
+
+		HalfEdge(Vertex origin) {
+			this.origin = origin;
+		}
+
+		public Vertex getOrigin() {
+			return origin;
+		}
+
+		public Vertex getDestination() {
+			return twin.origin;
+		}
+
+		public HalfEdge getTwin() {
+			return twin;
+		}
+
+		public HalfEdge getNext() {
+			return next;
+		}
+
+		public HalfEdge getPrev() {
+			return prev;
+		}
+
+		public Face getFace() {
+			return face;
+		}
+
+		@Override
+		public String toString() {
+			return origin.toString() + twin.origin.toString();
+		}
+	}
+
+	/**
+	 * Face of the subdivision, bounded by an outer cycle of half-edges (null for
+	 * the unbounded face) and any number of inner cycles.
+	 */
+	public static class Face {
+		private HalfEdge outerComponent;
+		private ArrayList<HalfEdge> innerComponents = new ArrayList<HalfEdge>();
+		private boolean inside;
+		private int index;
+
+		Face(boolean inside) {
+			this.inside = inside;
+		}
+
+		// Position of the face in the list of faces of its subdivision, so that
+		// data about faces can be kept in arrays.
+		public int getIndex() {
+			return index;
+		}
+
+		public HalfEdge getOuterComponent() {
+			return outerComponent;
+		}
+
+		public ArrayList<HalfEdge> getInnerComponents() {
+			return innerComponents;
+		}
+
+		// Whether the face covers part of the interior of the polygon.
+		public boolean isInside() {
+			return inside;
+		}
+
+		// Half-edges along the outer boundary, in counter-clockwise order.
+		public ArrayList<HalfEdge> getHalfEdges() {
+			ArrayList<HalfEdge> boundary = new ArrayList<HalfEdge>();
+			if (outerComponent != null) {
+				HalfEdge h = outerComponent;
+				do {
+					boundary.add(h);
+					h = h.next;
+				} while (h != outerComponent);
+			}
+			return boundary;
+		}
+
+		public ArrayList<Vertex> getVertices() {
+			ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+			for (HalfEdge h : getHalfEdges()) {
+				vertices.add(h.origin);
+			}
+			return vertices;
+		}
+
+		// Interior faces sharing an edge with this one. For the faces of a
+		// triangulation these are the neighbors in its dual graph.
+		public ArrayList<Face> getAdjacentFaces() {
+			ArrayList<Face> adjacent = new ArrayList<Face>();
+			for (HalfEdge h : getHalfEdges()) {
+				if (h.twin.face.inside) {
+					adjacent.add(h.twin.face);
+				}
+			}
+			return adjacent;
+		}
+
+		public Polygon toPolygon() {
+			return new Polygon(getVertices());
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package artgallery.dataStructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import artgallery.GeometricKernel;
+import artgallery.geometricalElements.Edge;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Vertex;
+
+/**
+ * Uniform grid over the edges of a polygon and its holes. The bounding box of
+ * the polygon is split into roughly as many cells as there are edges, and
+ * every cell lists the edges crossing it, so that ray, segment and range
+ * queries only test the edges close to them instead of all of them.
+ *
+ * Rays and segments walk the cells they cross in order (Amanatides and Woo),
+ * which lets the first hit of a ray be reported as soon as the cell holding
+ * it has been searched. The grid is static: it is built once for a polygon
+ * and never updated.
+ */
+public class EdgeGrid {
+	// Upper bound on the number of cells along each axis.
+	private static final int MAX_CELLS = 2048;
+
+	private Edge[] edges;
+	private double minX, minY, maxX, maxY;
+	private double cellWidth, cellHeight;
+	private int columns, rows;
+	// Edges of cell c are cellEdges[cellStart[c]] to cellEdges[cellStart[c + 1] - 1].
+	private int[] cellStart;
+	private int[] cellEdges;
+
+	/**
+	 * Construct the grid over the boundary and holes of the given polygon.
+	 */
+	public EdgeGrid(Polygon polygon) {
+		this(polygon.getEdgesAndHoles());
+	}
+
+	/**
+	 * Construct the grid over an arbitrary list of edges.
+	 */
+	public EdgeGrid(ArrayList<Edge> edgeList) {
+		this.edges = edgeList.toArray(new Edge[0]);
+		minX = minY = Double.POSITIVE_INFINITY;
+		maxX = maxY = Double.NEGATIVE_INFINITY;
+		for (Edge e : edges) {
+			for (Vertex v : new Vertex[] { e.getStartVertex(), e.getEndVertex() }) {
+				minX = Math.min(minX, v.getX());
+				minY = Math.min(minY, v.getY());
+				maxX = Math.max(maxX, v.getX());
+				maxY = Math.max(maxY, v.getY());
+			}
+		}
+		if (edges.length == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+
+		// About one cell per edge, keeping the cells close to square.
+		double width = Math.max(maxX - minX, Double.MIN_NORMAL);
+		double height = Math.max(maxY - minY, Double.MIN_NORMAL);
+		int cells = Math.max(1, edges.length);
+		columns = (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil(Math.sqrt(cells * width / height))));
+		rows = (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil((double) cells / columns)));
+		cellWidth = width / columns;
+		cellHeight = height / rows;
+
+		// Count the edges of every cell, then fill them in.
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < edges.length; ++i) {
+			addToCells(i, null);
+		}
+		for (int c = 0; c < columns * rows; ++c) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellEdges = new int[cellStart[columns * rows]];
+		int[] fill = new int[columns * rows];
+		for (int i = 0; i < edges.length; ++i) {
+			addToCells(i, fill);
+		}
+	}
+
+	// Adds the edge to every cell its segment crosses, row by row. Only counts
+	// the edges per cell while fill is null. The rows and columns are slightly
+	// widened so that an edge touching the border of a cell is listed in the
+	// cells on both sides, as queries test the edges exactly anyway.
+	private void addToCells(int i, int[] fill) {
+		Vertex a = edges[i].getStartVertex();
+		Vertex b = edges[i].getEndVertex();
+		double dx = b.getX() - a.getX();
+		double dy = b.getY() - a.getY();
+		double xSlack = cellWidth * 1e-9;
+		double ySlack = cellHeight * 1e-9;
+		double yLow = Math.min(a.getY(), b.getY());
+		double yHigh = Math.max(a.getY(), b.getY());
+		for (int r = row(yLow - ySlack); r <= row(yHigh + ySlack); ++r) {
+			double xLow = Math.min(a.getX(), b.getX());
+			double xHigh = Math.max(a.getX(), b.getX());
+			if (dy != 0) {
+				double y0 = Math.max(minY + r * cellHeight - ySlack, yLow);
+				double y1 = Math.min(minY + (r + 1) * cellHeight + ySlack, yHigh);
+				double x0 = a.getX() + (y0 - a.getY()) / dy * dx;
+				double x1 = a.getX() + (y1 - a.getY()) / dy * dx;
+				xLow = Math.max(xLow, Math.min(x0, x1));
+				xHigh = Math.min(xHigh, Math.max(x0, x1));
+			}
+			for (int c = column(xLow - xSlack); c <= column(xHigh + xSlack); ++c) {
+				int cell = r * columns + c;
+				if (fill == null) {
+					cellStart[cell + 1]++;
+				} else {
+					cellEdges[cellStart[cell] + fill[cell]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the first edge hit by the ray from the origin through the
+	 * direction vertex, or null if the ray leaves the polygon without hitting
+	 * any. Edges through the origin itself are ignored.
+	 */
+	public Edge firstHit(Vertex origin, Vertex direction) {
+		double[] t = new double[1];
+		int hit = castRay(origin, direction, Double.POSITIVE_INFINITY, t);
+		return hit < 0 ? null : edges[hit];
+	}
+
+	/**
+	 * Returns the point where the ray from the origin through the direction
+	 * vertex first hits an edge, or null if there is none.
+	 */
+	public Vertex firstHitPoint(Vertex origin, Vertex direction) {
+		double[] t = new double[1];
+		if (castRay(origin, direction, Double.POSITIVE_INFINITY, t) < 0) {
+			return null;
+		}
+		return new Vertex(origin.getX() + t[0] * (direction.getX() - origin.getX()),
+				origin.getY() + t[0] * (direction.getY() - origin.getY()));
+	}
+
+	/**
+	 * Returns all the edges touching the closed segment between the two
+	 * vertices.
+	 */
+	public ArrayList<Edge> segmentQuery(Vertex v1, Vertex v2) {
+		ArrayList<Edge> result = new ArrayList<Edge>();
+		Set<Edge> seen = Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+		if (v1.getX() == v2.getX() && v1.getY() == v2.getY()) {
+			int cell = cellOf(v1);
+			if (cell >= 0) {
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+					Edge e = edges[cellEdges[k]];
+					if (intersects(e.getStartVertex(), e.getEndVertex(), v1, v2) && seen.add(e)) {
+						result.add(e);
+					}
+				}
+			}
+			return result;
+		}
+		GridWalk walk = new GridWalk(v1, v2, 1);
+		for (int cell = walk.first(); cell >= 0; cell = walk.next()) {
+			for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+				Edge e = edges[cellEdges[k]];
+				if (intersects(e.getStartVertex(), e.getEndVertex(), v1, v2) && seen.add(e)) {
+					result.add(e);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all the edges touching the closed axis-aligned rectangle.
+	 */
+	public ArrayList<Edge> rangeQuery(double xMin, double yMin, double xMax, double yMax) {
+		ArrayList<Edge> result = new ArrayList<Edge>();
+		if (xMin > maxX || xMax < minX || yMin > maxY || yMax < minY) {
+			return result;
+		}
+		Vertex[] corners = { new Vertex(xMin, yMin), new Vertex(xMax, yMin), new Vertex(xMax, yMax),
+				new Vertex(xMin, yMax) };
+		Set<Edge> seen = Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+		for (int r = row(yMin); r <= row(yMax); ++r) {
+			for (int c = column(xMin); c <= column(xMax); ++c) {
+				int cell = r * columns + c;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+					Edge e = edges[cellEdges[k]];
+					if (!seen.contains(e) && intersectsRectangle(e, corners)) {
+						seen.add(e);
+						result.add(e);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Internal method to find the closest edge hit by a ray at a parameter
+	 * 0 < t <= limit along the direction vector. Stores the parameter of the
+	 * hit in t[0] and returns the index of the edge, or -1 if there is none.
+	 */
+	private int castRay(Vertex origin, Vertex direction, double limit, double[] t) {
+		GridWalk walk = new GridWalk(origin, direction, limit);
+		int best = -1;
+		double bestT = Double.POSITIVE_INFINITY;
+		for (int cell = walk.first(); cell >= 0; cell = walk.next()) {
+			for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+				int i = cellEdges[k];
+				double hit = rayHit(origin, direction, edges[i]);
+				if (hit > 0 && hit <= limit && hit < bestT) {
+					bestT = hit;
+					best = i;
+				}
+			}
+			// Edges in the cells further along are hit later.
+			if (best >= 0 && bestT <= walk.exit) {
+				break;
+			}
+		}
+		t[0] = bestT;
+		return best;
+	}
+
+	// Parameter along the direction vector where the ray hits the edge, or a
+	// non-positive value if it does not hit it beyond the origin. Whether it
+	// hits is decided exactly.
+	private static double rayHit(Vertex origin, Vertex direction, Edge e) {
+		Vertex a = e.getStartVertex();
+		Vertex b = e.getEndVertex();
+		int sideA = GeometricKernel.orientation(origin, direction, a);
+		int sideB = GeometricKernel.orientation(origin, direction, b);
+		if (sideA * sideB > 0) {
+			return -1;
+		}
+		double dx = direction.getX() - origin.getX();
+		double dy = direction.getY() - origin.getY();
+		if (sideA == 0 && sideB == 0) {
+			// Collinear edge, first hit at its closest endpoint unless it goes
+			// through the origin.
+			double tA = along(origin, dx, dy, a);
+			double tB = along(origin, dx, dy, b);
+			return tA > 0 && tB > 0 ? Math.min(tA, tB) : -1;
+		}
+		int sideOrigin = GeometricKernel.orientation(a, b, origin);
+		if (sideOrigin == 0 || sideOrigin * Integer.signum(sideB - sideA) < 0) {
+			return -1;
+		}
+		double t = GeometricKernel.cross(a, b, origin) / ((b.getY() - a.getY()) * dx - (b.getX() - a.getX()) * dy);
+		return Math.max(Math.abs(t), Double.MIN_VALUE);
+	}
+
+	private static double along(Vertex origin, double dx, double dy, Vertex v) {
+		return ((v.getX() - origin.getX()) * dx + (v.getY() - origin.getY()) * dy) / (dx * dx + dy * dy);
+	}
+
+	// Whether the closed segments (p1, p2) and (p3, p4) have a point in
+	// common.
+	private static boolean intersects(Vertex p1, Vertex p2, Vertex p3, Vertex p4) {
+		int o1 = GeometricKernel.orientation(p1, p2, p3);
+		int o2 = GeometricKernel.orientation(p1, p2, p4);
+		int o3 = GeometricKernel.orientation(p3, p4, p1);
+		int o4 = GeometricKernel.orientation(p3, p4, p2);
+		if (o1 == 0 && o2 == 0 && o3 == 0 && o4 == 0) {
+			return overlap(p1.getX(), p2.getX(), p3.getX(), p4.getX())
+					&& overlap(p1.getY(), p2.getY(), p3.getY(), p4.getY());
+		}
+		return o1 * o2 <= 0 && o3 * o4 <= 0;
+	}
+
+	private static boolean overlap(double a1, double a2, double b1, double b2) {
+		return Math.max(a1, a2) >= Math.min(b1, b2) && Math.max(b1, b2) >= Math.min(a1, a2);
+	}
+
+	private static boolean intersectsRectangle(Edge e, Vertex[] corners) {
+		Vertex a = e.getStartVertex();
+		Vertex b = e.getEndVertex();
+		if (!overlap(a.getX(), b.getX(), corners[0].getX(), corners[2].getX())
+				|| !overlap(a.getY(), b.getY(), corners[0].getY(), corners[2].getY())) {
+			return false;
+		}
+		if (a.getX() >= corners[0].getX() && a.getX() <= corners[2].getX() && a.getY() >= corners[0].getY()
+				&& a.getY() <= corners[2].getY()) {
+			return true;
+		}
+		for (int i = 0; i < 4; ++i) {
+			if (intersects(a, b, corners[i], corners[(i + 1) % 4])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int column(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellWidth)));
+	}
+
+	private int row(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellHeight)));
+	}
+
+	// Cell containing the point, or -1 if it lies outside the grid.
+	private int cellOf(Vertex v) {
+		if (v.getX() < minX || v.getX() > maxX || v.getY() < minY || v.getY() > maxY) {
+			return -1;
+		}
+		return row(v.getY()) * columns + column(v.getX());
+	}
+
+	// Walk over the cells crossed by the part of the ray from a through b with
+	// parameters between 0 and limit, in order. The exit field holds the
+	// parameter at which the ray leaves the current cell.
+	private class GridWalk {
+		private double limit;
+		private int column, row;
+		private int stepColumn, stepRow;
+		private double nextColumn, nextRow;
+		private double deltaColumn, deltaRow;
+		private double exit;
+		private boolean empty;
+
+		GridWalk(Vertex a, Vertex b, double limit) {
+			double dx = b.getX() - a.getX();
+			double dy = b.getY() - a.getY();
+			// Clip the ray to the bounding box of the grid.
+			double enter = 0;
+			double leave = limit;
+			double[][] slabs = { { a.getX(), dx, minX, maxX }, { a.getY(), dy, minY, maxY } };
+			for (double[] slab : slabs) {
+				if (slab[1] == 0) {
+					if (slab[0] < slab[2] || slab[0] > slab[3]) {
+						empty = true;
+					}
+				} else {
+					double t0 = (slab[2] - slab[0]) / slab[1];
+					double t1 = (slab[3] - slab[0]) / slab[1];
+					enter = Math.max(enter, Math.min(t0, t1));
+					leave = Math.min(leave, Math.max(t0, t1));
+				}
+			}
+			if (empty || enter > leave) {
+				empty = true;
+				return;
+			}
+			this.limit = leave;
+			column = column(a.getX() + enter * dx);
+			row = row(a.getY() + enter * dy);
+			stepColumn = dx > 0 ? 1 : -1;
+			stepRow = dy > 0 ? 1 : -1;
+			deltaColumn = dx == 0 ? Double.POSITIVE_INFINITY : cellWidth / Math.abs(dx);
+			deltaRow = dy == 0 ? Double.POSITIVE_INFINITY : cellHeight / Math.abs(dy);
+			double columnBorder = minX + (dx > 0 ? column + 1 : column) * cellWidth;
+			double rowBorder = minY + (dy > 0 ? row + 1 : row) * cellHeight;
+			nextColumn = dx == 0 ? Double.POSITIVE_INFINITY : (columnBorder - a.getX()) / dx;
+			nextRow = dy == 0 ? Double.POSITIVE_INFINITY : (rowBorder - a.getY()) / dy;
+		}
+
+		int first() {
+			if (empty) {
+				return -1;
+			}
+			exit = Math.min(nextColumn, nextRow);
+			return row * columns + column;
+		}
+
+		int next() {
+			if (exit >= limit) {
+				return -1;
+			}
+			if (nextColumn < nextRow) {
+				column += stepColumn;
+				nextColumn += deltaColumn;
+			} else {
+				row += stepRow;
+				nextRow += deltaRow;
+			}
+			if (column < 0 || column >= columns || row < 0 || row >= rows) {
+				return -1;
+			}
+			exit = Math.min(nextColumn, nextRow);
+			return row * columns + column;
+		}
+	}
+}
@@ -0,0 +1,440 @@
+package artgallery.dataStructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Random;
+
+import artgallery.GeometricAlgorithms;
+import artgallery.GeometricKernel;
+import artgallery.geometricalElements.Edge;
+import artgallery.geometricalElements.Hole;
+import artgallery.geometricalElements.Polygon;
+import artgallery.geometricalElements.Trapezoid;
+import artgallery.geometricalElements.Vertex;
+
+/**
+ * Trapezoidal map of a polygon with holes, built with Seidel's randomized
+ * incremental algorithm. The segments are inserted in random order and every
+ * insertion only touches the trapezoids crossed by the new segment, which are
+ * found through a history DAG that doubles as the point location structure.
+ *
+ * The decomposition uses horizontal lines through the vertices. Vertices sharing
+ * the same height are ordered as if the plane was slightly sheared (a vertex is
+ * "below" another one at the same height when it lies further to the right), so
+ * no two distinct vertices are ever considered to be at the same height.
+ *
+ * Expected construction time is O(n log n) and the expected query time is
+ * O(log n).
+ */
+public class TrapezoidMap {
+	private static final int X_NODE = 0;
+	private static final int Y_NODE = 1;
+	private static final int LEAF = 2;
+
+	// Position of a point with respect to the polygon, as returned by
+	// locatePoint.
+	public static final int INSIDE = 0;
+	public static final int OUTSIDE = 1;
+	public static final int BOUNDARY = 2;
+
+	private Node root;
+	private LinkedHashSet<MapTrapezoid> trapezoids = new LinkedHashSet<MapTrapezoid>();
+
+	/**
+	 * Construct the map for the boundary and holes of the given polygon.
+	 */
+	public TrapezoidMap(Polygon polygon) {
+		this(polygon, new Random());
+	}
+
+	/**
+	 * Construct the map using the given source of randomness for the insertion
+	 * order, so that the decomposition can be reproduced.
+	 */
+	public TrapezoidMap(Polygon polygon, Random random) {
+		ArrayList<Segment> segments = new ArrayList<Segment>();
+		// The interior of the polygon lies to the left of the counter-clockwise
+		// outer boundary and to the right of counter-clockwise holes.
+		boolean outerCCW = GeometricAlgorithms.signedArea(polygon.getVertices()) > 0;
+		addSegments(segments, polygon.getEdges(), outerCCW);
+		for (Hole h : polygon.getHoles()) {
+			boolean holeCCW = GeometricAlgorithms.signedArea(h.getVertices()) > 0;
+			addSegments(segments, h.getEdges(), !holeCCW);
+		}
+		build(segments, random);
+	}
+
+	private void addSegments(ArrayList<Segment> segments, ArrayList<Edge> edges, boolean interiorLeft) {
+		for (Edge e : edges) {
+			if (!same(e.getStartVertex(), e.getEndVertex())) {
+				segments.add(new Segment(e, interiorLeft));
+			}
+		}
+	}
+
+	private void build(ArrayList<Segment> segments, Random random) {
+		MapTrapezoid unbounded = new MapTrapezoid(null, null, null, null);
+		trapezoids.add(unbounded);
+		root = unbounded.leaf;
+
+		Collections.shuffle(segments, random);
+		for (Segment s : segments) {
+			insert(s);
+		}
+
+		// A trapezoid is part of the polygon when it lies on the interior side
+		// of the edge bounding it on the right.
+		for (MapTrapezoid t : trapezoids) {
+			t.setInside(t.right != null && t.right.interiorLeft);
+		}
+	}
+
+	/**
+	 * Returns all the trapezoids of the map, including the ones outside the
+	 * polygon.
+	 */
+	public ArrayList<Trapezoid> getTrapezoids() {
+		return new ArrayList<Trapezoid>(trapezoids);
+	}
+
+	/**
+	 * Returns the trapezoids covering the interior of the polygon.
+	 */
+	public ArrayList<Trapezoid> getInsideTrapezoids() {
+		ArrayList<Trapezoid> inside = new ArrayList<Trapezoid>();
+		for (MapTrapezoid t : trapezoids) {
+			if (t.isInside()) {
+				inside.add(t);
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Find the trapezoid containing the given point. Points on an edge or at a
+	 * vertex are assigned to one of the trapezoids touching them.
+	 */
+	public Trapezoid locate(Vertex v) {
+		Node n = root;
+		while (n.type != LEAF) {
+			if (n.type == X_NODE) {
+				n = below(v, n.point) ? n.below : n.above;
+			} else {
+				n = n.segment.side(v) > 0 ? n.left : n.right;
+			}
+		}
+		return n.trapezoid;
+	}
+
+	/**
+	 * Classify a point as INSIDE, OUTSIDE or on the BOUNDARY of the polygon
+	 * (including the boundaries of its holes), in expected O(log n) time.
+	 */
+	public int locatePoint(Vertex v) {
+		Node n = root;
+		while (n.type != LEAF) {
+			if (n.type == X_NODE) {
+				if (same(v, n.point)) {
+					return BOUNDARY;
+				}
+				n = below(v, n.point) ? n.below : n.above;
+			} else {
+				int side = n.segment.side(v);
+				if (side == 0 && n.segment.spans(v)) {
+					return BOUNDARY;
+				}
+				n = side > 0 ? n.left : n.right;
+			}
+		}
+		// Points on the boundary of the trapezoid the search ended in, but not
+		// on any segment tested on the way.
+		MapTrapezoid t = n.trapezoid;
+		if (onSegment(t.left, v) || onSegment(t.right, v)) {
+			return BOUNDARY;
+		}
+		return t.isInside() ? INSIDE : OUTSIDE;
+	}
+
+	private static boolean onSegment(Segment s, Vertex v) {
+		return s != null && s.side(v) == 0 && s.spans(v);
+	}
+
+	/**
+	 * Internal method to insert a segment, splitting all of the trapezoids it
+	 * crosses and replacing their leaves in the DAG.
+	 */
+	private void insert(Segment s) {
+		ArrayList<MapTrapezoid> crossed = followSegment(s);
+		int k = crossed.size();
+		MapTrapezoid first = crossed.get(0);
+		MapTrapezoid last = crossed.get(k - 1);
+
+		// Part of the first trapezoid below the lower endpoint, unless that
+		// endpoint was already in the map.
+		MapTrapezoid lower = null;
+		if (first.getBottom() == null || !same(first.getBottom(), s.low)) {
+			lower = new MapTrapezoid(first.getBottom(), s.low, first.left, first.right);
+			lower.setLowerLeft(first.getLowerLeft());
+			lower.setLowerRight(first.getLowerRight());
+			replaceUpper(first.getLowerLeft(), first, lower);
+			replaceUpper(first.getLowerRight(), first, lower);
+		}
+
+		// Part of the last trapezoid above the upper endpoint.
+		MapTrapezoid upper = null;
+		if (last.getTop() == null || !same(last.getTop(), s.high)) {
+			upper = new MapTrapezoid(s.high, last.getTop(), last.left, last.right);
+			upper.setUpperLeft(last.getUpperLeft());
+			upper.setUpperRight(last.getUpperRight());
+			replaceLower(last.getUpperLeft(), last, upper);
+			replaceLower(last.getUpperRight(), last, upper);
+		}
+
+		// Split every crossed trapezoid in a part left and right of the segment.
+		// Consecutive parts are merged unless a vertex on their side of the
+		// segment separates them.
+		MapTrapezoid[] lefts = new MapTrapezoid[k];
+		MapTrapezoid[] rights = new MapTrapezoid[k];
+		MapTrapezoid leftPiece = null;
+		MapTrapezoid rightPiece = null;
+		for (int j = 0; j < k; ++j) {
+			MapTrapezoid t = crossed.get(j);
+			if (j == 0) {
+				leftPiece = new MapTrapezoid(s.low, null, t.left, s);
+				rightPiece = new MapTrapezoid(s.low, null, s, t.right);
+				if (lower != null) {
+					lower.setUpperLeft(leftPiece);
+					lower.setUpperRight(rightPiece);
+					leftPiece.setLowerLeft(lower);
+					rightPiece.setLowerRight(lower);
+				} else {
+					leftPiece.setLowerLeft(t.getLowerLeft());
+					replaceUpper(t.getLowerLeft(), t, leftPiece);
+					rightPiece.setLowerRight(t.getLowerRight());
+					replaceUpper(t.getLowerRight(), t, rightPiece);
+				}
+			} else {
+				MapTrapezoid previous = crossed.get(j - 1);
+				Vertex r = t.getBottom();
+				if (s.side(r) > 0) {
+					// The vertex lies left of the segment and closes the left part.
+					leftPiece.setTop(r);
+					leftPiece.setUpperLeft(previous.getUpperLeft());
+					replaceLower(previous.getUpperLeft(), previous, leftPiece);
+					MapTrapezoid piece = new MapTrapezoid(r, null, t.left, s);
+					leftPiece.setUpperRight(piece);
+					piece.setLowerRight(leftPiece);
+					piece.setLowerLeft(t.getLowerLeft());
+					replaceUpper(t.getLowerLeft(), t, piece);
+					leftPiece = piece;
+				} else {
+					// The vertex lies right of the segment and closes the right part.
+					rightPiece.setTop(r);
+					rightPiece.setUpperRight(previous.getUpperRight());
+					replaceLower(previous.getUpperRight(), previous, rightPiece);
+					MapTrapezoid piece = new MapTrapezoid(r, null, s, t.right);
+					rightPiece.setUpperLeft(piece);
+					piece.setLowerLeft(rightPiece);
+					piece.setLowerRight(t.getLowerRight());
+					replaceUpper(t.getLowerRight(), t, piece);
+					rightPiece = piece;
+				}
+			}
+			lefts[j] = leftPiece;
+			rights[j] = rightPiece;
+		}
+
+		leftPiece.setTop(s.high);
+		rightPiece.setTop(s.high);
+		if (upper != null) {
+			upper.setLowerLeft(leftPiece);
+			upper.setLowerRight(rightPiece);
+			leftPiece.setUpperLeft(upper);
+			rightPiece.setUpperRight(upper);
+		} else {
+			leftPiece.setUpperLeft(last.getUpperLeft());
+			replaceLower(last.getUpperLeft(), last, leftPiece);
+			rightPiece.setUpperRight(last.getUpperRight());
+			replaceLower(last.getUpperRight(), last, rightPiece);
+		}
+
+		// Replace the leaves of the crossed trapezoids in the DAG.
+		for (int j = 0; j < k; ++j) {
+			MapTrapezoid t = crossed.get(j);
+			Node n = new Node(s, lefts[j].leaf, rights[j].leaf);
+			if (j == k - 1 && upper != null) {
+				n = new Node(s.high, n, upper.leaf);
+			}
+			if (j == 0 && lower != null) {
+				n = new Node(s.low, lower.leaf, n);
+			}
+			t.leaf.replaceWith(n);
+			trapezoids.remove(t);
+		}
+
+		if (lower != null) {
+			trapezoids.add(lower);
+		}
+		if (upper != null) {
+			trapezoids.add(upper);
+		}
+		for (int j = 0; j < k; ++j) {
+			trapezoids.add(lefts[j]);
+			trapezoids.add(rights[j]);
+		}
+	}
+
+	/**
+	 * Internal method to find the trapezoids crossed by a segment, from bottom
+	 * to top.
+	 */
+	private ArrayList<MapTrapezoid> followSegment(Segment s) {
+		ArrayList<MapTrapezoid> crossed = new ArrayList<MapTrapezoid>();
+		MapTrapezoid t = locateLowerEndpoint(s);
+		crossed.add(t);
+		while (t.getTop() != null && below(t.getTop(), s.high)) {
+			t = (MapTrapezoid) (s.side(t.getTop()) > 0 ? t.getUpperRight() : t.getUpperLeft());
+			crossed.add(t);
+		}
+		return crossed;
+	}
+
+	/**
+	 * Internal method to locate the trapezoid right above the lower endpoint of
+	 * a segment. Ties with existing vertices and edges sharing that endpoint are
+	 * broken using the segment itself.
+	 */
+	private MapTrapezoid locateLowerEndpoint(Segment s) {
+		Node n = root;
+		while (n.type != LEAF) {
+			if (n.type == X_NODE) {
+				n = !same(s.low, n.point) && below(s.low, n.point) ? n.below : n.above;
+			} else {
+				int side = n.segment.side(s.low);
+				if (side == 0) {
+					side = n.segment.side(s.high);
+				}
+				n = side > 0 ? n.left : n.right;
+			}
+		}
+		return n.trapezoid;
+	}
+
+	private static void replaceUpper(Trapezoid t, Trapezoid old, Trapezoid replacement) {
+		if (t != null) {
+			if (t.getUpperLeft() == old) {
+				t.setUpperLeft(replacement);
+			}
+			if (t.getUpperRight() == old) {
+				t.setUpperRight(replacement);
+			}
+		}
+	}
+
+	private static void replaceLower(Trapezoid t, Trapezoid old, Trapezoid replacement) {
+		if (t != null) {
+			if (t.getLowerLeft() == old) {
+				t.setLowerLeft(replacement);
+			}
+			if (t.getLowerRight() == old) {
+				t.setLowerRight(replacement);
+			}
+		}
+	}
+
+	// Sweep order of the vertices: lower height first, and further to the right
+	// first among vertices at the same height.
+	private static boolean below(Vertex p, Vertex q) {
+		return p.getY() < q.getY() || (p.getY() == q.getY() && p.getX() > q.getX());
+	}
+
+	private static boolean same(Vertex p, Vertex q) {
+		return p.getX() == q.getX() && p.getY() == q.getY();
+	}
+
+	// Edge of the polygon oriented from its lower to its upper endpoint.
+	private static class Segment {
+		Edge edge;
+		Vertex low;
+		Vertex high;
+		boolean interiorLeft;
+
+		Segment(Edge edge, boolean interiorLeft) {
+			this.edge = edge;
+			boolean forward = below(edge.getStartVertex(), edge.getEndVertex());
+			this.low = forward ? edge.getStartVertex() : edge.getEndVertex();
+			this.high = forward ? edge.getEndVertex() : edge.getStartVertex();
+			// Whether the interior lies left of the upward orientation.
+			this.interiorLeft = forward ? interiorLeft : !interiorLeft;
+		}
+
+		// Positive when the point lies left of the segment, negative when it
+		// lies right of it and zero when it is on its supporting line.
+		int side(Vertex v) {
+			return GeometricKernel.orientation(low, high, v);
+		}
+
+		// Whether a point on the supporting line lies between the endpoints.
+		boolean spans(Vertex v) {
+			return !below(v, low) && !below(high, v);
+		}
+	}
+
+	// Trapezoid of the map linked to its leaf in the DAG.
+	private static class MapTrapezoid extends Trapezoid {
+		Segment left;
+		Segment right;
+		Node leaf;
+
+		MapTrapezoid(Vertex bottom, Vertex top, Segment left, Segment right) {
+			super(bottom, top, left == null ? null : left.edge, right == null ? null : right.edge);
+			this.left = left;
+			this.right = right;
+			this.leaf = new Node(this);
+		}
+	}
+
+	// Node of the DAG. X-nodes test a point against the horizontal line
+	// through a vertex, Y-nodes test it against a segment.
+	private static class Node {
+		int type;
+		Vertex point;
+		Segment segment;
+		MapTrapezoid trapezoid;
+		Node below, above;
+		Node left, right;
+
+		Node(MapTrapezoid trapezoid) {
+			this.type = LEAF;
+			this.trapezoid = trapezoid;
+		}
+
+		Node(Vertex point, Node below, Node above) {
+			this.type = X_NODE;
+			this.point = point;
+			this.below = below;
+			this.above = above;
+		}
+
+		Node(Segment segment, Node left, Node right) {
+			this.type = Y_NODE;
+			this.segment = segment;
+			this.left = left;
+			this.right = right;
+		}
+
+		// Turns this leaf into an internal node, so that every parent in the
+		// DAG points to the new subtree.
+		void replaceWith(Node n) {
+			this.type = n.type;
+			this.point = n.point;
+			this.segment = n.segment;
+			this.trapezoid = null;
+			this.below = n.below;
+			this.above = n.above;
+			this.left = n.left;
+			this.right = n.right;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package artgallery.dataStructures;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import artgallery.geometricalElements.Vertex;
+
+// Visibility graph over the vertices of a gallery and its holes. Two vertices
+// are adjacent when the segment between them lies inside the gallery, touching
+// its boundary at most.
+public class VisibilityGraph {
+	private ArrayList<Vertex> vertices;
+	private IdentityHashMap<Vertex, ArrayList<Vertex>> adjacency = new IdentityHashMap<Vertex, ArrayList<Vertex>>();
+
+	// Constructs the graph from the list of vertices visible from each vertex.
+	public VisibilityGraph(ArrayList<Vertex> vertices, ArrayList<ArrayList<Vertex>> visibleVertices) {
+		this.vertices = vertices;
+		for (int i = 0; i < vertices.size(); ++i) {
+			adjacency.put(vertices.get(i), visibleVertices.get(i));
+		}
+	}
+
+	public ArrayList<Vertex> getVertices() {
+		return vertices;
+	}
+
+	// Returns the vertices visible from the given one, or an empty list if it
+	// is not part of the graph.
+	public ArrayList<Vertex> getNeighbors(Vertex v) {
+		ArrayList<Vertex> neighbors = adjacency.get(v);
+		return neighbors == null ? new ArrayList<Vertex>() : neighbors;
+	}
+
+	public boolean areVisible(Vertex v1, Vertex v2) {
+		for (Vertex w : getNeighbors(v1)) {
+			if (w == v2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getEdgeCount() {
+		int degrees = 0;
+		for (ArrayList<Vertex> neighbors : adjacency.values()) {
+			degrees += neighbors.size();
+		}
+		return degrees / 2;
+	}
+}
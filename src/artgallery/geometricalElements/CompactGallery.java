@@ -0,0 +1,440 @@
+package artgallery.geometricalElements;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import artgallery.GeometricKernel;
+import artgallery.dataStructures.TrapezoidMap;
+
+// Compact representation of a gallery for large floor plans. Vertices are
+// stored as indices into primitive arrays (coordinates, ring links, ring ids
+// and flags) instead of Vertex objects with their edge and neighbor lists,
+// which keeps them contiguous in memory and costs a few dozen bytes each.
+// The outer boundary is ring 0 and the holes are rings 1 and up, each one
+// stored as a consecutive range of indices in the order of the polygon.
+// Edge i goes from vertex i to vertex next[i]. A uniform grid of edge indices,
+// built along with the arrays, answers point location and segment queries
+// without going through every edge: every cell keeps a reference point lying
+// on none of its edges, known to be inside or outside, so that locating a
+// point only counts the edges of its cell between the point and the
+// reference.
+public class CompactGallery {
+	private static final byte ART = 1;
+	private static final byte EXIT = 2;
+	// Upper bound on the number of cells of the grid along each axis.
+	private static final int MAX_CELLS = 2048;
+
+	private double[] x;
+	private double[] y;
+	private int[] next;
+	private int[] prev;
+	private int[] ring;
+	private byte[] flags;
+	// Vertices of ring r are ringStart[r] to ringStart[r + 1] - 1.
+	private int[] ringStart;
+	// Whether the interior of the gallery lies to the left of each ring.
+	private boolean[] interiorLeft;
+	private double minX, minY, maxX, maxY;
+	private double cellWidth, cellHeight;
+	private int columns, rows;
+	// Edges of cell c are cellEdges[cellStart[c]] to cellEdges[cellStart[c + 1] - 1].
+	private int[] cellStart;
+	private int[] cellEdges;
+	private double[] referenceX;
+	private double[] referenceY;
+	private boolean[] referenceInside;
+
+	// Constructors
+
+	// Copies the vertices, holes and flags of the given polygon.
+	public CompactGallery(Polygon polygon) {
+		ArrayList<ArrayList<Vertex>> rings = new ArrayList<ArrayList<Vertex>>();
+		rings.add(polygon.getVertices());
+		for (Hole h : polygon.getHoles()) {
+			rings.add(h.getVertices());
+		}
+
+		int n = 0;
+		for (ArrayList<Vertex> r : rings) {
+			n += r.size();
+		}
+		x = new double[n];
+		y = new double[n];
+		next = new int[n];
+		prev = new int[n];
+		ring = new int[n];
+		flags = new byte[n];
+		ringStart = new int[rings.size() + 1];
+		interiorLeft = new boolean[rings.size()];
+
+		int i = 0;
+		for (int r = 0; r < rings.size(); ++r) {
+			ringStart[r] = i;
+			ArrayList<Vertex> vertices = rings.get(r);
+			for (int k = 0; k < vertices.size(); ++k, ++i) {
+				Vertex v = vertices.get(k);
+				x[i] = v.getX();
+				y[i] = v.getY();
+				ring[i] = r;
+				next[i] = ringStart[r] + (k + 1) % vertices.size();
+				prev[i] = ringStart[r] + (k + vertices.size() - 1) % vertices.size();
+				flags[i] = (byte) ((v.isArt() ? ART : 0) | (v.isExit() ? EXIT : 0));
+			}
+		}
+		ringStart[rings.size()] = n;
+
+		// Counter-clockwise outer boundary and clockwise holes have the
+		// interior on their left.
+		for (int r = 0; r < rings.size(); ++r) {
+			interiorLeft[r] = (signedArea(r) > 0) == (r == 0);
+		}
+		buildGrid();
+	}
+
+	// Splits the bounding box into about one cell per edge, keeping the cells
+	// close to square, and lists the edges crossing every cell.
+	private void buildGrid() {
+		minX = minY = Double.POSITIVE_INFINITY;
+		maxX = maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < x.length; ++i) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		if (x.length == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		double width = Math.max(maxX - minX, Double.MIN_NORMAL);
+		double height = Math.max(maxY - minY, Double.MIN_NORMAL);
+		int cells = Math.max(1, x.length);
+		columns = (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil(Math.sqrt(cells * width / height))));
+		rows = (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil((double) cells / columns)));
+		cellWidth = width / columns;
+		cellHeight = height / rows;
+
+		// Count the edges of every cell, then fill them in.
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < x.length; ++i) {
+			int[] crossed = cells(x[i], y[i], x[next[i]], y[next[i]]);
+			for (int k = 1; k <= crossed[0]; ++k) {
+				cellStart[crossed[k] + 1]++;
+			}
+		}
+		for (int c = 0; c < columns * rows; ++c) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellEdges = new int[cellStart[columns * rows]];
+		int[] fill = new int[columns * rows];
+		for (int i = 0; i < x.length; ++i) {
+			int[] crossed = cells(x[i], y[i], x[next[i]], y[next[i]]);
+			for (int k = 1; k <= crossed[0]; ++k) {
+				cellEdges[cellStart[crossed[k]] + fill[crossed[k]]++] = i;
+			}
+		}
+
+		// Reference points, classified row by row from the left of the grid,
+		// where the gallery is outside, by counting the edges crossed in
+		// between. An edge listed in both cells is only counted once.
+		referenceX = new double[columns * rows];
+		referenceY = new double[columns * rows];
+		referenceInside = new boolean[columns * rows];
+		int[] mark = new int[x.length];
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				int cell = r * columns + c;
+				placeReference(cell, r, c);
+				boolean inside = c > 0 && referenceInside[cell - 1];
+				double fromX = c > 0 ? referenceX[cell - 1] : minX - cellWidth;
+				double fromY = c > 0 ? referenceY[cell - 1] : referenceY[cell];
+				for (int k = c > 0 ? cellStart[cell - 1] : cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+					int i = cellEdges[k];
+					if (mark[i] != cell + 1 && crosses(i, fromX, fromY, referenceX[cell], referenceY[cell])) {
+						inside = !inside;
+					}
+					mark[i] = cell + 1;
+				}
+				referenceInside[cell] = inside;
+			}
+		}
+	}
+
+	// Picks the reference point of the cell: its center, or else the first
+	// point of a low-discrepancy sequence over the cell that lies on none of
+	// its edges.
+	private void placeReference(int cell, int r, int c) {
+		double fx = 0.5, fy = 0.5;
+		for (int k = 1; k < 64 && touchesEdge(cell, minX + (c + fx) * cellWidth, minY + (r + fy) * cellHeight); ++k) {
+			fx = (0.5 + k * 0.6180339887) % 1;
+			fy = (0.5 + k * 0.7548776662) % 1;
+		}
+		referenceX[cell] = minX + (c + fx) * cellWidth;
+		referenceY[cell] = minY + (r + fy) * cellHeight;
+	}
+
+	private boolean touchesEdge(int cell, double px, double py) {
+		for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+			if (onEdge(cellEdges[k], px, py)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean onEdge(int i, double px, double py) {
+		int j = next[i];
+		return Math.min(x[i], x[j]) <= px && px <= Math.max(x[i], x[j]) && Math.min(y[i], y[j]) <= py
+				&& py <= Math.max(y[i], y[j]) && GeometricKernel.orientation(x[i], y[i], x[j], y[j], px, py) == 0;
+	}
+
+	// Whether edge i crosses the segment from p to q, neither of them lying on
+	// the edge. The segment is taken as slightly shifted to its left, so that
+	// a vertex on it counts as lying on its right and every crossing of the
+	// boundary is counted exactly once.
+	private boolean crosses(int i, double px, double py, double qx, double qy) {
+		int j = next[i];
+		if ((GeometricKernel.orientation(px, py, qx, qy, x[i], y[i]) > 0) == (GeometricKernel.orientation(px, py,
+				qx, qy, x[j], y[j]) > 0)) {
+			return false;
+		}
+		return GeometricKernel.orientation(x[i], y[i], x[j], y[j], px, py)
+				* GeometricKernel.orientation(x[i], y[i], x[j], y[j], qx, qy) < 0;
+	}
+
+	// Cells crossed by the segment from (ax, ay) to (bx, by), row by row, as
+	// {count, cell, cell, ...}. The rows and columns are slightly widened so
+	// that a segment touching the border of a cell is listed in the cells on
+	// both sides, as the edges found are tested exactly anyway.
+	private int[] cells(double ax, double ay, double bx, double by) {
+		int[] crossed = new int[5];
+		double dx = bx - ax;
+		double dy = by - ay;
+		double xSlack = cellWidth * 1e-9;
+		double ySlack = cellHeight * 1e-9;
+		double yLow = Math.min(ay, by);
+		double yHigh = Math.max(ay, by);
+		for (int r = row(yLow - ySlack); r <= row(yHigh + ySlack); ++r) {
+			double xLow = Math.min(ax, bx);
+			double xHigh = Math.max(ax, bx);
+			if (dy != 0) {
+				double y0 = Math.max(minY + r * cellHeight - ySlack, yLow);
+				double y1 = Math.min(minY + (r + 1) * cellHeight + ySlack, yHigh);
+				double x0 = ax + (y0 - ay) / dy * dx;
+				double x1 = ax + (y1 - ay) / dy * dx;
+				xLow = Math.max(xLow, Math.min(x0, x1));
+				xHigh = Math.min(xHigh, Math.max(x0, x1));
+			}
+			for (int c = column(xLow - xSlack); c <= column(xHigh + xSlack); ++c) {
+				if (crossed[0] + 1 == crossed.length) {
+					crossed = Arrays.copyOf(crossed, 2 * crossed.length);
+				}
+				crossed[++crossed[0]] = r * columns + c;
+			}
+		}
+		return crossed;
+	}
+
+	private int column(double px) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((px - minX) / cellWidth)));
+	}
+
+	private int row(double py) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((py - minY) / cellHeight)));
+	}
+
+	// Builds the equivalent polygon with its holes, for the GUI and the
+	// algorithms working on Vertex objects. Vertex ids are their 1-based
+	// position, as in the gallery files.
+	public Polygon toPolygon() {
+		ArrayList<Vertex> outer = ringVertices(0);
+		ArrayList<Hole> holes = new ArrayList<Hole>();
+		for (int r = 1; r < getRingCount(); ++r) {
+			holes.add(new Hole(ringVertices(r)));
+		}
+		return new Polygon(outer, holes);
+	}
+
+	private ArrayList<Vertex> ringVertices(int r) {
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+		for (int i = ringStart[r]; i < ringStart[r + 1]; ++i) {
+			vertices.add(new Vertex(x[i], y[i], "" + (i + 1), isArt(i) ? 1 : 0, isExit(i) ? 1 : 0));
+		}
+		return vertices;
+	}
+
+	// Basic property accessors.
+
+	public int getVertexCount() {
+		return x.length;
+	}
+
+	public int getRingCount() {
+		return ringStart.length - 1;
+	}
+
+	public int getRingStart(int r) {
+		return ringStart[r];
+	}
+
+	public int getRingSize(int r) {
+		return ringStart[r + 1] - ringStart[r];
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public int getNext(int i) {
+		return next[i];
+	}
+
+	public int getPrev(int i) {
+		return prev[i];
+	}
+
+	// Ring of the vertex: 0 for the outer boundary, k for the k-th hole.
+	public int getRing(int i) {
+		return ring[i];
+	}
+
+	public boolean isArt(int i) {
+		return (flags[i] & ART) != 0;
+	}
+
+	public boolean isExit(int i) {
+		return (flags[i] & EXIT) != 0;
+	}
+
+	public boolean isInteriorLeft(int r) {
+		return interiorLeft[r];
+	}
+
+	// Geometry computed directly on the arrays.
+
+	// Signed area of a ring through the shoelace formula, positive when it is
+	// counter-clockwise.
+	public double signedArea(int r) {
+		double area = 0;
+		for (int i = ringStart[r]; i < ringStart[r + 1]; ++i) {
+			area += x[i] * y[next[i]] - x[next[i]] * y[i];
+		}
+		return area / 2;
+	}
+
+	// Area of the gallery, holes excluded.
+	public double getArea() {
+		double area = Math.abs(signedArea(0));
+		for (int r = 1; r < getRingCount(); ++r) {
+			area -= Math.abs(signedArea(r));
+		}
+		return area;
+	}
+
+	// Whether the interior angle of the gallery at the vertex exceeds 180
+	// degrees.
+	public boolean isReflex(int i) {
+		int turn = GeometricKernel.orientation(x[prev[i]], y[prev[i]], x[i], y[i], x[next[i]], y[next[i]]);
+		return interiorLeft[ring[i]] ? turn < 0 : turn > 0;
+	}
+
+	// Returns {minX, minY, maxX, maxY} of the outer boundary.
+	public double[] getBoundingBox() {
+		double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		for (int i = ringStart[0]; i < ringStart[1]; ++i) {
+			box[0] = Math.min(box[0], x[i]);
+			box[1] = Math.min(box[1], y[i]);
+			box[2] = Math.max(box[2], x[i]);
+			box[3] = Math.max(box[3], y[i]);
+		}
+		return box;
+	}
+
+	// Classifies the point as TrapezoidMap.INSIDE, OUTSIDE or BOUNDARY, from
+	// the reference point of its cell and the edges of the cell crossing the
+	// segment in between. All the tests are exact.
+	public int locatePoint(double px, double py) {
+		if (px < minX || px > maxX || py < minY || py > maxY) {
+			return TrapezoidMap.OUTSIDE;
+		}
+		int cell = row(py) * columns + column(px);
+		boolean inside = referenceInside[cell];
+		for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+			int i = cellEdges[k];
+			if (onEdge(i, px, py)) {
+				return TrapezoidMap.BOUNDARY;
+			}
+			if (crosses(i, px, py, referenceX[cell], referenceY[cell])) {
+				inside = !inside;
+			}
+		}
+		return inside ? TrapezoidMap.INSIDE : TrapezoidMap.OUTSIDE;
+	}
+
+	// Whether the closed segment from (ax, ay) to (bx, by) lies in the gallery,
+	// its boundary included. An edge crossing the segment rules it out, but
+	// the segment may also leave the gallery through a vertex or along an
+	// edge without crossing any. Its pieces between consecutive contacts with
+	// the boundary are then each inside or outside as a whole, and tested at
+	// their middle.
+	public boolean segmentInside(double ax, double ay, double bx, double by) {
+		double dx = bx - ax, dy = by - ay;
+		double length = dx * dx + dy * dy;
+		if (length == 0) {
+			return locatePoint(ax, ay) != TrapezoidMap.OUTSIDE;
+		}
+		double[] contacts = new double[8];
+		int count = 0;
+		contacts[count++] = 0;
+		contacts[count++] = 1;
+		int[] crossed = cells(ax, ay, bx, by);
+		for (int k = 1; k <= crossed[0]; ++k) {
+			for (int e = cellStart[crossed[k]]; e < cellStart[crossed[k] + 1]; ++e) {
+				int i = cellEdges[e];
+				int j = next[i];
+				if (Math.max(x[i], x[j]) < Math.min(ax, bx) || Math.min(x[i], x[j]) > Math.max(ax, bx)
+						|| Math.max(y[i], y[j]) < Math.min(ay, by) || Math.min(y[i], y[j]) > Math.max(ay, by)) {
+					continue;
+				}
+				int si = GeometricKernel.orientation(ax, ay, bx, by, x[i], y[i]);
+				int sj = GeometricKernel.orientation(ax, ay, bx, by, x[j], y[j]);
+				if (si * sj < 0 && GeometricKernel.orientation(x[i], y[i], x[j], y[j], ax, ay)
+						* GeometricKernel.orientation(x[i], y[i], x[j], y[j], bx, by) < 0) {
+					return false;
+				}
+				// An edge listed in several cells adds the same contacts again,
+				// which only leaves empty pieces.
+				if (si == 0) {
+					contacts = addContact(contacts, count++, ((x[i] - ax) * dx + (y[i] - ay) * dy) / length);
+				}
+				if (sj == 0) {
+					contacts = addContact(contacts, count++, ((x[j] - ax) * dx + (y[j] - ay) * dy) / length);
+				}
+			}
+		}
+		Arrays.sort(contacts, 0, count);
+		for (int c = 0; c + 1 < count; ++c) {
+			if (contacts[c] < contacts[c + 1]) {
+				double t = (contacts[c] + contacts[c + 1]) / 2;
+				if (locatePoint(ax + t * dx, ay + t * dy) == TrapezoidMap.OUTSIDE) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// Stores the parameter along the segment at the given position, clamped
+	// to [0, 1], growing the array when needed.
+	private static double[] addContact(double[] contacts, int position, double t) {
+		if (position == contacts.length) {
+			contacts = Arrays.copyOf(contacts, 2 * contacts.length);
+		}
+		contacts[position] = Math.max(0, Math.min(1, t));
+		return contacts;
+	}
+}
@@ -118,24 +118,49 @@ public class Edge implements Comparable<Edge> {
 	// Overridden functions from the Object class and interface methods to provide comparisons and printability.
 	
 	@Override
-	// Overridden function to compare edges on the equality of its vertices.
+	// Overridden function to compare edges on the equality of its vertices, in either direction.
 	public boolean equals(Object o) {
 		if (o instanceof Edge) {
-			if (this.containsVertex(((Edge) o).getStartVertex()) && this.containsVertex(((Edge) o).getEndVertex())) {
-				return true;
-			}
+			Vertex start = ((Edge) o).getStartVertex();
+			Vertex end = ((Edge) o).getEndVertex();
+			return (startVertex.equals(start) && endVertex.equals(end))
+					|| (startVertex.equals(end) && endVertex.equals(start));
 		}
 		return false;
 	}
 
 	@Override
-	// Might need revision to ensure the correct orders are yielded
+	// Symmetric in the two vertices, so both directions of an edge share the same hash.
+	public int hashCode() {
+		return startVertex.hashCode() + endVertex.hashCode();
+	}
+
+	@Override
+	// Orders edges lexicographically on their lowest and then on their highest
+	// vertex, comparing vertices on X and then on Y. Consistent with equals, so
+	// the direction of the edges does not matter.
 	public int compareTo(Edge edge) {
 		if (this.equals(edge)) {
 			return 0;
-		} else {
-			return -1;
 		}
+		int result = compareCoordinates(this.getLowestVertex(), edge.getLowestVertex());
+		if (result == 0) {
+			result = compareCoordinates(this.getHighestVertex(), edge.getHighestVertex());
+		}
+		return result;
+	}
+
+	private Vertex getLowestVertex() {
+		return compareCoordinates(startVertex, endVertex) <= 0 ? startVertex : endVertex;
+	}
+
+	private Vertex getHighestVertex() {
+		return compareCoordinates(startVertex, endVertex) <= 0 ? endVertex : startVertex;
+	}
+
+	private static int compareCoordinates(Vertex v1, Vertex v2) {
+		int result = Double.compare(v1.getX(), v2.getX());
+		return result != 0 ? result : Double.compare(v1.getY(), v2.getY());
 	}
 	
 	@Override
@@ -2,15 +2,37 @@ package artgallery.geometricalElements;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import artgallery.GeometricAlgorithms;
+import artgallery.dataStructures.DCEL;
+import artgallery.dataStructures.EdgeGrid;
+import artgallery.dataStructures.TrapezoidMap;
+import artgallery.dataStructures.VisibilityGraph;
 
 public class Polygon {
 	private ArrayList<Vertex> vertices = new ArrayList<Vertex>();
 	private ArrayList<Edge> edges = new ArrayList<Edge>();
 	private ArrayList<Hole> holes = new ArrayList<Hole>();
 	private ArrayList<Polygon> triangulation = new ArrayList<Polygon>();
+	private DCEL triangulationDCEL;
+	private TrapezoidMap trapezoidMap;
+	private EdgeGrid edgeIndex;
+	private CompactGallery compactGallery;
+	private VisibilityGraph visibilityGraph;
+	private ArrayList<Vertex> convexHull;
+	private Polygon boundingBox;
+	private double maxDistance = -1;
 	private Map<Vertex, Integer> chainMap = new HashMap<Vertex, Integer>();
+	// Hash indexes for the lookups by coordinates, built on the first lookup
+	// and reset, along with the structures above, whenever the vertices, edges
+	// or holes are replaced or moved.
+	private HashSet<Vertex> vertexLookup;
+	private HashMap<Vertex, Vertex> vertexAndHoleLookup;
+	private HashSet<Edge> edgeLookup;
+	// Incremented whenever the vertices, edges or holes are replaced or moved,
+	// so that caches of derived results can tell they are stale.
+	private int version;
 
 	public Polygon() {
 	}
@@ -29,11 +51,12 @@ public class Polygon {
 		// If the argument was a list of edges
 		else if (elements.get(0) instanceof Edge) {
 			this.edges = (ArrayList<Edge>) elements;
+			HashSet<Vertex> added = new HashSet<Vertex>();
 			for (Edge e : this.edges) {
-				if (!this.vertices.contains(e.getStartVertex())) {
+				if (added.add(e.getStartVertex())) {
 					this.vertices.add(e.getStartVertex());
 				}
-				if (!this.vertices.contains(e.getEndVertex())) {
+				if (added.add(e.getEndVertex())) {
 					this.vertices.add(e.getEndVertex());
 				}
 			}
@@ -53,6 +76,10 @@ public class Polygon {
 		this.holes = holes;
 	}
 
+	public int getVersion() {
+		return version;
+	}
+
 	public ArrayList<Vertex> getVertices() {
 		return vertices;
 	}
@@ -67,13 +94,14 @@ public class Polygon {
 	
 	public void setVertices(ArrayList<Vertex> vertices) {
 		this.vertices = vertices;
+		resetLookups();
 	}
 	
 	public boolean containsVertex(Vertex v) {
-		if(this.vertices.contains(v)) {
-			return true;
+		if (vertexLookup == null) {
+			vertexLookup = new HashSet<Vertex>(this.vertices);
 		}
-		return false;
+		return vertexLookup.contains(v);
 	}
 
 	public ArrayList<Edge> getEdges() {
@@ -89,25 +117,51 @@ public class Polygon {
 	}
 	
 	public boolean containsEdge(Edge e) {
-		if(this.edges.contains(e)) {
-			return true;
+		return getEdgeLookup().contains(e);
+	}
+
+	private HashSet<Edge> getEdgeLookup() {
+		if (edgeLookup == null) {
+			edgeLookup = new HashSet<Edge>(this.edges);
 		}
-		return false;
+		return edgeLookup;
 	}
 
+	// Returns the vertex of the polygon or its holes at the position of the
+	// given one, or null if there is none.
 	public Vertex getMatchingVertex(Vertex vertex) {
-		for (Vertex localVertex : this.getVerticesAndHoles()) {
-			if (localVertex.equals(vertex)) {
-				return localVertex;
+		if (vertexAndHoleLookup == null) {
+			vertexAndHoleLookup = new HashMap<Vertex, Vertex>();
+			for (Vertex localVertex : this.getVerticesAndHoles()) {
+				vertexAndHoleLookup.putIfAbsent(localVertex, localVertex);
 			}
 		}
-		return null;
+		return vertexAndHoleLookup.get(vertex);
+	}
+
+	// Drops the lookups and every cached structure derived from the vertices,
+	// edges or holes, so that they are rebuilt from the new ones.
+	private void resetLookups() {
+		version++;
+		vertexLookup = null;
+		vertexAndHoleLookup = null;
+		edgeLookup = null;
+		triangulation = new ArrayList<Polygon>();
+		triangulationDCEL = null;
+		trapezoidMap = null;
+		edgeIndex = null;
+		compactGallery = null;
+		visibilityGraph = null;
+		convexHull = null;
+		boundingBox = null;
+		maxDistance = -1;
 	}
 
 	// Method to automatically generate the edges in a circularly-linked polygon
 	// from its vertices. Assumed the order of the vertices is correct, and was
 	// given in a clockwise manner.
 	public void generateEdges() {
+		resetLookups();
 		// Construct the edges for the gallery bounds by connecting points
 		// clockwise as they were provided.
 		for (int i = 0; i < vertices.size(); ++i) {
@@ -136,12 +190,70 @@ public class Polygon {
 
 	public ArrayList<Polygon> computeTriangulation() {
 		if (this.triangulation.isEmpty()) {
+			for (DCEL.Face face : computeTriangulationDCEL().getInnerFaces()) {
+				triangulation.add(face.toPolygon());
+			}
+		}
+		return this.triangulation;
+	}
+
+	// Triangulation as a doubly-connected edge list, keeping the adjacency
+	// between triangles. Computed once and cached.
+	public DCEL computeTriangulationDCEL() {
+		if (this.triangulationDCEL == null) {
 			GeometricAlgorithms GA = new GeometricAlgorithms();
-			triangulation = GA.computeTriangulation(this);
-			return triangulation;
-		} else {
-			return this.triangulation;
+			triangulationDCEL = GA.computeTriangulationDCEL(this);
 		}
+		return this.triangulationDCEL;
+	}
+
+	// Trapezoidal map of the polygon and its holes, doubling as the point
+	// location structure. Computed once and cached.
+	public TrapezoidMap getTrapezoidMap() {
+		if (this.trapezoidMap == null) {
+			trapezoidMap = new TrapezoidMap(this);
+		}
+		return this.trapezoidMap;
+	}
+
+	// Returns TrapezoidMap.INSIDE, OUTSIDE or BOUNDARY for the given point.
+	public int locatePoint(Vertex v) {
+		return getTrapezoidMap().locatePoint(v);
+	}
+
+	// Whether the point lies inside the polygon or on its boundary.
+	public boolean containsPoint(Vertex v) {
+		return locatePoint(v) != TrapezoidMap.OUTSIDE;
+	}
+
+	// Grid over the edges of the polygon and its holes, answering ray, segment
+	// and range queries without going through every edge. Computed once and
+	// cached.
+	public EdgeGrid getEdgeIndex() {
+		if (this.edgeIndex == null) {
+			edgeIndex = new EdgeGrid(this);
+		}
+		return this.edgeIndex;
+	}
+
+	// Copy of the polygon and its holes as primitive arrays with their own
+	// grid, for the queries repeated over large galleries. Computed once and
+	// cached.
+	public CompactGallery getCompactGallery() {
+		if (this.compactGallery == null) {
+			compactGallery = new CompactGallery(this);
+		}
+		return this.compactGallery;
+	}
+
+	// Visibility graph of the vertices of the polygon and its holes, built in
+	// parallel. Computed once and cached.
+	public VisibilityGraph getVisibilityGraph() {
+		if (this.visibilityGraph == null) {
+			GeometricAlgorithms GA = new GeometricAlgorithms();
+			visibilityGraph = GA.computeVisibilityGraph(this, true);
+		}
+		return this.visibilityGraph;
 	}
 
 	public void computeVisibility(Vertex v) {
@@ -151,19 +263,47 @@ public class Polygon {
 	}
 
 	// Returns the maximum euclidian distance between any two vertices in the
-	// graph. Used for the sweep-line endpoint.
+	// graph. Used for the sweep-line endpoint. Found with the rotating calipers
+	// on the convex hull, computed once and cached.
 	public double getMaxDistance() {
-		double maxDistance = 0;
-		for (Vertex v1 : vertices) {
-			for (Vertex v2 : vertices) {
-				double tempDistance = Math
-						.sqrt(Math.pow(v1.getY() - v2.getY(), 2) + Math.pow((v1.getX() - v2.getX()), 2));
-				if (tempDistance > maxDistance) {
-					maxDistance = tempDistance;
-				}
+		if (this.maxDistance < 0) {
+			GeometricAlgorithms GA = new GeometricAlgorithms();
+			maxDistance = GA.computeDiameter(getConvexHull());
+		}
+		return this.maxDistance;
+	}
+
+	// Convex hull of the polygon, in counter-clockwise order. Computed once and
+	// cached.
+	public ArrayList<Vertex> getConvexHull() {
+		if (this.convexHull == null) {
+			GeometricAlgorithms GA = new GeometricAlgorithms();
+			convexHull = GA.computeConvexHull(vertices);
+		}
+		return this.convexHull;
+	}
+
+	// Axis-aligned bounding box of the polygon, as a rectangle listed clockwise
+	// from its top right corner. Computed once and cached.
+	public Polygon getBoundingBox() {
+		if (this.boundingBox == null) {
+			double minX, minY, maxX, maxY;
+			minX = minY = Double.POSITIVE_INFINITY;
+			maxX = maxY = Double.NEGATIVE_INFINITY;
+			for (Vertex v : vertices) {
+				minX = Math.min(minX, v.getX());
+				minY = Math.min(minY, v.getY());
+				maxX = Math.max(maxX, v.getX());
+				maxY = Math.max(maxY, v.getY());
 			}
+			ArrayList<Vertex> corners = new ArrayList<Vertex>();
+			corners.add(new Vertex(maxX, maxY));
+			corners.add(new Vertex(maxX, minY));
+			corners.add(new Vertex(minX, minY));
+			corners.add(new Vertex(minX, maxY));
+			boundingBox = new Polygon(corners);
 		}
-		return maxDistance;
+		return this.boundingBox;
 	}
 
 	// Bad implementation for splitting the vertices in a polygon boundary into
@@ -188,6 +328,7 @@ public class Polygon {
 
 	public void setHoles(ArrayList<Hole> holes) {
 		this.holes = holes;
+		resetLookups();
 	}
 
 	public int[] getCentroid() {
@@ -216,6 +357,7 @@ public class Polygon {
 			vertex.setX(newX);
 			vertex.setY(newY);
 		}
+		resetLookups();
 	}
 
 	// Overridden functions from the Object class and interface methods to provide comparisons and printability.
@@ -225,30 +367,17 @@ public class Polygon {
 	// Used to avoid polygon duplicates when constructing triangulations from edges.
 	public boolean equals(Object p) {
 		if (p instanceof Polygon) {
-			boolean equal = true;
-			boolean contained = false;
-			
-			// Check if all of this polygon's edges are in the other polygon
-			for (Edge e : this.getEdges()) {
-				if(((Polygon) p).containsEdge(e)) {
-					contained = true;
-				}
-				equal = equal & contained;
-			}
-			
-			// Check if all of the other polygon's edges are in this polygon.
-			contained = false;
-			for (Edge e : ((Polygon) p).getEdges()) {
-				if(this.containsEdge(e)){
-					contained = true;
-				}
-				equal = equal & contained;
-			}
-			return equal;
+			return this.getEdgeLookup().equals(((Polygon) p).getEdgeLookup());
 		}
 		return false;
 	}
 
+	@Override
+	// Hash of the set of edges, consistent with equals.
+	public int hashCode() {
+		return getEdgeLookup().hashCode();
+	}
+
 	@Override
 	// Attempts to return a deep copy of the polygon, but potentially broken due to reference hell.
 	public Polygon clone() {
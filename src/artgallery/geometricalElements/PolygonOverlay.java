@@ -0,0 +1,753 @@
+package artgallery.geometricalElements;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import artgallery.GeometricAlgorithms;
+import artgallery.GeometricKernel;
+
+/*
+ * Overlay of sets of polygons with holes, the operands, and the Boolean
+ * operations built on it, following the sweep of "A new algorithm for
+ * computing Boolean operations on polygons" by F. Martinez, A. J. Rueda and
+ * F. R. Feito: instead of flags telling whether an edge is inside the other
+ * polygon, every edge of the overlay carries the depth of each operand on
+ * both of its sides, which also serves overlays of more than two operands.
+ * 1) The edges of all operands, with the points at the same position on the
+ *    grid of Vertex.SNAP merged, are swept over x once. The sweep line keeps
+ *    the edges crossing it sorted from bottom to top, and as in the algorithm
+ *    of Bentley and Ottmann only edges next to each other in it are tested
+ *    for a crossing. Both are split at the crossing point, which becomes an
+ *    event point of its own. Edges passing within half of the snapping
+ *    distance from an event point are split there as well, and pieces lying
+ *    on top of each other are merged when they leave the sweep line, so that
+ *    the swept edges form a planar arrangement meeting at their end points.
+ * 2) An edge entering the sweep line takes the depth below it from the edge
+ *    just below it, and the depth above it from the rings it belongs to,
+ *    whose interiors lie on their left once outer boundaries are
+ *    counter-clockwise and holes clockwise.
+ * 3) The edges of a region, those with the region on one side only, are
+ *    linked into rings keeping the region on their left, turning as far
+ *    right as possible where rings touch, so that outer boundaries come out
+ *    counter-clockwise and holes clockwise.
+ * The sweep line is a tree whose nodes know their parent. The place of each
+ * event point in it is found once, and the edges starting there are put at
+ * that place, then leave the sweep line through their node and find their
+ * neighbors by walking the tree, so the order of the edges is never decided
+ * again on rounded points. All decisions are taken by the exact predicates
+ * of GeometricKernel, so only the position of intersection points is
+ * rounded.
+ * With n edges in the operands and k crossings between them, the overlay
+ * takes O((n + k) log n) time.
+ */
+public class PolygonOverlay {
+	public static final int UNION = 0;
+	public static final int INTERSECTION = 1;
+	public static final int DIFFERENCE = 2;
+	public static final int XOR = 3;
+
+	private int operandCount;
+	private ArrayList<Segment> segments = new ArrayList<Segment>();
+	// Points of the arrangement, one per snapped position.
+	private HashMap<Vertex, Vertex> points = new HashMap<Vertex, Vertex>();
+	// Event points not swept yet, in the order of the sweep.
+	private IdentityHashMap<Vertex, Event> events = new IdentityHashMap<Vertex, Event>();
+	private PriorityQueue<Event> queue = new PriorityQueue<Event>((e, f) -> compareExact(e.point, f.point));
+	private Status status = new Status();
+
+	// Edge of the arrangement, from its lower end point a to its upper end
+	// point b in the order of the sweep, with the change of depth of each
+	// operand when crossing it from right to left, and the depths on both
+	// sides once it entered the sweep line.
+	private static class Segment {
+		private Vertex a;
+		private Vertex b;
+		private int[] delta;
+		private int[] below;
+		private int[] above;
+		// Place in the sweep line, while the edge crosses it.
+		private Node node;
+	}
+
+	// Point of the sweep, with the edges starting and ending there.
+	private static class Event {
+		private Vertex point;
+		private ArrayList<Segment> starting = new ArrayList<Segment>();
+		private ArrayList<Segment> ending = new ArrayList<Segment>();
+
+		private Event(Vertex point) {
+			this.point = point;
+		}
+	}
+
+	// End points of an edge, compared by identity.
+	private static class Key {
+		private Vertex a;
+		private Vertex b;
+
+		private Key(Vertex a, Vertex b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).a == a && ((Key) o).b == b;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(a) + System.identityHashCode(b);
+		}
+	}
+
+	// Ring edge of a result region, the region lying on its left.
+	private static class DirectedEdge {
+		private Vertex from;
+		private Vertex to;
+		private boolean used;
+
+		private DirectedEdge(Vertex from, Vertex to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	// Overlays the operands, each one a set of polygons with holes. The input
+	// polygons are not modified.
+	public PolygonOverlay(List<? extends List<Polygon>> operands) {
+		this.operandCount = operands.size();
+		// Edges with the same end points are merged, adding up their changes
+		// of depth, and those across which no depth changes, such as the
+		// common edge of two adjacent polygons of one operand, are dropped.
+		// Linked, for the result not to depend on identity hash codes.
+		LinkedHashMap<Key, Segment> edges = new LinkedHashMap<Key, Segment>();
+		for (int k = 0; k < operands.size(); ++k) {
+			for (Polygon p : operands.get(k)) {
+				addRing(edges, p.getVertices(), k, true);
+				for (Hole h : p.getHoles()) {
+					addRing(edges, h.getVertices(), k, false);
+				}
+			}
+		}
+		for (Segment s : edges.values()) {
+			for (int d : s.delta) {
+				if (d != 0) {
+					event(s.a).starting.add(s);
+					event(s.b).ending.add(s);
+					break;
+				}
+			}
+		}
+		while (!queue.isEmpty()) {
+			sweep(queue.poll());
+		}
+		points = null;
+		events = null;
+		queue = null;
+		status = null;
+	}
+
+	public int getOperandCount() {
+		return operandCount;
+	}
+
+	// Polygons covering the points whose depths, one per operand, satisfy the
+	// predicate. Points outside all operands have depth 0 everywhere.
+	public ArrayList<Polygon> getRegion(Predicate<int[]> inside) {
+		ArrayList<DirectedEdge> boundary = new ArrayList<DirectedEdge>();
+		for (Segment s : segments) {
+			boolean left = inside.test(s.above);
+			if (left != inside.test(s.below)) {
+				boundary.add(left ? new DirectedEdge(s.a, s.b) : new DirectedEdge(s.b, s.a));
+			}
+		}
+		return polygons(rings(boundary));
+	}
+
+	// Areas of the points with each label, from 0 to count - 1, given by the
+	// depths of the operands. Points labelled out of range are left out. The
+	// areas come from the edges alone, without building the regions: an edge
+	// adds its part of the shoelace formula to the label on its left and
+	// subtracts it from the label on its right.
+	public double[] getAreas(ToIntFunction<int[]> label, int count) {
+		double[] areas = new double[count];
+		for (Segment s : segments) {
+			int above = label.applyAsInt(s.above);
+			int below = label.applyAsInt(s.below);
+			if (above == below) {
+				continue;
+			}
+			double area = (s.a.getX() * s.b.getY() - s.b.getX() * s.a.getY()) / 2;
+			if (above >= 0 && above < count) {
+				areas[above] += area;
+			}
+			if (below >= 0 && below < count) {
+				areas[below] -= area;
+			}
+		}
+		return areas;
+	}
+
+	// Union, intersection, difference or symmetric difference of the subject
+	// and the clipping polygons.
+	public static ArrayList<Polygon> compute(List<Polygon> subject, List<Polygon> clipping, int operation) {
+		PolygonOverlay overlay = new PolygonOverlay(Arrays.asList(subject, clipping));
+		return overlay.getRegion(depth -> {
+			boolean inSubject = depth[0] > 0;
+			boolean inClipping = depth[1] > 0;
+			switch (operation) {
+			case UNION:
+				return inSubject || inClipping;
+			case INTERSECTION:
+				return inSubject && inClipping;
+			case DIFFERENCE:
+				return inSubject && !inClipping;
+			case XOR:
+				return inSubject != inClipping;
+			default:
+				throw new IllegalArgumentException("Unknown operation " + operation);
+			}
+		});
+	}
+
+	// Union of any number of possibly overlapping polygons, in one overlay.
+	public static ArrayList<Polygon> union(List<Polygon> polygons) {
+		return new PolygonOverlay(Collections.singletonList(polygons)).getRegion(depth -> depth[0] > 0);
+	}
+
+	// Total area of polygons with holes, which are assumed not to overlap.
+	public static double area(List<Polygon> polygons) {
+		double area = 0;
+		for (Polygon p : polygons) {
+			area += Math.abs(GeometricAlgorithms.signedArea(p.getVertices()));
+			for (Hole h : p.getHoles()) {
+				area -= Math.abs(GeometricAlgorithms.signedArea(h.getVertices()));
+			}
+		}
+		return area;
+	}
+
+	// Adds the edges of a ring, skipping degenerate ones, between the points
+	// of the arrangement at the positions of its vertices.
+	private void addRing(LinkedHashMap<Key, Segment> edges, List<Vertex> ring, int operand, boolean outer) {
+		double area = GeometricAlgorithms.signedArea(ring);
+		if (ring.size() < 3 || area == 0) {
+			return;
+		}
+		int side = (area > 0) == outer ? 1 : -1;
+		for (int i = 0; i < ring.size(); ++i) {
+			Vertex start = point(ring.get(i));
+			Vertex end = point(ring.get((i + 1) % ring.size()));
+			if (start == end) {
+				continue;
+			}
+			boolean forward = compareExact(start, end) < 0;
+			Key key = forward ? new Key(start, end) : new Key(end, start);
+			Segment s = edges.get(key);
+			if (s == null) {
+				s = new Segment();
+				s.a = key.a;
+				s.b = key.b;
+				s.delta = new int[operandCount];
+				edges.put(key, s);
+			}
+			s.delta[operand] += forward ? side : -side;
+		}
+	}
+
+	// Point of the arrangement at the snapped position of the given one.
+	private Vertex point(Vertex v) {
+		Vertex point = points.get(v);
+		if (point == null) {
+			point = new Vertex(v.getX(), v.getY());
+			points.put(point, point);
+		}
+		return point;
+	}
+
+	private Event event(Vertex point) {
+		Event event = events.get(point);
+		if (event == null) {
+			event = new Event(point);
+			events.put(point, event);
+			queue.add(event);
+		}
+		return event;
+	}
+
+	// Sweeps an event point: the edges passing through it are split there,
+	// the edges ending there leave the sweep line, then the edges starting
+	// there enter it from bottom to top, and the edges that became neighbors
+	// are split where they cross. A crossing rounded onto the event point
+	// itself reroutes edges through it, and a crossing splitting an edge
+	// starting there turns that edge, which may then belong elsewhere among
+	// the edges starting there. Either way the sweep of the point starts over
+	// with the edges starting there out of the sweep line again.
+	private void sweep(Event event) {
+		Vertex p = event.point;
+		int known;
+		boolean turned;
+		do {
+			known = event.starting.size() + event.ending.size();
+			for (Segment s : event.starting) {
+				if (s.node != null) {
+					status.remove(s.node);
+					s.node = null;
+				}
+			}
+			// The edges touching p, those passing within half the snapping
+			// distance from it besides those ending there, are next to its
+			// place in the sweep line. Once they are split there and left,
+			// the edges just below and above p are next to each other.
+			Node above = status.first(t -> t.b != p && GeometricKernel.orientation(t.a, t.b, p) < 0);
+			Node below = above == null ? status.last() : status.predecessor(above);
+			for (; above != null && touches(p, above.segment); above = status.successor(above)) {
+				split(above.segment, p);
+			}
+			for (; below != null && touches(p, below.segment); below = status.predecessor(below)) {
+				split(below.segment, p);
+			}
+			for (int i = 0; i < event.ending.size(); ++i) {
+				if (event.ending.get(i).node != null) {
+					leave(event.ending.get(i));
+				}
+			}
+
+			ArrayList<Segment> entering = new ArrayList<Segment>(event.starting);
+			entering.sort((s, t) -> s.b == t.b ? 0 : -GeometricKernel.orientation(p, s.b, t.b));
+			Node lower = below;
+			for (Segment s : entering) {
+				enter(s, lower);
+				lower = s.node;
+			}
+			if (entering.isEmpty()) {
+				turned = intersect(below, above, p);
+			} else {
+				turned = intersect(below, entering.get(0).node, p);
+				turned |= intersect(lower, above, p);
+			}
+		} while (turned || known != event.starting.size() + event.ending.size());
+		events.remove(p);
+	}
+
+	private static boolean touches(Vertex p, Segment s) {
+		return s.b == p || near(p, s);
+	}
+
+	// Inserts an edge into the sweep line just above the given node, or at
+	// the bottom, and sets its depths.
+	private void enter(Segment s, Node lower) {
+		s.node = status.insertAfter(lower, s);
+		s.below = lower == null ? new int[operandCount] : lower.segment.above;
+		s.above = new int[operandCount];
+		for (int k = 0; k < operandCount; ++k) {
+			s.above[k] = s.below[k] + s.delta[k];
+		}
+	}
+
+	// Removes an edge ending at the current event point from the sweep line,
+	// with the edges next to it having the same end points, and keeps them as
+	// one edge of the arrangement unless no depth changes across it.
+	private void leave(Segment s) {
+		Node lowest = s.node;
+		for (Node n = status.predecessor(lowest); n != null && n.segment.a == s.a && n.segment.b == s.b; n = status
+				.predecessor(n)) {
+			lowest = n;
+		}
+		Segment edge = new Segment();
+		edge.a = s.a;
+		edge.b = s.b;
+		edge.below = lowest.segment.below;
+		Node n = lowest;
+		while (n != null && n.segment.a == s.a && n.segment.b == s.b) {
+			Node next = status.successor(n);
+			edge.above = n.segment.above;
+			n.segment.node = null;
+			status.remove(n);
+			n = next;
+		}
+		if (!Arrays.equals(edge.below, edge.above)) {
+			segments.add(edge);
+		}
+	}
+
+	// Splits two edges next to each other in the sweep line where they cross
+	// properly, and tells whether an edge starting at the event point was
+	// split. Edges sharing an end point only meet elsewhere when
+	// overlapping, and end points lying on the other edge are found at their
+	// own event point.
+	private boolean intersect(Node lower, Node upper, Vertex p) {
+		if (lower == null || upper == null) {
+			return false;
+		}
+		Segment s = lower.segment;
+		Segment t = upper.segment;
+		if (s.a == t.a || s.a == t.b || s.b == t.a || s.b == t.b
+				|| GeometricKernel.orientation(s.a, s.b, t.a) * GeometricKernel.orientation(s.a, s.b, t.b) >= 0
+				|| GeometricKernel.orientation(t.a, t.b, s.a) * GeometricKernel.orientation(t.a, t.b, s.b) >= 0) {
+			return false;
+		}
+		double d1 = GeometricKernel.cross(t.a, t.b, s.a);
+		double d2 = GeometricKernel.cross(t.a, t.b, s.b);
+		double u = d1 / (d1 - d2);
+		// The edges cross ahead of the sweep line, where the rounded crossing
+		// is brought back by moving its x coordinate only, p possibly lying
+		// far from it on the same vertical line. It is merged with a point at
+		// the same snapped position unless that one was swept already.
+		double x = Math.max(s.a.getX() + u * (s.b.getX() - s.a.getX()), p.getX());
+		double y = s.a.getY() + u * (s.b.getY() - s.a.getY());
+		if (x == p.getX() && y < p.getY()) {
+			x = Math.nextUp(x);
+		}
+		Vertex crossing = new Vertex(x, y);
+		Vertex point = point(crossing);
+		if (compareExact(point, p) >= 0) {
+			crossing = point;
+		}
+		boolean turned = crossing != p && (s.a == p && crossing != s.b || t.a == p && crossing != t.b);
+		split(s, crossing);
+		split(t, crossing);
+		return turned;
+	}
+
+	// Cuts the edge in two at a point ahead of the sweep line other than its
+	// end points. The first piece keeps its place in the sweep line and now
+	// ends at the point. The second piece joins the point to the former end,
+	// and comes after the point in the order of the sweep unless the edge is
+	// so close to vertical that no point strictly between its ends in the
+	// order of the sweep lies near the crossing: only then is it reversed.
+	private void split(Segment s, Vertex point) {
+		if (point == s.a || point == s.b) {
+			return;
+		}
+		Event end = events.get(s.b);
+		end.ending.remove(end.ending.indexOf(s));
+		Segment second = new Segment();
+		Event event = event(point);
+		if (compareExact(point, s.b) < 0) {
+			second.a = point;
+			second.b = s.b;
+			second.delta = s.delta;
+			end.ending.add(second);
+			event.starting.add(second);
+		} else {
+			second.a = s.b;
+			second.b = point;
+			second.delta = new int[operandCount];
+			for (int k = 0; k < operandCount; ++k) {
+				second.delta[k] = -s.delta[k];
+			}
+			end.starting.add(second);
+			event.ending.add(second);
+		}
+		s.b = point;
+		event.ending.add(s);
+	}
+
+	// Whether a point lies within the edge, end points excluded, up to half
+	// the snapping distance. Points computed on an edge, such as the shadows
+	// of visibility polygons, are seldom exactly on it.
+	private static boolean near(Vertex v, Segment s) {
+		if (v == s.a || v == s.b) {
+			return false;
+		}
+		double dx = s.b.getX() - s.a.getX();
+		double dy = s.b.getY() - s.a.getY();
+		double length = dx * dx + dy * dy;
+		double t = ((v.getX() - s.a.getX()) * dx + (v.getY() - s.a.getY()) * dy) / length;
+		if (t <= 0 || t >= 1) {
+			return false;
+		}
+		return Math.abs(GeometricKernel.cross(s.a, s.b, v)) <= Vertex.SNAP / 2 * Math.sqrt(length);
+	}
+
+	// Order of the sweep, on the exact coordinates rather than the snapped
+	// ones of Vertex.compareTo, to agree with the orientation of the edges.
+	// Points of the arrangement are at distinct exact positions.
+	private static int compareExact(Vertex v, Vertex w) {
+		int result = Double.compare(v.getX(), w.getX());
+		return result != 0 ? result : Double.compare(v.getY(), w.getY());
+	}
+
+	// Node of the sweep line.
+	private static class Node {
+		private Segment segment;
+		private int priority;
+		private Node left;
+		private Node right;
+		private Node parent;
+
+		private Node(Segment segment, int priority) {
+			this.segment = segment;
+			this.priority = priority;
+		}
+	}
+
+	// Sweep line, as a treap of the edges from bottom to top: a binary search
+	// tree kept balanced by random priorities, the parent of a node having a
+	// higher priority than its children.
+	private static class Status {
+		// Fixed seed, for the result not to depend on the run.
+		private Random random = new Random(0);
+		private Node root;
+
+		// Inserts the edge just after the given node in the order of the
+		// tree, or first.
+		private Node insertAfter(Node previous, Segment s) {
+			Node node = new Node(s, random.nextInt());
+			Node parent = previous;
+			if (previous == null || previous.right != null) {
+				parent = previous == null ? root : previous.right;
+				while (parent != null && parent.left != null) {
+					parent = parent.left;
+				}
+			}
+			if (parent == null) {
+				root = node;
+				return node;
+			}
+			if (parent == previous) {
+				parent.right = node;
+			} else {
+				parent.left = node;
+			}
+			node.parent = parent;
+			while (node.parent != null && node.priority > node.parent.priority) {
+				rotateUp(node);
+			}
+			return node;
+		}
+
+		private void remove(Node node) {
+			while (node.left != null || node.right != null) {
+				if (node.right == null || (node.left != null && node.left.priority > node.right.priority)) {
+					rotateUp(node.left);
+				} else {
+					rotateUp(node.right);
+				}
+			}
+			replace(node, null);
+			node.parent = null;
+		}
+
+		// Lowest node whose edge satisfies the test, which holds for all the
+		// edges above it and none below, or null if there is none.
+		private Node first(Predicate<Segment> test) {
+			Node first = null;
+			for (Node n = root; n != null;) {
+				if (test.test(n.segment)) {
+					first = n;
+					n = n.left;
+				} else {
+					n = n.right;
+				}
+			}
+			return first;
+		}
+
+		private Node last() {
+			Node n = root;
+			while (n != null && n.right != null) {
+				n = n.right;
+			}
+			return n;
+		}
+
+		private Node predecessor(Node node) {
+			if (node.left != null) {
+				Node n = node.left;
+				while (n.right != null) {
+					n = n.right;
+				}
+				return n;
+			}
+			Node n = node;
+			while (n.parent != null && n.parent.left == n) {
+				n = n.parent;
+			}
+			return n.parent;
+		}
+
+		private Node successor(Node node) {
+			if (node.right != null) {
+				Node n = node.right;
+				while (n.left != null) {
+					n = n.left;
+				}
+				return n;
+			}
+			Node n = node;
+			while (n.parent != null && n.parent.right == n) {
+				n = n.parent;
+			}
+			return n.parent;
+		}
+
+		// Moves the node above its parent, keeping the order of the tree.
+		private void rotateUp(Node node) {
+			Node parent = node.parent;
+			if (parent.left == node) {
+				parent.left = node.right;
+				if (node.right != null) {
+					node.right.parent = parent;
+				}
+				node.right = parent;
+			} else {
+				parent.right = node.left;
+				if (node.left != null) {
+					node.left.parent = parent;
+				}
+				node.left = parent;
+			}
+			replace(parent, node);
+			parent.parent = node;
+		}
+
+		// Puts the replacement in place of the node below its parent.
+		private void replace(Node node, Node replacement) {
+			Node parent = node.parent;
+			if (parent == null) {
+				root = replacement;
+			} else if (parent.left == node) {
+				parent.left = replacement;
+			} else {
+				parent.right = replacement;
+			}
+			if (replacement != null) {
+				replacement.parent = parent;
+			}
+		}
+	}
+
+	// Links the edges into closed rings. Where several edges leave a point,
+	// the ring goes on along the first one clockwise from where it came, which
+	// keeps touching rings apart.
+	private static ArrayList<ArrayList<Vertex>> rings(ArrayList<DirectedEdge> edges) {
+		IdentityHashMap<Vertex, ArrayList<DirectedEdge>> outgoing = new IdentityHashMap<Vertex, ArrayList<DirectedEdge>>();
+		for (DirectedEdge e : edges) {
+			outgoing.computeIfAbsent(e.from, v -> new ArrayList<DirectedEdge>()).add(e);
+		}
+		ArrayList<ArrayList<Vertex>> rings = new ArrayList<ArrayList<Vertex>>();
+		for (DirectedEdge first : edges) {
+			if (first.used) {
+				continue;
+			}
+			ArrayList<Vertex> ring = new ArrayList<Vertex>();
+			for (DirectedEdge e = first; e != null && !e.used; e = next(e, outgoing.get(e.to))) {
+				e.used = true;
+				ring.add(e.from);
+			}
+			rings.add(ring);
+		}
+		return rings;
+	}
+
+	private static DirectedEdge next(DirectedEdge incoming, ArrayList<DirectedEdge> candidates) {
+		DirectedEdge next = null;
+		if (candidates == null) {
+			return null;
+		}
+		for (DirectedEdge e : candidates) {
+			if (!e.used && (next == null || clockwiseBefore(incoming.to, incoming.from, e.to, next.to))) {
+				next = e;
+			}
+		}
+		return next;
+	}
+
+	// Whether w1 comes before w2 turning clockwise around v, starting from
+	// the direction of r.
+	private static boolean clockwiseBefore(Vertex v, Vertex r, Vertex w1, Vertex w2) {
+		int h1 = half(v, r, w1);
+		int h2 = half(v, r, w2);
+		if (h1 != h2) {
+			return h1 < h2;
+		}
+		return GeometricKernel.orientation(v, w1, w2) < 0;
+	}
+
+	// 0 for directions less than half a turn clockwise from r, 1 for the
+	// opposite direction, 2 for those beyond and 3 for the direction of r.
+	private static int half(Vertex v, Vertex r, Vertex w) {
+		int side = GeometricKernel.orientation(v, r, w);
+		if (side != 0) {
+			return side < 0 ? 0 : 2;
+		}
+		return GeometricKernel.sameDirection(v, r, w) ? 3 : 1;
+	}
+
+	// Polygons from rings with the region on their left: counter-clockwise
+	// rings are outer boundaries, and each clockwise one is a hole of the
+	// smallest outer boundary around it. Collinear points are dropped.
+	private static ArrayList<Polygon> polygons(ArrayList<ArrayList<Vertex>> rings) {
+		ArrayList<ArrayList<Vertex>> outers = new ArrayList<ArrayList<Vertex>>();
+		ArrayList<Double> outerAreas = new ArrayList<Double>();
+		ArrayList<ArrayList<Vertex>> holes = new ArrayList<ArrayList<Vertex>>();
+		for (ArrayList<Vertex> ring : rings) {
+			ring = simplify(ring);
+			double area = ring.size() < 3 ? 0 : GeometricAlgorithms.signedArea(ring);
+			if (area > 0) {
+				outers.add(ring);
+				outerAreas.add(area);
+			} else if (area < 0) {
+				holes.add(ring);
+			}
+		}
+		ArrayList<ArrayList<Hole>> outerHoles = new ArrayList<ArrayList<Hole>>();
+		for (int i = 0; i < outers.size(); ++i) {
+			outerHoles.add(new ArrayList<Hole>());
+		}
+		for (ArrayList<Vertex> hole : holes) {
+			Vertex v1 = hole.get(0);
+			Vertex v2 = hole.get(1);
+			Vertex middle = new Vertex((v1.getX() + v2.getX()) / 2, (v1.getY() + v2.getY()) / 2);
+			int parent = -1;
+			for (int i = 0; i < outers.size(); ++i) {
+				if ((parent < 0 || outerAreas.get(i) < outerAreas.get(parent))
+						&& GeometricAlgorithms.ringContains(outers.get(i), middle)) {
+					parent = i;
+				}
+			}
+			if (parent >= 0) {
+				outerHoles.get(parent).add(new Hole(copy(hole)));
+			}
+		}
+		ArrayList<Polygon> polygons = new ArrayList<Polygon>();
+		for (int i = 0; i < outers.size(); ++i) {
+			polygons.add(new Polygon(copy(outers.get(i)), outerHoles.get(i)));
+		}
+		return polygons;
+	}
+
+	private static ArrayList<Vertex> simplify(ArrayList<Vertex> ring) {
+		ArrayList<Vertex> simplified = new ArrayList<Vertex>(ring.size());
+		for (int i = 0; i < ring.size(); ++i) {
+			Vertex previous = ring.get((i + ring.size() - 1) % ring.size());
+			Vertex next = ring.get((i + 1) % ring.size());
+			if (!GeometricKernel.collinear(previous, ring.get(i), next)) {
+				simplified.add(ring.get(i));
+			}
+		}
+		return simplified;
+	}
+
+	// Fresh vertices for a result polygon, which links its own vertices to
+	// its edges.
+	private static ArrayList<Vertex> copy(ArrayList<Vertex> ring) {
+		ArrayList<Vertex> copy = new ArrayList<Vertex>(ring.size());
+		for (Vertex v : ring) {
+			copy.add(new Vertex(v.getX(), v.getY()));
+		}
+		return copy;
+	}
+}
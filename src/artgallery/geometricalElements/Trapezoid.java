@@ -0,0 +1,166 @@
+package artgallery.geometricalElements;
+
+import java.util.ArrayList;
+
+// Trapezoid of a trapezoidal map. It is bounded from below and above by the
+// horizontal lines through its bottom and top vertices, and on the sides by its
+// left and right edges. Any of those may be null when the trapezoid is unbounded
+// in that direction.
+public class Trapezoid {
+	// Basic trapezoid properties.
+	private Vertex bottom;
+	private Vertex top;
+	private Edge leftEdge;
+	private Edge rightEdge;
+	private boolean inside = false;
+
+	// Neighboring trapezoids across the bottom and top lines. The "left" ones
+	// share the left edge of the trapezoid, the "right" ones its right edge.
+	private Trapezoid lowerLeft, lowerRight, upperLeft, upperRight;
+
+	// Constructors
+	public Trapezoid() {
+	}
+
+	public Trapezoid(Vertex bottom, Vertex top, Edge leftEdge, Edge rightEdge) {
+		this.setBottom(bottom);
+		this.setTop(top);
+		this.setLeftEdge(leftEdge);
+		this.setRightEdge(rightEdge);
+	}
+
+	// Basic property setters and accessors.
+
+	public Vertex getBottom() {
+		return bottom;
+	}
+
+	public void setBottom(Vertex bottom) {
+		this.bottom = bottom;
+	}
+
+	public Vertex getTop() {
+		return top;
+	}
+
+	public void setTop(Vertex top) {
+		this.top = top;
+	}
+
+	public Edge getLeftEdge() {
+		return leftEdge;
+	}
+
+	public void setLeftEdge(Edge leftEdge) {
+		this.leftEdge = leftEdge;
+	}
+
+	public Edge getRightEdge() {
+		return rightEdge;
+	}
+
+	public void setRightEdge(Edge rightEdge) {
+		this.rightEdge = rightEdge;
+	}
+
+	public boolean isInside() {
+		return inside;
+	}
+
+	public void setInside(boolean inside) {
+		this.inside = inside;
+	}
+
+	public Trapezoid getLowerLeft() {
+		return lowerLeft;
+	}
+
+	public void setLowerLeft(Trapezoid lowerLeft) {
+		this.lowerLeft = lowerLeft;
+	}
+
+	public Trapezoid getLowerRight() {
+		return lowerRight;
+	}
+
+	public void setLowerRight(Trapezoid lowerRight) {
+		this.lowerRight = lowerRight;
+	}
+
+	public Trapezoid getUpperLeft() {
+		return upperLeft;
+	}
+
+	public void setUpperLeft(Trapezoid upperLeft) {
+		this.upperLeft = upperLeft;
+	}
+
+	public Trapezoid getUpperRight() {
+		return upperRight;
+	}
+
+	public void setUpperRight(Trapezoid upperRight) {
+		this.upperRight = upperRight;
+	}
+
+	public boolean isBounded() {
+		return bottom != null && top != null && leftEdge != null && rightEdge != null;
+	}
+
+	// Returns the horizontal chord along the bottom of the trapezoid, or null if
+	// the trapezoid is unbounded or the chord collapses into a single point.
+	public Edge getBottomChord() {
+		if (!isBounded()) {
+			return null;
+		}
+		double y = bottom.getY();
+		double leftX = xAt(leftEdge, y, bottom);
+		double rightX = xAt(rightEdge, y, bottom);
+		if (rightX - leftX <= 0) {
+			return null;
+		}
+		return new Edge(new Vertex(leftX, y), new Vertex(rightX, y));
+	}
+
+	// Converts the trapezoid into a clockwise polygon (a triangle when one of
+	// its horizontal sides collapses), or null if it is unbounded or has no area.
+	public Polygon toPolygon() {
+		if (!isBounded() || top.getY() == bottom.getY()) {
+			return null;
+		}
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+		addCorner(vertices, xAt(leftEdge, top.getY(), top), top.getY());
+		addCorner(vertices, xAt(rightEdge, top.getY(), top), top.getY());
+		addCorner(vertices, xAt(rightEdge, bottom.getY(), bottom), bottom.getY());
+		addCorner(vertices, xAt(leftEdge, bottom.getY(), bottom), bottom.getY());
+		if (vertices.size() > 1 && vertices.get(0).equals(vertices.get(vertices.size() - 1))) {
+			vertices.remove(vertices.size() - 1);
+		}
+		return vertices.size() < 3 ? null : new Polygon(vertices);
+	}
+
+	private void addCorner(ArrayList<Vertex> vertices, double x, double y) {
+		Vertex corner = new Vertex(x, y);
+		if (vertices.isEmpty() || !vertices.get(vertices.size() - 1).equals(corner)) {
+			vertices.add(corner);
+		}
+	}
+
+	// X-coordinate of an edge at the given height. Horizontal edges only bound
+	// trapezoids of zero height, in which case the defining vertex is used.
+	private double xAt(Edge e, double y, Vertex fallback) {
+		Vertex v1 = e.getStartVertex();
+		Vertex v2 = e.getEndVertex();
+		if (v1.getY() == v2.getY()) {
+			return fallback.getX();
+		}
+		return v1.getX() + (y - v1.getY()) * (v2.getX() - v1.getX()) / (v2.getY() - v1.getY());
+	}
+
+	@Override
+	// Simple method to obtain a readable representation of the trapezoid for
+	// labeling purposes.
+	public String toString() {
+		return "[" + bottom + "-" + top + "]";
+	}
+}
@@ -3,6 +3,9 @@ package artgallery.geometricalElements;
 import java.util.ArrayList;
 
 public class Vertex implements Comparable<Vertex> {
+	// Spacing of the grid coordinates are snapped to when comparing vertices.
+	public static final double SNAP = 0.01;
+
 	// Basic vertex properties. 
 	private String id;
 	private double X;
@@ -161,24 +164,31 @@ public class Vertex implements Comparable<Vertex> {
 	
 	@Override
 	// Overridden function to compare vertices on their coordinates rather than on object hashes.
-	// X & Y can be deemed equal if they fall within an arbitrary tolerance to account for floating point error.
+	// Coordinates are snapped to a grid of SNAP units to absorb floating point error, so that
+	// equality is transitive and consistent with hashCode.
 	public boolean equals(Object o) {
-		if(o instanceof Vertex) {
-			if(Math.abs(this.X - ((Vertex) o).getX()) < 0.01 && Math.abs(this.Y - ((Vertex) o).getY()) < 0.01) {
-				return true;
-			}
+		if (o instanceof Vertex) {
+			return snap(this.X) == snap(((Vertex) o).getX()) && snap(this.Y) == snap(((Vertex) o).getY());
 		}
-		return false;		
+		return false;
 	}
-	
+
+	@Override
+	// Hash of the snapped coordinates, consistent with equals.
+	public int hashCode() {
+		return 31 * Long.hashCode(snap(this.X)) + Long.hashCode(snap(this.Y));
+	}
+
 	@Override
-	// Might need revision to ensure the correct orders are yielded
+	// Orders vertices on their snapped X and then Y coordinates, consistent with equals.
 	public int compareTo(Vertex o) {
-		if (this.equals(o)) {
-			return 0;
-		} else {
-			return Double.compare(this.X, ((Vertex) o).getX());
-		}
+		int result = Long.compare(snap(this.X), snap(o.getX()));
+		return result != 0 ? result : Long.compare(snap(this.Y), snap(o.getY()));
+	}
+
+	// Index of the grid line closest to the coordinate.
+	public static long snap(double coordinate) {
+		return Math.round(coordinate / SNAP);
 	}
 	
 	@Override